@@ -0,0 +1,59 @@
+package bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The data files the benchmarks run against, from the smallest test files to the ones
+ * the server uses. Paths are relative to the repository root, which benchmarks must be
+ * run from.
+ */
+public enum Dataset {
+    SMALL("data/ngrams/very_short.csv", "data/wordnet/synsets16.txt", "data/wordnet/hyponyms16.txt",
+            "jump", "change"),
+    EECS("data/ngrams/frequency-EECS.csv", "data/wordnet/synsets-EECS.txt", "data/wordnet/hyponyms-EECS.txt",
+            "CS61B", "CS61A"),
+    LARGE("data/ngrams/top_49887_words.csv", "data/wordnet/synsets.txt", "data/wordnet/hyponyms.txt",
+            "cake", "entity");
+
+    public static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+    /* The year range history benchmarks query; total_counts.csv has totals for all of it. */
+    public static final int START_YEAR = 1900;
+    public static final int END_YEAR = 2019;
+
+    public final String wordsFile;
+    public final String synsetsFile;
+    public final String hyponymsFile;
+    /** A word with only a handful of hyponyms. */
+    public final String narrowWord;
+    /** A word near the root of the hierarchy, with a large share of all words as hyponyms. */
+    public final String broadWord;
+
+    Dataset(String wordsFile, String synsetsFile, String hyponymsFile, String narrowWord, String broadWord) {
+        this.wordsFile = wordsFile;
+        this.synsetsFile = synsetsFile;
+        this.hyponymsFile = hyponymsFile;
+        this.narrowWord = narrowWord;
+        this.broadWord = broadWord;
+    }
+
+    /**
+     * Returns the first N distinct words of the words file, or all of them if it has fewer.
+     */
+    public List<String> sampleWords(int n) {
+        try (Stream<String> lines = Files.lines(Path.of(wordsFile))) {
+            return lines.map(line -> line.substring(0, Math.max(line.indexOf('\t'), 0)))
+                    .filter(word -> !word.isEmpty())
+                    .distinct()
+                    .limit(n)
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
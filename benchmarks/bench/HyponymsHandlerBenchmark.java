@@ -0,0 +1,55 @@
+package bench;
+
+import browser.NgordnetQuery;
+import main.HyponymsHandler;
+import main.WordnetGraph;
+import ngrams.NGramMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HyponymsHandler.handle for the broad word of each dataset, listing every hyponym
+ * (k=0) or ranking them by frequency (k=5). This calls handle(NgordnetQuery) directly,
+ * so the handler's response cache is not involved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HyponymsHandlerBenchmark {
+    @Param({"SMALL", "EECS", "LARGE"})
+    public Dataset dataset;
+
+    @Param({"0", "5"})
+    public int k;
+
+    private HyponymsHandler handler;
+    private NgordnetQuery query;
+
+    @Setup
+    public void setUp() {
+        WordnetGraph graph = new WordnetGraph(dataset.synsetsFile, dataset.hyponymsFile);
+        graph.buildReachabilityIndex();
+        handler = new HyponymsHandler(graph, new NGramMap(dataset.wordsFile, Dataset.TOTAL_COUNTS_FILE));
+        query = new NgordnetQuery(List.of(dataset.broadWord), Dataset.START_YEAR, Dataset.END_YEAR, k);
+    }
+
+    @Benchmark
+    public String handle() {
+        return handler.handle(query);
+    }
+}
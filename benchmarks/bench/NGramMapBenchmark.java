@@ -0,0 +1,74 @@
+package bench;
+
+import ngrams.DenseTimeSeries;
+import ngrams.NGramMap;
+import ngrams.TimeSeries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading an NGramMap from the text files, and the history queries every handler makes.
+ * The forks run with the vector SeriesKernels; add -jvmArgsAppend -Dngrams.kernels=scalar
+ * to compare against the scalar ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class NGramMapBenchmark {
+    /* How many words summedWeightHistory adds up, about what a broad hyponyms query sums. */
+    private static final int SUMMED_WORDS = 1000;
+
+    @Param({"SMALL", "EECS", "LARGE"})
+    public Dataset dataset;
+
+    private NGramMap map;
+    private String word;
+    private List<String> words;
+
+    @Setup
+    public void setUp() {
+        map = new NGramMap(dataset.wordsFile, Dataset.TOTAL_COUNTS_FILE);
+        words = dataset.sampleWords(SUMMED_WORDS);
+        word = words.get(0);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public NGramMap construct() {
+        return new NGramMap(dataset.wordsFile, Dataset.TOTAL_COUNTS_FILE);
+    }
+
+    @Benchmark
+    public TimeSeries weightHistory() {
+        return map.weightHistory(word, Dataset.START_YEAR, Dataset.END_YEAR);
+    }
+
+    @Benchmark
+    public TimeSeries summedWeightHistory() {
+        return map.summedWeightHistory(words, Dataset.START_YEAR, Dataset.END_YEAR);
+    }
+
+    /* Every year with a total count, 550 of them in total_counts.csv. */
+    @Benchmark
+    public DenseTimeSeries denseSummedWeightHistoryAllYears() {
+        return map.denseSummedWeightHistory(words, map.store().firstTotalYear(), map.store().lastTotalYear());
+    }
+}
@@ -0,0 +1,56 @@
+package bench;
+
+import ngrams.NGramMap;
+import ngrams.TimeSeries;
+import org.knowm.xchart.XYChart;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import plotting.Plotter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plotter.encodeChartAsString for a history chart of a few words, which renders the
+ * chart, encodes it as a PNG and Base64-encodes that.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PlotterBenchmark {
+    private static final int CHART_WORDS = 5;
+
+    @Param({"SMALL", "EECS", "LARGE"})
+    public Dataset dataset;
+
+    private XYChart chart;
+
+    @Setup
+    public void setUp() {
+        NGramMap map = new NGramMap(dataset.wordsFile, Dataset.TOTAL_COUNTS_FILE);
+        List<String> words = dataset.sampleWords(CHART_WORDS);
+        List<TimeSeries> histories = new ArrayList<>();
+        for (String word : words) {
+            histories.add(map.weightHistory(word, Dataset.START_YEAR, Dataset.END_YEAR));
+        }
+        chart = Plotter.generateTimeSeriesChart(words, histories);
+    }
+
+    @Benchmark
+    public String encodeChartAsString() {
+        return Plotter.encodeChartAsString(chart);
+    }
+}
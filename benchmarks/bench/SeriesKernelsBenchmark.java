@@ -0,0 +1,92 @@
+package bench;
+
+import ngrams.SeriesKernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The scalar and vector SeriesKernels side by side, on the work of summing the weight
+ * histories of a broad hyponyms query: thousands of count columns, each divided by the
+ * total counts and added into one series, over a narrow and a very wide year range.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class SeriesKernelsBenchmark {
+    /* How many count columns each operation adds up, about what a broad hyponyms query sums. */
+    private static final int COLUMNS = 2000;
+
+    @Param({"scalar", "vector"})
+    public String kernels;
+
+    /* The default benchmark range, and every year TimeSeries allows. */
+    @Param({"120", "701"})
+    public int years;
+
+    private SeriesKernels impl;
+    private double[][] counts;
+    private double[] totals;
+    private double[] sum;
+
+    @Setup
+    public void setUp() {
+        impl = kernels.equals("vector") ? SeriesKernels.vector() : SeriesKernels.scalar();
+        if (impl == null) {
+            throw new IllegalStateException("Vector kernels need --add-modules jdk.incubator.vector");
+        }
+        Random random = new Random(61);
+        counts = new double[COLUMNS][years];
+        for (double[] column : counts) {
+            // Words without records in some years, as in the NGram files
+            for (int i = 0; i < years; i += 1) {
+                column[i] = random.nextInt(8) == 0 ? Double.NaN : random.nextInt(100_000);
+            }
+        }
+        totals = new double[years];
+        Arrays.fill(totals, 1e9);
+        sum = new double[years];
+    }
+
+    @Benchmark
+    public double[] summedWeights() {
+        Arrays.fill(sum, Double.NaN);
+        for (double[] column : counts) {
+            impl.addQuotients(sum, 0, column, 0, totals, 0, years);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double[] plus() {
+        Arrays.fill(sum, Double.NaN);
+        for (double[] column : counts) {
+            impl.add(sum, 0, column, 0, years);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double rangeSums() {
+        double total = 0;
+        for (double[] column : counts) {
+            total += impl.sum(column, 0, years);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,62 @@
+package bench;
+
+import main.WordnetGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WordnetGraph.findHyponyms for a word with few hyponyms and for one near the root.
+ * With cached=false the hyponym cache is emptied before every call, so the closure is
+ * computed each time; with cached=true the calls measure cache hits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WordnetGraphBenchmark {
+    @Param({"SMALL", "EECS", "LARGE"})
+    public Dataset dataset;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private WordnetGraph graph;
+
+    @Setup
+    public void setUp() {
+        graph = new WordnetGraph(dataset.synsetsFile, dataset.hyponymsFile);
+        graph.buildReachabilityIndex();
+    }
+
+    @Benchmark
+    public Set<String> findHyponymsNarrow() {
+        if (!cached) {
+            graph.hyponymCache().invalidateAll();
+            graph.closureCache().invalidateAll();
+        }
+        return graph.findHyponyms(dataset.narrowWord);
+    }
+
+    @Benchmark
+    public Set<String> findHyponymsBroad() {
+        if (!cached) {
+            graph.hyponymCache().invalidateAll();
+            graph.closureCache().invalidateAll();
+        }
+        return graph.findHyponyms(dataset.broadWord);
+    }
+}
@@ -0,0 +1,180 @@
+package browser;
+
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spark.Route;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how many requests the server works on at once, so that a burst of expensive
+ * queries cannot starve cheap ones and latency stays bounded under overload.
+ *
+ * Every limited route has its own semaphore, sized for how expensive its queries are,
+ * and all of them share one semaphore bounding the requests in flight overall. A request
+ * waits at most maxWait for each. If its route is saturated it is refused with 429 Too
+ * Many Requests, so other query types keep being served. If the whole server is
+ * saturated it is refused with 503 Service Unavailable. Both carry a Retry-After header.
+ */
+public class AdmissionControl {
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControl.class);
+    private static final Gson gson = new Gson();
+
+    /** Default limit on the requests in flight overall. */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+    /** Default time a request may wait for a permit before it is refused. */
+    public static final Duration DEFAULT_MAX_WAIT = Duration.ofMillis(50);
+
+    static final int TOO_MANY_REQUESTS = 429;
+    static final int SERVICE_UNAVAILABLE = 503;
+
+    private final Semaphore inFlight;
+    private final long maxWaitNanos;
+    private final int retryAfterSeconds;
+    private final Map<String, Limiter> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an admission control with the default limits.
+     */
+    public AdmissionControl() {
+        this(DEFAULT_MAX_IN_FLIGHT, DEFAULT_MAX_WAIT, 1);
+    }
+
+    /**
+     * Constructs an admission control letting at most MAXINFLIGHT requests run at once,
+     * that makes a request wait at most MAXWAIT for a permit and tells refused clients to
+     * retry after RETRYAFTERSECONDS.
+     *
+     * @throws IllegalArgumentException if MAXINFLIGHT is not positive or MAXWAIT is negative
+     */
+    public AdmissionControl(int maxInFlight, Duration maxWait, int retryAfterSeconds) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("In-flight limit must be positive: " + maxInFlight);
+        }
+        if (maxWait.isNegative()) {
+            throw new IllegalArgumentException("Wait cannot be negative: " + maxWait);
+        }
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * The permits of one route.
+     */
+    public final class Limiter {
+        private final String name;
+        private final Semaphore permits;
+        private final int maxConcurrent;
+        private final AtomicLong admitted = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+
+        private Limiter(String name, int maxConcurrent) {
+            this.name = name;
+            this.maxConcurrent = maxConcurrent;
+            this.permits = new Semaphore(maxConcurrent);
+        }
+
+        /**
+         * Tries to admit a request. Returns 0 if it was admitted, in which case release()
+         * must be called when it is done, or the HTTP status to refuse it with.
+         */
+        public int tryAcquire() throws InterruptedException {
+            if (!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                rejected.incrementAndGet();
+                return TOO_MANY_REQUESTS;
+            }
+            if (!inFlight.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                permits.release();
+                rejected.incrementAndGet();
+                return SERVICE_UNAVAILABLE;
+            }
+            admitted.incrementAndGet();
+            return 0;
+        }
+
+        /**
+         * Releases the permits of an admitted request.
+         */
+        public void release() {
+            inFlight.release();
+            permits.release();
+        }
+
+        /** Returns the number of requests admitted so far. */
+        public long admitted() {
+            return admitted.get();
+        }
+
+        /** Returns the number of requests refused so far. */
+        public long rejected() {
+            return rejected.get();
+        }
+
+        /** Returns the number of requests of this route running now. */
+        public int active() {
+            return maxConcurrent - permits.availablePermits();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d of %d active, %,d admitted, %,d rejected",
+                    name, active(), maxConcurrent, admitted(), rejected());
+        }
+    }
+
+    /**
+     * Returns the limiter of the route called NAME, creating it with room for
+     * MAXCONCURRENT requests if there is none yet.
+     *
+     * @throws IllegalArgumentException if MAXCONCURRENT is not positive
+     */
+    public Limiter limiter(String name, int maxConcurrent) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("Concurrency limit must be positive: " + maxConcurrent);
+        }
+        return limiters.computeIfAbsent(name, n -> new Limiter(n, maxConcurrent));
+    }
+
+    /**
+     * Returns the limiters of all routes, by name.
+     */
+    public Map<String, Limiter> limiters() {
+        return Map.copyOf(limiters);
+    }
+
+    /* Returns why a request for the route called NAME was refused with REFUSAL. */
+    static String refusalMessage(String name, int refusal) {
+        return refusal == TOO_MANY_REQUESTS
+                ? "Too many " + name + " requests, retry later"
+                : "Server is overloaded, retry later";
+    }
+
+    /**
+     * Returns ROUTE wrapped so that at most MAXCONCURRENT of its requests run at once.
+     */
+    public Route limit(String name, Route route, int maxConcurrent) {
+        Limiter limiter = limiter(name, maxConcurrent);
+        return (request, response) -> {
+            int refusal = limiter.tryAcquire();
+            if (refusal != 0) {
+                logger.debug("Refusing {} request with {}", name, refusal);
+                response.status(refusal);
+                response.header("Retry-After", Integer.toString(retryAfterSeconds));
+                response.type("application/json");
+                return gson.toJson(Map.of("error", refusalMessage(name, refusal)));
+            }
+            try {
+                return route.handle(request, response);
+            } finally {
+                limiter.release();
+            }
+        };
+    }
+}
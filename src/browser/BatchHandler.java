@@ -0,0 +1,226 @@
+package browser;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Answers many queries in one POST request. The body is a JSON array of queries, each
+ * naming the registered handler that should answer it:
+ *
+ *   [{"type":"hyponyms","words":["dog"],"k":5},
+ *    {"type":"historytext","words":["cat","dog"],"startYear":1950,"endYear":2000}]
+ *
+ * Left-out years and k get the same defaults as a single query. The response is a JSON
+ * array with one element per query, in the same order, holding exactly what the named
+ * endpoint would have returned, or {"error":"..."} if that query failed.
+ *
+ * Queries run in parallel on a fixed pool of threads shared by all batches. Its queue
+ * is bounded; when it is full, the request thread runs the query itself, which keeps a
+ * flood of batches from queueing without limit. Given an AdmissionControl, every query
+ * must also be admitted by the limiter of the route of its type, exactly like a request
+ * to that route; a refused query gets {"error":"..."}.
+ *
+ * Queries that are the same after NgordnetQueryHandler.normalize run only once per
+ * batch, and every query goes through its handler's response cache. Queries that merely
+ * share words are answered separately: each one looks up the histories of its words
+ * again, though hyponym queries find the closures of words already queried in
+ * WordnetGraph's closure cache.
+ */
+public class BatchHandler implements Route {
+    private static final Logger logger = LoggerFactory.getLogger(BatchHandler.class);
+    private static final Gson gson = new Gson();
+
+    /** The largest number of queries a batch may hold. */
+    public static final int MAX_QUERIES = 256;
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private final Map<String, NgordnetQueryHandler> handlers;
+    private final AdmissionControl admission;
+    private final ExecutorService executor;
+
+    /**
+     * One query of a batch, as sent by the client. Missing fields are null.
+     */
+    public record BatchQuery(String type, List<String> words, Integer startYear, Integer endYear, Integer k) {
+        /* @throws IllegalArgumentException if a word is null */
+        NgordnetQuery toQuery() {
+            if (words != null && words.contains(null)) {
+                throw new IllegalArgumentException("Malformed batch: null word in " + words);
+            }
+            return new NgordnetQuery(words == null ? List.of() : words,
+                    startYear == null ? NgordnetQueryHandler.DEFAULT_START_YEAR : startYear,
+                    endYear == null ? NgordnetQueryHandler.DEFAULT_END_YEAR : endYear,
+                    k == null ? NgordnetQueryHandler.DEFAULT_K : k);
+        }
+    }
+
+    /* Identifies the queries of a batch that have the same answer. */
+    private record Key(NgordnetQueryHandler handler, NgordnetQuery query) { }
+
+    /**
+     * Constructs a batch handler that dispatches to HANDLERS by name, running at most
+     * THREADS queries at a time, without admission control. HANDLERS is read on every
+     * request, so handlers registered later are found too.
+     *
+     * @throws IllegalArgumentException if THREADS is not positive
+     */
+    public BatchHandler(Map<String, NgordnetQueryHandler> handlers, int threads) {
+        this(handlers, null, threads);
+    }
+
+    /**
+     * Constructs a batch handler like BatchHandler(HANDLERS, THREADS) whose queries are
+     * admitted by the limiters ADMISSION keeps for their routes. Queries for routes
+     * without a limiter are not limited.
+     *
+     * @throws IllegalArgumentException if THREADS is not positive
+     */
+    public BatchHandler(Map<String, NgordnetQueryHandler> handlers, AdmissionControl admission, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        this.handlers = handlers;
+        this.admission = admission;
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread thread = new Thread(r, "batch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), factory, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        response.type("application/json");
+        try {
+            return run(request.body());
+        } catch (IllegalArgumentException e) {
+            response.status(400);
+            return error(e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the batch of queries in the JSON array BODY and returns the JSON array of
+     * their responses.
+     *
+     * @throws IllegalArgumentException if BODY is not a JSON array of at most MAX_QUERIES queries,
+     *                                  or a query has a null word
+     */
+    public byte[] run(String body) throws InterruptedException {
+        BatchQuery[] queries;
+        try {
+            queries = gson.fromJson(body, BatchQuery[].class);
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("Malformed batch: " + e.getMessage(), e);
+        }
+        if (queries == null) {
+            throw new IllegalArgumentException("Empty batch");
+        }
+        if (queries.length > MAX_QUERIES) {
+            throw new IllegalArgumentException("A batch holds at most " + MAX_QUERIES + " queries, not "
+                    + queries.length);
+        }
+
+        // Check every query before running any, so that a malformed batch runs nothing
+        NgordnetQuery[] normalized = new NgordnetQuery[queries.length];
+        for (int i = 0; i < queries.length; i += 1) {
+            if (queries[i] != null) {
+                normalized[i] = NgordnetQueryHandler.normalize(queries[i].toQuery());
+            }
+        }
+
+        Map<String, AdmissionControl.Limiter> limiters = admission == null ? Map.of() : admission.limiters();
+        Map<Key, Future<byte[]>> running = new HashMap<>();
+        List<Future<byte[]>> results = new ArrayList<>(queries.length);
+        for (int i = 0; i < queries.length; i += 1) {
+            BatchQuery query = queries[i];
+            // A query without a type has an unknown one
+            NgordnetQueryHandler handler = query == null || query.type() == null
+                    ? null : handlers.get(query.type());
+            if (handler == null) {
+                results.add(null);
+                continue;
+            }
+            NgordnetQuery nq = normalized[i];
+            AdmissionControl.Limiter limiter = limiters.get(query.type());
+            results.add(running.computeIfAbsent(new Key(handler, nq),
+                    key -> executor.submit(() -> respond(query.type(), handler, nq, limiter))));
+        }
+        logger.debug("Running batch of {} queries, {} distinct", queries.length, running.size());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('[');
+        for (int i = 0; i < queries.length; i += 1) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.writeBytes(result(queries[i], results.get(i)));
+        }
+        out.write(']');
+        return out.toByteArray();
+    }
+
+    /* Answers NQ with HANDLER once LIMITER, if any, admits it. */
+    private static byte[] respond(String type, NgordnetQueryHandler handler, NgordnetQuery nq,
+                                  AdmissionControl.Limiter limiter) throws InterruptedException {
+        if (limiter == null) {
+            return handler.respond(nq).body();
+        }
+        int refusal = limiter.tryAcquire();
+        if (refusal != 0) {
+            logger.debug("Refusing batched {} query with {}", type, refusal);
+            return error(AdmissionControl.refusalMessage(type, refusal));
+        }
+        try {
+            return handler.respond(nq).body();
+        } finally {
+            limiter.release();
+        }
+    }
+
+    private static byte[] result(BatchQuery query, Future<byte[]> result) throws InterruptedException {
+        if (result == null) {
+            return error("Unknown query type: " + (query == null ? null : query.type()));
+        }
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            logger.warn("Batch query {} failed", query, e.getCause());
+            return error(String.valueOf(e.getCause().getMessage()));
+        }
+    }
+
+    private static byte[] error(String message) {
+        return gson.toJson(Map.of("error", message)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Stops the batch threads once the running queries are done.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
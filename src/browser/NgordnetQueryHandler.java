@@ -1,18 +1,114 @@
 package browser;
 
+import cache.BoundedCache;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import metrics.MetricsRegistry;
+import metrics.RequestMetrics;
+import ngrams.TimeSeries;
 import spark.QueryParamsMap;
 import spark.Request;
 import spark.Response;
 import spark.Route;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * Base class for the ngordnet HTTP endpoints. Subclasses implement handle(NgordnetQuery);
+ * this class parses the request, encodes the result as JSON and caches the encoded body.
+ *
+ * Each handler keeps its own response cache keyed by the normalized query, so repeated
+ * requests are answered from the stored bytes without calling handle(NgordnetQuery).
+ * Every response carries a strong ETag derived from the body, and a request whose
+ * If-None-Match matches it gets 304 Not Modified with no body.
+ *
+ * By default the response is the result of handle(NgordnetQuery) as a JSON string.
+ * Handlers that answer with structured data override writeJson to stream it straight
+ * into the response body instead.
+ *
+ * Every request is counted and timed in the default MetricsRegistry under the handler's
+ * class name, whether it is answered from the cache or not.
+ */
 public abstract class NgordnetQueryHandler implements Route {
     public abstract String handle(browser.NgordnetQuery q);
     private static final Gson gson = new Gson();
 
+    /** First year used when a request leaves it out or gets it wrong. */
+    public static final int DEFAULT_START_YEAR = 1900;
+    /** Last year used when a request leaves it out or gets it wrong. */
+    public static final int DEFAULT_END_YEAR = 2020;
+    static final int DEFAULT_K = 0;
+
+    /** Default byte budget of each handler's response cache. */
+    public static final long DEFAULT_RESPONSE_CACHE_BYTES = 16L << 20;
+    /** Default time a cached response stays valid. */
+    public static final Duration DEFAULT_RESPONSE_CACHE_TTL = Duration.ofMinutes(10);
+
+    private volatile BoundedCache<NgordnetQuery, CachedResponse> responseCache =
+            newResponseCache(DEFAULT_RESPONSE_CACHE_BYTES, DEFAULT_RESPONSE_CACHE_TTL);
+    private final RequestMetrics requestMetrics =
+            RequestMetrics.of(MetricsRegistry.defaultRegistry(), metricsName(getClass()));
+
+    /**
+     * A JSON-encoded response body and its strong ETag.
+     */
+    public record CachedResponse(byte[] body, String etag) {
+        long memoryBytes() {
+            return body.length + 2L * etag.length() + 64;
+        }
+    }
+
+    /**
+     * Replaces this handler's response cache with an empty one holding at most MAXBYTES
+     * bytes, whose entries expire after TTL (null for never). A budget of 0 disables caching.
+     *
+     * @throws IllegalArgumentException if MAXBYTES is negative or TTL is not positive
+     */
+    public void configureResponseCache(long maxBytes, Duration ttl) {
+        responseCache = newResponseCache(maxBytes, ttl);
+    }
+
+    /**
+     * Returns the statistics of this handler's response cache.
+     */
+    public BoundedCache.Stats responseCacheStats() {
+        return responseCache.stats();
+    }
+
+    /**
+     * Returns the request metrics of this handler, which it shares with other handlers
+     * of the same class.
+     */
+    public RequestMetrics requestMetrics() {
+        return requestMetrics;
+    }
+
+    private static String metricsName(Class<?> handlerClass) {
+        String name = handlerClass.getSimpleName();
+        return name.isEmpty() ? handlerClass.getName() : name;
+    }
+
+    private static BoundedCache<NgordnetQuery, CachedResponse> newResponseCache(long maxBytes, Duration ttl) {
+        return new BoundedCache<>(maxBytes, ttl, (query, response) -> {
+            long bytes = response.memoryBytes() + 64;
+            for (String word : query.words()) {
+                bytes += 2L * word.length() + 48;
+            }
+            return bytes;
+        });
+    }
+
     private static List<String> commaSeparatedStringToList(String s) {
         String[] requestedWords = s.split(",");
         for (int i = 0; i < requestedWords.length; i += 1) {
@@ -31,29 +127,129 @@ public abstract class NgordnetQueryHandler implements Route {
         try {
             startYear = Integer.parseInt(qm.get("startYear").value());
         } catch (RuntimeException e) {
-            startYear = 1900;
+            startYear = DEFAULT_START_YEAR;
         }
 
         try {
             endYear = Integer.parseInt(qm.get("endYear").value());
         } catch (RuntimeException e) {
-            endYear = 2020;
+            endYear = DEFAULT_END_YEAR;
         }
 
         try {
             k = Integer.parseInt(qm.get("k").value());
         } catch (RuntimeException e) {
-            k = 0;
+            k = DEFAULT_K;
         }
 
         return new NgordnetQuery(words, startYear, endYear, k);
     }
 
+    /**
+     * Returns Q with its words trimmed, empty and repeated words dropped (keeping the
+     * first occurrence), and its years clamped to the range TimeSeries can hold. Queries
+     * that only differ in those respects get the same answer and share a cache entry.
+     */
+    public static NgordnetQuery normalize(NgordnetQuery q) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : q.words()) {
+            String trimmed = word.trim();
+            if (!trimmed.isEmpty()) {
+                words.add(trimmed);
+            }
+        }
+        return new NgordnetQuery(List.copyOf(words),
+                clampYear(q.startYear()), clampYear(q.endYear()), q.k());
+    }
+
+    private static int clampYear(int year) {
+        return Math.max(TimeSeries.MIN_YEAR, Math.min(TimeSeries.MAX_YEAR, year));
+    }
+
+    /**
+     * Returns the encoded response to Q, computing it with handle(NgordnetQuery) only if
+     * the normalized query is not already cached.
+     */
+    public CachedResponse respond(NgordnetQuery q) {
+        return responseCache.computeIfAbsent(normalize(q), this::encode);
+    }
+
+    private CachedResponse encode(NgordnetQuery q) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonWriter out = gson.newJsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            writeJson(q, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] body = bytes.toByteArray();
+        return new CachedResponse(body, etagOf(body));
+    }
+
+    /**
+     * Writes the response to Q as a single JSON value to OUT. The default writes the
+     * result of handle(NgordnetQuery) as a JSON string.
+     */
+    protected void writeJson(NgordnetQuery q, JsonWriter out) throws IOException {
+        out.value(handle(q));
+    }
+
+    /* A strong validator: the quoted hex of the first 128 bits of the body's SHA-256. */
+    private static String etagOf(byte[] body) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        StringBuilder etag = new StringBuilder(34).append('"');
+        for (int i = 0; i < 16; i += 1) {
+            etag.append(Character.forDigit((digest[i] >> 4) & 0xf, 16))
+                    .append(Character.forDigit(digest[i] & 0xf, 16));
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * Returns whether the If-None-Match header value IFNONEMATCH matches ETAG, meaning the
+     * client's copy is current. The header may be "*" or a comma-separated list of tags;
+     * as RFC 9110 requires for If-None-Match, weak tags compare equal to strong ones.
+     */
+    public static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
-    public String handle(Request request, Response response) throws Exception {
-        QueryParamsMap qm = request.queryMap();
-        NgordnetQuery nq = readQueryMap(qm);
-        String queryResult = handle(nq);
-        return gson.toJson(queryResult);
+    public Object handle(Request request, Response response) throws Exception {
+        long start = requestMetrics.start();
+        boolean failed = true;
+        try {
+            QueryParamsMap qm = request.queryMap();
+            NgordnetQuery nq = readQueryMap(qm);
+            CachedResponse cached = respond(nq);
+            response.header("ETag", cached.etag());
+            // Let browsers keep the body but revalidate it with If-None-Match on every use.
+            response.header("Cache-Control", "no-cache");
+            failed = false;
+            if (etagMatches(request.headers("If-None-Match"), cached.etag())) {
+                response.status(304);
+                return "";
+            }
+            response.type("application/json");
+            return cached.body();
+        } finally {
+            requestMetrics.stop(start, failed);
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,13 +1,225 @@
 package browser;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.google.gson.Gson;
+import cache.BoundedCache;
+import metrics.MetricsRegistry;
+import spark.Route;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
 import static spark.Spark.*;
 
 /**
  * Created by hug.
+ *
+ * Routes registered with a concurrency limit go through the server's AdmissionControl,
+ * which refuses requests with 429 or 503 once the limit is reached.
+ *
+ * Routes registered with a future of their handler are mapped right away but answer 503
+ * with a Retry-After header until the future completes, so the server can take requests
+ * and health checks while its data loads.
+ *
+ * Handlers record their request metrics in the default MetricsRegistry; the server adds
+ * the admission counts and response cache statistics of every route it registers.
  */
 public class NgordnetServer {
+    private static final Logger logger = LoggerFactory.getLogger(NgordnetServer.class);
+    private static final Gson gson = new Gson();
+
+    /* Seconds a client is told to wait before retrying a route whose data is loading. */
+    private static final int LOADING_RETRY_AFTER_SECONDS = 5;
+
+    private final Map<String, NgordnetQueryHandler> handlers = new ConcurrentHashMap<>();
+    private final List<CompletableFuture<?>> pending = new ArrayList<>();
+    private final AdmissionControl admission;
+    private final MetricsRegistry metrics = MetricsRegistry.defaultRegistry();
+    private VirtualThreadPool virtualThreads;
+
+    public NgordnetServer() {
+        this(new AdmissionControl());
+    }
+
+    /**
+     * Constructs a server whose limited routes are admitted by ADMISSION.
+     */
+    public NgordnetServer(AdmissionControl admission) {
+        this.admission = admission;
+    }
+
+    /**
+     * Returns the admission control of the limited routes.
+     */
+    public AdmissionControl admission() {
+        return admission;
+    }
+
+    /**
+     * Makes Jetty run every request on its own virtual thread rather than on its
+     * fixed-size pool. Must be called before startUp() and any register method. Returns
+     * false, changing nothing, if this runtime has no virtual threads (before Java 21).
+     */
+    public boolean useVirtualThreads() {
+        virtualThreads = VirtualThreadPool.create();
+        if (virtualThreads == null) {
+            logger.warn("Virtual threads need Java 21 or later; using Jetty's thread pool");
+            return false;
+        }
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY,
+                new EmbeddedJettyFactory().withThreadPool(virtualThreads));
+        logger.info("Serving requests on virtual threads");
+        return true;
+    }
+
     public void register(String URL, NgordnetQueryHandler nqh) {
         get(URL, nqh);
+        handlers.put(URL, nqh);
+        instrument(URL, nqh);
+    }
+
+    /**
+     * Registers NQH for GET requests to URL, running at most MAXCONCURRENT of them at once.
+     */
+    public void register(String URL, NgordnetQueryHandler nqh, int maxConcurrent) {
+        get(URL, admission.limit(URL, nqh, maxConcurrent));
+        handlers.put(URL, nqh);
+        instrument(URL, nqh);
+        instrument(URL);
+    }
+
+    /**
+     * Registers the handler NQH will complete with for GET requests to URL, running at
+     * most MAXCONCURRENT of them at once. Until NQH completes, requests are answered with
+     * 503; they keep getting 503 if it fails.
+     */
+    public void register(String URL, CompletableFuture<? extends NgordnetQueryHandler> nqh, int maxConcurrent) {
+        CompletableFuture<Route> route = nqh.thenApply(handler -> {
+            handlers.put(URL, handler);
+            instrument(URL, handler);
+            Route limited = admission.limit(URL, handler, maxConcurrent);
+            instrument(URL);
+            return limited;
+        });
+        pending.add(route);
+        get(URL, whenLoaded(URL, route));
+    }
+
+    /**
+     * Registers a POST route that answers a JSON array of queries for the handlers
+     * registered with register(), in parallel on at most THREADS threads. At most THREADS
+     * batches are admitted at once, and each query must be admitted by the limit of its
+     * own route too. Batches are answered with 503 until every handler registered before
+     * this call is loaded.
+     */
+    public BatchHandler registerBatch(String URL, int threads) {
+        BatchHandler batch = new BatchHandler(Collections.unmodifiableMap(handlers), admission, threads);
+        Route limited = admission.limit(URL, batch, threads);
+        instrument(URL);
+        CompletableFuture<Route> route = CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new))
+                .thenApply(loaded -> limited);
+        post(URL, whenLoaded(URL, route));
+        return batch;
+    }
+
+    /**
+     * Registers a route that writes its response to the output stream itself, for both
+     * GET requests and POST requests carrying their input in the body. At most
+     * MAXCONCURRENT of them run at once.
+     */
+    public void registerStreaming(String URL, Route route, int maxConcurrent) {
+        Route limited = admission.limit(URL, route, maxConcurrent);
+        instrument(URL);
+        get(URL, limited);
+        post(URL, limited);
+    }
+
+    /**
+     * Registers the streaming route ROUTE will complete with like registerStreaming(URL,
+     * Route, int), answering 503 until it completes.
+     */
+    public void registerStreaming(String URL, CompletableFuture<? extends Route> route, int maxConcurrent) {
+        Route gated = whenLoaded(URL, route.thenApply(r -> {
+            Route limited = admission.limit(URL, r, maxConcurrent);
+            instrument(URL);
+            return limited;
+        }));
+        get(URL, gated);
+        post(URL, gated);
+    }
+
+    /**
+     * Registers GET /health and GET /ready, answered from READINESS.
+     */
+    public void registerHealth(Readiness readiness) {
+        get("/health", readiness.healthRoute());
+        get("/ready", readiness.readyRoute());
+    }
+
+    /**
+     * Registers GET URL, answering with every metric in the Prometheus text format.
+     */
+    public void registerMetrics(String URL) {
+        get(URL, (request, response) -> {
+            response.type(MetricsRegistry.CONTENT_TYPE);
+            return metrics.scrape();
+        });
+    }
+
+    /**
+     * Exports the statistics of CACHE, labelled with NAME, as ngordnet_cache_* metrics.
+     */
+    public void registerCacheMetrics(String name, BoundedCache<?, ?> cache) {
+        metrics.counter("ngordnet_cache_hits_total", "Lookups answered from an in-memory cache.",
+                () -> cache.stats().hits(), "cache", name);
+        metrics.counter("ngordnet_cache_misses_total", "Lookups that missed an in-memory cache.",
+                () -> cache.stats().misses(), "cache", name);
+        metrics.gauge("ngordnet_cache_hit_ratio", "Fraction of lookups answered from an in-memory cache.",
+                () -> cache.stats().hitRate(), "cache", name);
+        metrics.gauge("ngordnet_cache_bytes", "Bytes held by an in-memory cache.",
+                () -> cache.stats().bytes(), "cache", name);
+    }
+
+    /* Exports the response cache statistics of the handler of URL. */
+    private void instrument(String URL, NgordnetQueryHandler handler) {
+        metrics.counter("ngordnet_response_cache_hits_total", "Requests answered from a response cache.",
+                () -> handler.responseCacheStats().hits(), "route", URL);
+        metrics.counter("ngordnet_response_cache_misses_total", "Requests that missed a response cache.",
+                () -> handler.responseCacheStats().misses(), "route", URL);
+        metrics.gauge("ngordnet_response_cache_bytes", "Bytes held by a response cache.",
+                () -> handler.responseCacheStats().bytes(), "route", URL);
+    }
+
+    /* Exports the admission counts of the limited route URL. */
+    private void instrument(String URL) {
+        AdmissionControl.Limiter limiter = admission.limiters().get(URL);
+        metrics.counter("ngordnet_admitted_total", "Requests admitted by the concurrency limit.",
+                limiter::admitted, "route", URL);
+        metrics.counter("ngordnet_rejected_total", "Requests refused by the concurrency limit.",
+                limiter::rejected, "route", URL);
+    }
+
+    /* Returns a route that answers 503 until ROUTE completes and then delegates to it. */
+    private static Route whenLoaded(String URL, CompletableFuture<? extends Route> route) {
+        return (request, response) -> {
+            if (!route.isDone() || route.isCompletedExceptionally()) {
+                logger.debug("Refusing {} request, its data is not loaded", URL);
+                response.status(503);
+                response.header("Retry-After", Integer.toString(LOADING_RETRY_AFTER_SECONDS));
+                response.type("application/json");
+                return gson.toJson(Map.of("error", route.isDone()
+                        ? "Data for " + URL + " failed to load"
+                        : "Data for " + URL + " is still loading, retry later"));
+            }
+            return route.join().handle(request, response);
+        };
     }
 
     public void startUp() {
@@ -21,4 +233,14 @@ public class NgordnetServer {
             response.header("Access-Control-Allow-Headers", "*");
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Stops the server.
+     */
+    public void shutDown() {
+        stop();
+        if (virtualThreads != null) {
+            virtualThreads.stop();
+        }
+    }
+}
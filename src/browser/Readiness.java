@@ -0,0 +1,192 @@
+package browser;
+
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spark.Route;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
+
+/**
+ * Tracks the datasets the server loads in the background after it has started, so that
+ * it can answer health checks while they load.
+ *
+ * Each dataset is loaded on its own thread by load(), which returns a future of the
+ * loaded data and reports progress from 0 to 1 as the loader goes. The server is live
+ * as long as no dataset failed to load, and ready once every dataset is loaded:
+ *
+ *   GET /health  200 {"status":"UP"}, or 503 {"status":"DOWN"} once a dataset failed
+ *   GET /ready   200 or 503 {"ready":false,"datasets":{"ngrams":{"state":"LOADING",
+ *                "progress":0.42,"seconds":3.1}, ...}}
+ */
+public class Readiness {
+    private static final Logger logger = LoggerFactory.getLogger(Readiness.class);
+    private static final Gson gson = new Gson();
+
+    /**
+     * The states of a dataset.
+     */
+    public enum State { LOADING, READY, FAILED }
+
+    /**
+     * The load state of one dataset. Accepts progress reports from the loader.
+     */
+    public final class Dataset implements DoubleConsumer {
+        private final String name;
+        private final long startNanos = System.nanoTime();
+        private volatile State state = State.LOADING;
+        private volatile double progress;
+        private volatile long endNanos;
+        private volatile String error;
+
+        private Dataset(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Records that FRACTION of the dataset is loaded. Progress never goes backwards,
+         * so loaders reporting from several threads need not coordinate.
+         */
+        @Override
+        public synchronized void accept(double fraction) {
+            progress = Math.max(progress, Math.min(Math.max(fraction, 0), 1));
+        }
+
+        private void ready() {
+            accept(1);
+            endNanos = System.nanoTime();
+            state = State.READY;
+            logger.info("Loaded {} in {} ms", name, (endNanos - startNanos) / 1_000_000);
+        }
+
+        private void failed(Throwable cause) {
+            endNanos = System.nanoTime();
+            error = String.valueOf(cause.getMessage());
+            state = State.FAILED;
+            logger.error("Failed to load {}", name, cause);
+        }
+
+        /** Returns the name of this dataset. */
+        public String name() {
+            return name;
+        }
+
+        /** Returns the state of this dataset. */
+        public State state() {
+            return state;
+        }
+
+        /** Returns the fraction of this dataset loaded so far. */
+        public double progress() {
+            return progress;
+        }
+
+        /** Returns the seconds this dataset took to load, or has been loading for. */
+        public double seconds() {
+            long end = state == State.LOADING ? System.nanoTime() : endNanos;
+            return (end - startNanos) / 1e9;
+        }
+
+        /** Returns why this dataset failed to load, or null if it did not fail. */
+        public String error() {
+            return error;
+        }
+    }
+
+    private final Map<String, Dataset> datasets = new ConcurrentHashMap<>();
+
+    /**
+     * Starts loading the dataset called NAME on a new thread by calling LOADER with a
+     * consumer of its progress, and returns the future of the loaded data.
+     *
+     * @throws IllegalArgumentException if a dataset called NAME is already tracked
+     */
+    public <T> CompletableFuture<T> load(String name, Function<DoubleConsumer, T> loader) {
+        Dataset dataset = new Dataset(name);
+        if (datasets.putIfAbsent(name, dataset) != null) {
+            throw new IllegalArgumentException("Dataset already tracked: " + name);
+        }
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> loader.apply(dataset), task -> {
+            Thread thread = new Thread(task, "load-" + name);
+            thread.setDaemon(true);
+            thread.start();
+        });
+        // Completes only after the state is updated, so /ready never lags a served route.
+        return future.whenComplete((data, failure) -> {
+            if (failure == null) {
+                dataset.ready();
+            } else {
+                dataset.failed(failure instanceof CompletionException ? failure.getCause() : failure);
+            }
+        });
+    }
+
+    /**
+     * Returns the tracked datasets, by name.
+     */
+    public Map<String, Dataset> datasets() {
+        return Map.copyOf(datasets);
+    }
+
+    /**
+     * Returns whether every tracked dataset is loaded.
+     */
+    public boolean isReady() {
+        return datasets.values().stream().allMatch(d -> d.state() == State.READY);
+    }
+
+    /**
+     * Returns whether no tracked dataset failed to load.
+     */
+    public boolean isLive() {
+        return datasets.values().stream().noneMatch(d -> d.state() == State.FAILED);
+    }
+
+    /**
+     * Returns the liveness route.
+     */
+    public Route healthRoute() {
+        return (request, response) -> {
+            boolean live = isLive();
+            response.status(live ? 200 : 503);
+            response.type("application/json");
+            return gson.toJson(Map.of("status", live ? "UP" : "DOWN"));
+        };
+    }
+
+    /**
+     * Returns the readiness route, which reports the state of every dataset.
+     */
+    public Route readyRoute() {
+        return (request, response) -> {
+            boolean ready = isReady();
+            response.status(ready ? 200 : 503);
+            response.type("application/json");
+            return gson.toJson(report(ready));
+        };
+    }
+
+    private Map<String, Object> report(boolean ready) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("ready", ready);
+        Map<String, Object> states = new LinkedHashMap<>();
+        datasets.values().stream().sorted((a, b) -> a.name().compareTo(b.name())).forEach(d -> {
+            Map<String, Object> state = new LinkedHashMap<>();
+            state.put("state", d.state());
+            state.put("progress", Math.round(d.progress() * 1000) / 1000.0);
+            state.put("seconds", Math.round(d.seconds() * 10) / 10.0);
+            if (d.error() != null) {
+                state.put("error", d.error());
+            }
+            states.put(d.name(), state);
+        });
+        body.put("datasets", states);
+        return body;
+    }
+}
@@ -0,0 +1,81 @@
+package browser;
+
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Jetty thread pool that runs every task on a new virtual thread, so that each request
+ * gets its own cheap thread instead of waiting for one of a fixed number.
+ *
+ * Virtual threads need Java 21, while this code is built for Java 17, so the executor
+ * is looked up reflectively and create() returns null on older runtimes. Jetty's
+ * acceptor and selector loops run on virtual threads as well; the JDK compensates for
+ * their blocking calls by temporarily adding a carrier thread.
+ */
+final class VirtualThreadPool implements ThreadPool {
+    private final ExecutorService executor;
+    private final AtomicInteger running = new AtomicInteger();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private VirtualThreadPool(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns a new pool, or null if this runtime has no virtual threads.
+     */
+    static VirtualThreadPool create() {
+        try {
+            Object executor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            return new VirtualThreadPool((ExecutorService) executor);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor", e);
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        running.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        stopped.await();
+    }
+
+    @Override
+    public int getThreads() {
+        return running.get();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+
+    /**
+     * Stops accepting tasks and releases join().
+     */
+    void stop() {
+        executor.shutdown();
+        stopped.countDown();
+    }
+}
@@ -0,0 +1,183 @@
+package cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * A thread-safe cache bounded by the total size of its values in bytes rather than by
+ * entry count, with least-recently-used eviction.
+ *
+ * Every value is weighed once, when it is inserted, by a caller-supplied weigher. When
+ * an insertion takes the total over the budget, the least recently used entries are
+ * evicted until it fits again. A value heavier than the whole budget is returned but
+ * never cached. Entries can also be given a time to live, after which a lookup treats
+ * them as missing. Hits, misses, evictions and expirations are counted for stats().
+ *
+ * Lookups and insertions take a single lock, which is cheap next to the values this
+ * cache is meant for (query results that take milliseconds to compute); loaders run
+ * outside the lock, so a slow computation never blocks hits on other keys.
+ */
+public class BoundedCache<K, V> {
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final ToLongBiFunction<? super K, ? super V> weigher;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    private record Entry<V>(V value, long weight, long insertedAt) { }
+
+    /**
+     * A snapshot of a cache's counters.
+     */
+    public record Stats(long hits, long misses, long evictions, long expirations, int entries,
+                        long bytes, long maxBytes) {
+        /**
+         * Returns the fraction of lookups that were hits, or 0 if there were none.
+         */
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d hits, %,d misses (%.1f%% hit rate), %,d evictions, "
+                            + "%,d expirations, %,d entries, %,d of %,d bytes",
+                    hits, misses, 100 * hitRate(), evictions, expirations, entries, bytes, maxBytes);
+        }
+    }
+
+    /**
+     * Constructs a cache holding at most MAXBYTES bytes of values, as measured by WEIGHER.
+     * Entries never expire.
+     *
+     * @throws IllegalArgumentException if MAXBYTES is negative
+     */
+    public BoundedCache(long maxBytes, ToLongBiFunction<? super K, ? super V> weigher) {
+        this(maxBytes, null, weigher);
+    }
+
+    /**
+     * Constructs a cache holding at most MAXBYTES bytes of values, as measured by WEIGHER,
+     * whose entries expire TTL after they were inserted. A null TTL means never.
+     *
+     * @throws IllegalArgumentException if MAXBYTES is negative or TTL is not positive
+     */
+    public BoundedCache(long maxBytes, Duration ttl, ToLongBiFunction<? super K, ? super V> weigher) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Cache budget cannot be negative: " + maxBytes);
+        }
+        if (ttl != null && (ttl.isNegative() || ttl.isZero())) {
+            throw new IllegalArgumentException("Cache TTL must be positive: " + ttl);
+        }
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttl == null ? Long.MAX_VALUE : ttl.toNanos();
+        this.weigher = weigher;
+    }
+
+    /**
+     * Returns the value cached for KEY, or null if there is none.
+     */
+    public V get(K key) {
+        synchronized (entries) {
+            Entry<V> entry = live(key);
+            if (entry == null) {
+                misses += 1;
+                return null;
+            }
+            hits += 1;
+            return entry.value;
+        }
+    }
+
+    /**
+     * Returns the value cached for KEY, computing it with LOADER and caching it on a miss.
+     * Two threads missing on the same key at once may both compute it; the first result
+     * to be cached wins.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        value = loader.apply(key);
+        if (value == null) {
+            return null;
+        }
+        synchronized (entries) {
+            Entry<V> existing = live(key);
+            if (existing != null) {
+                return existing.value;
+            }
+            insert(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Caches VALUE for KEY, replacing any previous value.
+     */
+    public void put(K key, V value) {
+        synchronized (entries) {
+            insert(key, value);
+        }
+    }
+
+    /* Returns the entry for KEY, dropping it if it has expired. */
+    private Entry<V> live(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && System.nanoTime() - entry.insertedAt >= ttlNanos) {
+            entries.remove(key);
+            bytes -= entry.weight;
+            expirations += 1;
+            return null;
+        }
+        return entry;
+    }
+
+    private void insert(K key, V value) {
+        long weight = weigher.applyAsLong(key, value);
+        Entry<V> previous = entries.remove(key);
+        if (previous != null) {
+            bytes -= previous.weight;
+        }
+        if (weight > maxBytes) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, weight, System.nanoTime()));
+        bytes += weight;
+        Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().getValue().weight;
+            eldest.remove();
+            evictions += 1;
+        }
+    }
+
+    /**
+     * Removes every entry. The counters are kept.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * Returns the current counters.
+     */
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits, misses, evictions, expirations, entries.size(), bytes, maxBytes);
+        }
+    }
+}
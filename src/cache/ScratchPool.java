@@ -0,0 +1,79 @@
+package cache;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A small bounded pool of reusable scratch objects, such as the buffers of an encoder or
+ * a graph traversal, shared by all threads.
+ *
+ * A ThreadLocal only reuses its value if the same thread does the next piece of work;
+ * with a new virtual thread per request, every request would allocate its own. Here a
+ * caller borrows an object, uses it without sharing it, and releases it for whichever
+ * thread comes next. When the pool is empty, borrow() allocates a new object; when it
+ * is full, release() drops the object for the garbage collector, so the pool never holds
+ * more than its capacity however many threads briefly needed one at once.
+ */
+public class ScratchPool<T> {
+    private final ArrayBlockingQueue<T> idle;
+    private final Supplier<? extends T> factory;
+    private final AtomicLong allocated = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+
+    /**
+     * Constructs a pool keeping at most one idle object per available processor, which
+     * is as many as can be in use at once by work that does not block.
+     */
+    public ScratchPool(Supplier<? extends T> factory) {
+        this(Runtime.getRuntime().availableProcessors(), factory);
+    }
+
+    /**
+     * Constructs a pool keeping at most CAPACITY idle objects, allocated by FACTORY.
+     *
+     * @throws IllegalArgumentException if CAPACITY is not positive
+     */
+    public ScratchPool(int capacity, Supplier<? extends T> factory) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pool capacity must be positive: " + capacity);
+        }
+        this.idle = new ArrayBlockingQueue<>(capacity);
+        this.factory = factory;
+    }
+
+    /**
+     * Returns an idle object, or a new one if there is none. The caller must pass it to
+     * release() once done with it.
+     */
+    public T borrow() {
+        T scratch = idle.poll();
+        if (scratch != null) {
+            reused.incrementAndGet();
+            return scratch;
+        }
+        allocated.incrementAndGet();
+        return factory.get();
+    }
+
+    /**
+     * Returns SCRATCH to the pool, or drops it if the pool is full.
+     */
+    public void release(T scratch) {
+        idle.offer(scratch);
+    }
+
+    /**
+     * Returns the number of objects borrow() has allocated.
+     */
+    public long allocated() {
+        return allocated.get();
+    }
+
+    /**
+     * Returns the number of times borrow() handed out an idle object.
+     */
+    public long reused() {
+        return reused.get();
+    }
+}
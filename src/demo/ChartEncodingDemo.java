@@ -0,0 +1,75 @@
+package demo;
+
+import ngrams.NGramMap;
+import ngrams.TimeSeries;
+import org.knowm.xchart.BitmapEncoder;
+import org.knowm.xchart.XYChart;
+import plotting.ChartCache;
+import plotting.PngEncoder;
+import plotting.Plotter;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the throughput of the ways HistoryHandler can produce a chart: ImageIO,
+ * PngEncoder at a few deflate levels, and a ChartCache hit.
+ *
+ * Usage: ChartEncodingDemo [ITERATIONS]
+ */
+public class ChartEncodingDemo {
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        String wordFile = "./data/ngrams/top_14377_words.csv";
+        String countFile = "./data/ngrams/total_counts.csv";
+
+        NGramMap ngm = new NGramMap(wordFile, countFile);
+        List<String> words = List.of("cat", "dog", "horse");
+        List<TimeSeries> lts = new ArrayList<>();
+        for (String word : words) {
+            lts.add(ngm.weightHistory(word, 1900, 2000));
+        }
+        XYChart chart = Plotter.generateTimeSeriesChart(words, lts);
+        BufferedImage image = BitmapEncoder.getBufferedImage(chart);
+
+        time("render only", iterations, () -> BitmapEncoder.getBufferedImage(chart).getWidth());
+        time("ImageIO", iterations, () -> {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", os);
+            return os.size();
+        });
+        for (int level : new int[] {1, 6, 9}) {
+            PngEncoder encoder = new PngEncoder(level);
+            time("PngEncoder level " + level, iterations, () -> encoder.encode(image).length);
+        }
+        time("render + PngEncoder", iterations, () -> Plotter.encodeChartAsPng(chart).length);
+
+        ChartCache cache = new ChartCache(ChartCache.DEFAULT_MEMORY_BYTES);
+        time("ChartCache hit", iterations,
+                () -> cache.png(words, 1900, 2000, () -> Plotter.encodeChartAsPng(chart)).length);
+        System.out.println(cache);
+    }
+
+    private interface Step {
+        int run() throws IOException;
+    }
+
+    /* Runs STEP ITERATIONS times after a warm-up and prints its throughput and output size. */
+    private static void time(String name, int iterations, Step step) throws IOException {
+        for (int i = 0; i < Math.max(10, iterations / 10); i += 1) {
+            step.run();
+        }
+        long start = System.nanoTime();
+        int bytes = 0;
+        for (int i = 0; i < iterations; i += 1) {
+            bytes = step.run();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-22s %10.1f charts/s %9.3f ms/chart %9d bytes%n",
+                name, iterations / seconds, 1000 * seconds / iterations, bytes);
+    }
+}
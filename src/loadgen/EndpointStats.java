@@ -0,0 +1,95 @@
+package loadgen;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The outcomes of the requests sent to one endpoint. Every latency is kept, so that
+ * percentiles are exact rather than estimated from buckets; at 8 bytes a request this
+ * is a few megabytes even for long runs.
+ *
+ * A request counts as an error if it got no response or a status other than 2xx or
+ * 304. Requests the generator could not send because too many were outstanding are
+ * counted as dropped and are errors too: in an open-loop test they mean the server fell
+ * behind the arrival rate.
+ */
+public class EndpointStats {
+    private final String endpoint;
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+    private long dropped;
+    private final Map<Integer, Long> statuses = new TreeMap<>();
+
+    /**
+     * The statistics reported for one endpoint. Latencies are in milliseconds.
+     */
+    public record Summary(String endpoint, long requests, long errors, long dropped, double errorRate,
+                          double throughput, Map<Integer, Long> statuses,
+                          double p50, double p99, double p999, double max, double mean) { }
+
+    /**
+     * Constructs empty statistics for ENDPOINT.
+     */
+    public EndpointStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Records a request that took LATENCYNANOS and got STATUS, or 0 if it got no response.
+     */
+    public synchronized void record(long latencyNanos, int status) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, 2 * count);
+        }
+        latencies[count] = latencyNanos;
+        count += 1;
+        statuses.merge(status, 1L, Long::sum);
+        if (!(status >= 200 && status < 300) && status != 304) {
+            errors += 1;
+        }
+    }
+
+    /**
+     * Records a request that was not sent because too many were outstanding.
+     */
+    public synchronized void drop() {
+        dropped += 1;
+    }
+
+    /**
+     * Returns the statistics so far, with throughput computed over SECONDS.
+     */
+    public synchronized Summary summarize(double seconds) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        long sum = 0;
+        for (long latency : sorted) {
+            sum += latency;
+        }
+        long attempts = count + dropped;
+        return new Summary(endpoint, attempts, errors + dropped, dropped,
+                attempts == 0 ? 0 : (double) (errors + dropped) / attempts,
+                count / seconds, Map.copyOf(statuses),
+                millis(percentile(sorted, 0.5)), millis(percentile(sorted, 0.99)),
+                millis(percentile(sorted, 0.999)), millis(count == 0 ? 0 : sorted[count - 1]),
+                count == 0 ? 0 : millis(sum / count));
+    }
+
+    /**
+     * Returns the Q percentile of the ascending SORTED values by the nearest-rank method,
+     * or 0 if there are none.
+     */
+    static long percentile(long[] sorted, double q) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(q * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1e3) / 1e3;
+    }
+}
@@ -0,0 +1,276 @@
+package loadgen;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives load against a running Ngordnet server and reports throughput, latency
+ * percentiles and error rates per endpoint.
+ *
+ * The generator is open-loop: requests are sent at their scheduled arrival times
+ * whether or not earlier ones have been answered, as independent users would send
+ * them, and each latency is measured from the scheduled time rather than from when the
+ * request actually went out. A server that falls behind therefore shows up as growing
+ * latencies instead of quietly lowering the offered load (coordinated omission).
+ * Arrivals are a Poisson process by default, or evenly spaced with --constant.
+ *
+ * Usage: LoadGenerator [OPTIONS]
+ *   --url URL             server to load (default http://localhost:4567)
+ *   --rate N              requests per second (default 50)
+ *   --duration SECONDS    how long to send requests (default 30)
+ *   --log FILE            replay the requests of a query log (see ReplayWorkload)
+ *   --mix MIX             synthetic endpoint mix (default history=1,historytext=4,hyponyms=2)
+ *   --words FILE          vocabulary of synthetic queries (default the 14377 word file)
+ *   --skew S              Zipf exponent of word choice, 0 for uniform (default 1)
+ *   --max-words N         words per synthetic query, at most (default 3)
+ *   --k LIST              k values of synthetic queries (default 0,5)
+ *   --max-in-flight N     outstanding requests before new ones are dropped (default 1000)
+ *   --timeout SECONDS     per-request timeout (default 10)
+ *   --constant            evenly spaced instead of Poisson arrivals
+ *   --seed N              random seed (default 42)
+ *   --start               start main.Main in a child JVM and wait until /ready
+ *   --report FILE         where to write the JSON report (default standard output)
+ */
+public class LoadGenerator {
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static final Duration READY_TIMEOUT = Duration.ofMinutes(5);
+
+    /**
+     * The settings of a run.
+     */
+    public record Options(URI baseUrl, double rate, Duration duration, boolean poisson,
+                          int maxInFlight, Duration timeout, long seed) {
+        public Options {
+            if (!(rate > 0) || duration.isNegative() || maxInFlight <= 0) {
+                throw new IllegalArgumentException("Bad rate " + rate + ", duration " + duration
+                        + " or in-flight limit " + maxInFlight);
+            }
+        }
+
+        /* The settings as plain values, for the report. */
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("url", baseUrl.toString());
+            map.put("rate", rate);
+            map.put("durationSeconds", duration.toMillis() / 1000.0);
+            map.put("arrivals", poisson ? "poisson" : "constant");
+            map.put("maxInFlight", maxInFlight);
+            map.put("timeoutSeconds", timeout.toMillis() / 1000.0);
+            map.put("seed", seed);
+            return map;
+        }
+    }
+
+    /**
+     * The result of a run, per endpoint and over all endpoints.
+     */
+    public record Report(Map<String, Object> options, double seconds, long requests, double throughput,
+                         EndpointStats.Summary total, Map<String, EndpointStats.Summary> endpoints) {
+        /** Returns this report as JSON. */
+        public String toJson() {
+            return gson.toJson(this);
+        }
+    }
+
+    private final HttpClient client;
+
+    /**
+     * Constructs a load generator with its own HTTP/1.1 client.
+     */
+    public LoadGenerator() {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    /**
+     * Sends the requests of WORKLOAD as OPTIONS say and returns the report, once every
+     * request has been answered or timed out.
+     */
+    public Report run(Workload workload, Options options) throws InterruptedException {
+        Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+        EndpointStats total = new EndpointStats("total");
+        Semaphore inFlight = new Semaphore(options.maxInFlight());
+        Random random = new Random(options.seed());
+        long meanGapNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.rate());
+
+        long start = System.nanoTime();
+        long end = start + options.duration().toNanos();
+        long scheduled = start;
+        long requests = 0;
+        while (scheduled < end) {
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            String path = workload.nextPath(random);
+            EndpointStats endpoint = stats.computeIfAbsent(Workload.endpointOf(path), EndpointStats::new);
+            requests += 1;
+            if (!inFlight.tryAcquire()) {
+                endpoint.drop();
+                total.drop();
+            } else {
+                long intended = scheduled;
+                HttpRequest request = HttpRequest.newBuilder(options.baseUrl().resolve(path))
+                        .timeout(options.timeout()).GET().build();
+                client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                    long latency = System.nanoTime() - intended;
+                    int status = failure == null ? response.statusCode() : 0;
+                    endpoint.record(latency, status);
+                    total.record(latency, status);
+                    inFlight.release();
+                });
+            }
+            scheduled += options.poisson()
+                    ? (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos)
+                    : meanGapNanos;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // Wait for the stragglers; the timeout bounds how long any of them can take.
+        inFlight.tryAcquire(options.maxInFlight(), options.timeout().toNanos() + TimeUnit.SECONDS.toNanos(1),
+                TimeUnit.NANOSECONDS);
+
+        Map<String, EndpointStats.Summary> summaries = new LinkedHashMap<>();
+        stats.keySet().stream().sorted().forEach(name -> summaries.put(name, stats.get(name).summarize(seconds)));
+        return new Report(options.toMap(), Math.round(seconds * 1000) / 1000.0, requests,
+                Math.round(requests / seconds * 10) / 10.0, total.summarize(seconds), summaries);
+    }
+
+    /**
+     * Waits until GET /ready on BASEURL answers 200, polling every half second.
+     *
+     * @throws IllegalStateException if it does not within TIMEOUT
+     */
+    public void awaitReady(URI baseUrl, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        HttpRequest ready = HttpRequest.newBuilder(baseUrl.resolve("/ready")).timeout(Duration.ofSeconds(5)).build();
+        while (System.nanoTime() < deadline) {
+            try {
+                if (client.send(ready, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet.
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException(baseUrl + " was not ready within " + timeout);
+    }
+
+    /* Starts main.Main in a child JVM with this JVM's class path. */
+    private static Process startServer() throws IOException {
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        return new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"), "main.Main")
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> flags = parseFlags(args);
+        URI baseUrl = URI.create(flags.getOrDefault("url", "http://localhost:4567"));
+        Options options = new Options(baseUrl,
+                Double.parseDouble(flags.getOrDefault("rate", "50")),
+                Duration.ofMillis((long) (Double.parseDouble(flags.getOrDefault("duration", "30")) * 1000)),
+                !flags.containsKey("constant"),
+                Integer.parseInt(flags.getOrDefault("max-in-flight", "1000")),
+                Duration.ofMillis((long) (Double.parseDouble(flags.getOrDefault("timeout", "10")) * 1000)),
+                Long.parseLong(flags.getOrDefault("seed", "42")));
+
+        Workload workload;
+        if (flags.containsKey("log")) {
+            workload = ReplayWorkload.read(Path.of(flags.get("log")));
+        } else {
+            int[] ks = Arrays.stream(flags.getOrDefault("k", "0,5").split(","))
+                    .mapToInt(k -> Integer.parseInt(k.trim())).toArray();
+            workload = new SyntheticWorkload(
+                    SyntheticWorkload.parseMix(flags.getOrDefault("mix", "history=1,historytext=4,hyponyms=2")),
+                    SyntheticWorkload.readVocabulary(Path.of(flags.getOrDefault("words",
+                            "data/ngrams/top_14377_words.csv"))),
+                    Double.parseDouble(flags.getOrDefault("skew", "1")),
+                    Integer.parseInt(flags.getOrDefault("max-words", "3")), ks);
+        }
+
+        LoadGenerator generator = new LoadGenerator();
+        Process server = null;
+        try {
+            if (flags.containsKey("start")) {
+                server = startServer();
+                generator.awaitReady(baseUrl, READY_TIMEOUT);
+            }
+            Report report = generator.run(workload, options);
+            if (flags.containsKey("report")) {
+                Files.writeString(Path.of(flags.get("report")), report.toJson());
+            } else {
+                System.out.println(report.toJson());
+            }
+            printSummary(report);
+        } finally {
+            if (server != null) {
+                server.destroy();
+            }
+        }
+    }
+
+    /* Parses --name value pairs, and --name alone for the flags that take no value. */
+    private static Map<String, String> parseFlags(String[] args) {
+        List<String> switches = List.of("constant", "start");
+        Map<String, String> flags = new LinkedHashMap<>();
+        List<String> rest = new ArrayList<>(Arrays.asList(args));
+        while (!rest.isEmpty()) {
+            String arg = rest.remove(0);
+            if (!arg.startsWith("--")) {
+                usage("Unexpected argument: " + arg);
+            }
+            String name = arg.substring(2);
+            if (switches.contains(name)) {
+                flags.put(name, "true");
+            } else if (rest.isEmpty()) {
+                usage("Missing value for " + arg);
+            } else {
+                flags.put(name, rest.remove(0));
+            }
+        }
+        return flags;
+    }
+
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("Usage: LoadGenerator [--url URL] [--rate N] [--duration SECONDS] [--log FILE | --mix MIX"
+                + " --words FILE --skew S --max-words N --k LIST] [--max-in-flight N] [--timeout SECONDS]"
+                + " [--constant] [--seed N] [--start] [--report FILE]");
+        System.exit(2);
+    }
+
+    private static void printSummary(Report report) {
+        System.err.printf("%,d requests in %.1f s (%.1f/s)%n", report.requests(), report.seconds(),
+                report.throughput());
+        List<EndpointStats.Summary> rows = new ArrayList<>(report.endpoints().values());
+        rows.add(report.total());
+        for (EndpointStats.Summary s : rows) {
+            System.err.printf("%-12s %8d req  %6.2f%% errors  p50 %8.2f ms  p99 %8.2f ms  p999 %8.2f ms%n",
+                    s.endpoint(), s.requests(), 100 * s.errorRate(), s.p50(), s.p99(), s.p999());
+        }
+    }
+}
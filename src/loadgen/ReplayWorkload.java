@@ -0,0 +1,83 @@
+package loadgen;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Replays a recorded query log, one request per line, in order and from the top again
+ * once it runs out. A line is a request path with its query string, optionally preceded
+ * by "GET " and followed by anything after a space, so access log excerpts work once
+ * trimmed to the request line:
+ *
+ *   /hyponyms?words=dog&startYear=1900&endYear=2020&k=5
+ *   GET /historytext?words=cat,dog&startYear=1950&endYear=2000 HTTP/1.1
+ *
+ * Blank lines and lines starting with # are skipped. Only the order of the requests is
+ * replayed; when they are sent is up to the load generator's arrival rate.
+ */
+public class ReplayWorkload implements Workload {
+    private final List<String> paths;
+    private int next;
+
+    /**
+     * Constructs a workload replaying PATHS.
+     *
+     * @throws IllegalArgumentException if PATHS is empty
+     */
+    public ReplayWorkload(List<String> paths) {
+        if (paths.isEmpty()) {
+            throw new IllegalArgumentException("Query log is empty");
+        }
+        this.paths = List.copyOf(paths);
+    }
+
+    /**
+     * Reads the query log LOGFILE.
+     *
+     * @throws IllegalArgumentException if LOGFILE cannot be read or holds no requests
+     */
+    public static ReplayWorkload read(Path logFile) {
+        List<String> paths = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(logFile)) {
+                String path = parseLine(line);
+                if (path != null) {
+                    paths.add(path);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read " + logFile, e);
+        }
+        return new ReplayWorkload(paths);
+    }
+
+    /* Returns the request path on LINE, or null if it holds none. */
+    static String parseLine(String line) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return null;
+        }
+        if (trimmed.startsWith("GET ")) {
+            trimmed = trimmed.substring(4).trim();
+        }
+        int space = trimmed.indexOf(' ');
+        String path = space < 0 ? trimmed : trimmed.substring(0, space);
+        return path.startsWith("/") ? path : "/" + path;
+    }
+
+    @Override
+    public synchronized String nextPath(Random random) {
+        String path = paths.get(next);
+        next = (next + 1) % paths.size();
+        return path;
+    }
+
+    /** Returns the number of requests in the log. */
+    public int size() {
+        return paths.size();
+    }
+}
@@ -0,0 +1,151 @@
+package loadgen;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Makes up queries for a weighted mix of endpoints, such as history=1,historytext=4,
+ * hyponyms=2. Each query asks about 1 to maxWords words drawn from a vocabulary, either
+ * uniformly or, with a positive skew, following a Zipf distribution over the words in
+ * vocabulary order, so that a few words are asked about most of the time as in real
+ * traffic. Start years are uniform in [1900, 2000), end years uniform between the start
+ * year and 2019, and k is drawn from a given list.
+ */
+public class SyntheticWorkload implements Workload {
+    private static final int FIRST_YEAR = 1900;
+    private static final int LAST_START_YEAR = 2000;
+    private static final int LAST_YEAR = 2019;
+
+    private final String[] endpoints;
+    private final double[] endpointCumulative;
+    private final List<String> vocabulary;
+    private final double[] wordCumulative;
+    private final int maxWords;
+    private final int[] ks;
+
+    /**
+     * Constructs a workload sending requests to the endpoints of MIX in proportion to
+     * their weights, about words of VOCABULARY drawn with Zipf exponent SKEW (0 for
+     * uniform), with 1 to MAXWORDS words and a k from KS per query.
+     *
+     * @throws IllegalArgumentException if MIX or VOCABULARY or KS is empty, a weight or
+     *                                  SKEW is negative, or MAXWORDS is not positive
+     */
+    public SyntheticWorkload(Map<String, Double> mix, List<String> vocabulary, double skew, int maxWords, int[] ks) {
+        if (mix.isEmpty() || vocabulary.isEmpty() || ks.length == 0) {
+            throw new IllegalArgumentException("Mix, vocabulary and k values cannot be empty");
+        }
+        if (skew < 0 || maxWords <= 0) {
+            throw new IllegalArgumentException("Bad skew " + skew + " or word count " + maxWords);
+        }
+        this.endpoints = mix.keySet().toArray(new String[0]);
+        double[] weights = new double[endpoints.length];
+        for (int i = 0; i < endpoints.length; i += 1) {
+            weights[i] = mix.get(endpoints[i]);
+            if (!(weights[i] >= 0)) {
+                throw new IllegalArgumentException("Bad weight for " + endpoints[i] + ": " + weights[i]);
+            }
+        }
+        this.endpointCumulative = cumulative(weights);
+        this.vocabulary = List.copyOf(vocabulary);
+        double[] wordWeights = new double[vocabulary.size()];
+        for (int rank = 0; rank < wordWeights.length; rank += 1) {
+            wordWeights[rank] = 1 / Math.pow(rank + 1, skew);
+        }
+        this.wordCumulative = cumulative(wordWeights);
+        this.maxWords = maxWords;
+        this.ks = ks.clone();
+    }
+
+    /**
+     * Parses a mix such as "history=1,historytext=4,hyponyms=2".
+     *
+     * @throws IllegalArgumentException if MIX is malformed
+     */
+    public static Map<String, Double> parseMix(String mix) {
+        Map<String, Double> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            try {
+                weights.put(parts[0].trim(), parts.length > 1 ? Double.parseDouble(parts[1].trim()) : 1);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad mix entry: " + entry, e);
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Returns the distinct words of WORDSFILE in file order, taking the first
+     * tab-separated field of each line, so both ngram words files and plain word lists
+     * work.
+     *
+     * @throws UncheckedIOException if WORDSFILE cannot be read
+     */
+    public static List<String> readVocabulary(Path wordsFile) {
+        try (Stream<String> lines = Files.lines(wordsFile)) {
+            return lines.map(line -> {
+                int tab = line.indexOf('\t');
+                return (tab < 0 ? line : line.substring(0, tab)).trim();
+            }).filter(word -> !word.isEmpty()).distinct().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double[] sums = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i += 1) {
+            sum += weights[i];
+            sums[i] = sum;
+        }
+        if (!(sum > 0)) {
+            throw new IllegalArgumentException("Weights must not all be 0");
+        }
+        return sums;
+    }
+
+    /* Returns an index drawn with probability proportional to its weight: the first one
+     * whose cumulative weight exceeds a uniform target. */
+    private static int draw(double[] cumulative, Random random) {
+        double target = random.nextDouble() * cumulative[cumulative.length - 1];
+        int lo = 0;
+        int hi = cumulative.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cumulative[mid] > target) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    @Override
+    public String nextPath(Random random) {
+        String endpoint = endpoints[draw(endpointCumulative, random)];
+        int count = 1 + random.nextInt(maxWords);
+        List<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i += 1) {
+            words.add(vocabulary.get(draw(wordCumulative, random)));
+        }
+        int startYear = FIRST_YEAR + random.nextInt(LAST_START_YEAR - FIRST_YEAR);
+        int endYear = startYear + random.nextInt(LAST_YEAR - startYear + 1);
+        int k = ks[random.nextInt(ks.length)];
+        return "/" + endpoint + "?words=" + URLEncoder.encode(String.join(",", words), StandardCharsets.UTF_8)
+                + "&startYear=" + startYear + "&endYear=" + endYear + "&k=" + k;
+    }
+}
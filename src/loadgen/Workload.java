@@ -0,0 +1,30 @@
+package loadgen;
+
+import java.util.Random;
+
+/**
+ * A source of requests for the load generator. Each request is the path and query
+ * string of a GET request, such as "/hyponyms?words=dog&startYear=1900&endYear=2020&k=5".
+ */
+public interface Workload {
+    /**
+     * Returns the next request to send, drawing any random choices from RANDOM.
+     */
+    String nextPath(Random random);
+
+    /**
+     * Returns the endpoint PATH is sent to: its first path segment, without the query.
+     */
+    static String endpointOf(String path) {
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.length();
+        for (int i = start; i < path.length(); i += 1) {
+            char c = path.charAt(i);
+            if (c == '/' || c == '?') {
+                end = i;
+                break;
+            }
+        }
+        return path.substring(start, end);
+    }
+}
@@ -36,8 +36,9 @@ public class AutograderBuddy {
             logger.debug("Creating HyponymsHandler with files: wordFile={}, countFile={}, synsetFile={}, hyponymFile={}", 
                         wordFile, countFile, synsetFile, hyponymFile);
             
-            NGramMap ngm = new NGramMap(wordFile, countFile);
-            WordnetGraph wordnetGraph = new WordnetGraph(synsetFile, hyponymFile);
+            NGramMap ngm = Snapshots.ngramMap(wordFile, countFile);
+            WordnetGraph wordnetGraph = Snapshots.wordnetGraph(synsetFile, hyponymFile);
+            wordnetGraph.buildReachabilityIndex();
             return new HyponymsHandler(wordnetGraph, ngm);
             
         } catch (Exception e) {
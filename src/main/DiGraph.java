@@ -1,91 +1,287 @@
 package main;
 
-import edu.princeton.cs.algs4.Bag;
+import cache.ScratchPool;
+
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
  * A directed graph implementation for representing WordNet relationships.
- * Supports edge addition and path finding operations.
+ * Supports path finding operations.
+ *
+ * The graph is frozen and stored in compressed sparse row form: the targets of the
+ * edges leaving vertex v are targets[offsets[v]] .. targets[offsets[v + 1] - 1]. An edge
+ * costs 4 bytes and iterating over a vertex's edges is a sequential array read. Use
+ * DiGraph.Builder to assemble one.
  */
 public class DiGraph {
-    private final Bag<Integer>[] adjacencyLists;
+    private final int[] offsets;
+    private final int[] targets;
     private final int vertexCount;
+    private final ScratchPool<Traversal> traversals = new ScratchPool<>(Traversal::new);
 
     /**
-     * Constructs a new directed graph with the specified number of vertices.
-     * 
-     * @param vertexCount the number of vertices in the graph
-     * @throws IllegalArgumentException if vertexCount is negative
+     * Scratch space for traversals, pooled so that a traversal allocates nothing.
+     * A vertex counts as visited if its mark equals the current epoch; starting a new
+     * traversal just bumps the epoch instead of clearing the marks.
      */
+    private final class Traversal {
+        final int[] marks = new int[vertexCount];
+        final int[] stack = new int[vertexCount];
+        int epoch;
 
-    public DiGraph(int vertexCount) {
-        if (vertexCount < 0) {
-            throw new IllegalArgumentException("Vertex count cannot be negative: " + vertexCount);
+        int nextEpoch() {
+            epoch += 1;
+            if (epoch == 0) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+    }
+
+    /**
+     * Constructs a graph directly from its CSR arrays, for example ones read back from a
+     * snapshot. OFFSETS has one entry per vertex plus a final one holding the edge count.
+     *
+     * @param offsets where each vertex's edges start in targets
+     * @param targets the target vertex of every edge, grouped by source vertex
+     * @throws IllegalArgumentException if the arrays are inconsistent
+     */
+    DiGraph(int[] offsets, int[] targets) {
+        if (offsets.length == 0 || offsets[0] != 0 || offsets[offsets.length - 1] != targets.length) {
+            throw new IllegalArgumentException("Inconsistent adjacency arrays");
         }
-        
-        this.vertexCount = vertexCount;
-        this.adjacencyLists = (Bag<Integer>[]) new Bag[vertexCount];
-        
-        // Initialize adjacency lists
-        for (int vertex = 0; vertex < vertexCount; vertex++) {
-            adjacencyLists[vertex] = new Bag<>();
+        this.vertexCount = offsets.length - 1;
+        for (int v = 0; v < vertexCount; v += 1) {
+            if (offsets[v] > offsets[v + 1]) {
+                throw new IllegalArgumentException("Inconsistent adjacency arrays at vertex " + v);
+            }
+        }
+        for (int w : targets) {
+            if (w < 0 || w >= vertexCount) {
+                throw new IllegalArgumentException("Edge target out of range: " + w);
+            }
         }
+        this.offsets = offsets;
+        this.targets = targets;
     }
 
     /**
-     * Adds a directed edge from vertex v to vertex w.
-     * 
-     * @param v the source vertex
-     * @param w the target vertex
+     * Collects edges in any order and freezes them into a DiGraph. Edges are kept in
+     * two parallel int arrays and grouped by source vertex with a counting pass and a
+     * placement pass when build() is called.
      */
-    public void addEdge(int v, int w) {
-        adjacencyLists[v].add(w);
+    public static class Builder {
+        private final int vertexCount;
+        private int[] sources = new int[1024];
+        private int[] edgeTargets = new int[1024];
+        private int edgeCount;
+
+        /**
+         * Constructs a builder for a graph with the specified number of vertices.
+         *
+         * @param vertexCount the number of vertices in the graph
+         * @throws IllegalArgumentException if vertexCount is negative
+         */
+        public Builder(int vertexCount) {
+            if (vertexCount < 0) {
+                throw new IllegalArgumentException("Vertex count cannot be negative: " + vertexCount);
+            }
+            this.vertexCount = vertexCount;
+        }
+
+        /**
+         * Adds a directed edge from vertex v to vertex w.
+         *
+         * @param v the source vertex
+         * @param w the target vertex
+         * @throws IllegalArgumentException if either vertex is out of range
+         */
+        public Builder addEdge(int v, int w) {
+            if (v < 0 || v >= vertexCount || w < 0 || w >= vertexCount) {
+                throw new IllegalArgumentException("Edge " + v + " -> " + w + " out of range for "
+                        + vertexCount + " vertices");
+            }
+            if (edgeCount == sources.length) {
+                sources = Arrays.copyOf(sources, edgeCount * 2);
+                edgeTargets = Arrays.copyOf(edgeTargets, edgeCount * 2);
+            }
+            sources[edgeCount] = v;
+            edgeTargets[edgeCount] = w;
+            edgeCount += 1;
+            return this;
+        }
+
+        /**
+         * Returns the finished graph. Each vertex's edges keep the order they were added in.
+         */
+        public DiGraph build() {
+            int[] offsets = new int[vertexCount + 1];
+            for (int e = 0; e < edgeCount; e += 1) {
+                offsets[sources[e] + 1] += 1;
+            }
+            for (int v = 0; v < vertexCount; v += 1) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] targets = new int[edgeCount];
+            int[] next = Arrays.copyOf(offsets, vertexCount);
+            for (int e = 0; e < edgeCount; e += 1) {
+                targets[next[sources[e]]++] = edgeTargets[e];
+            }
+            return new DiGraph(offsets, targets);
+        }
     }
 
     /**
      * Returns an iterable of vertices adjacent to the specified vertex.
-     * 
+     * Prefer edgeStart, edgeEnd and edgeTarget, which do not box.
+     *
      * @param vertex the vertex to get adjacent vertices for
      * @return an iterable of adjacent vertices
      */
     public Iterable<Integer> getAdjacentVertices(int vertex) {
-        return adjacencyLists[vertex];
+        return () -> new Iterator<>() {
+            private int edge = offsets[vertex];
+
+            @Override
+            public boolean hasNext() {
+                return edge < offsets[vertex + 1];
+            }
+
+            @Override
+            public Integer next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return targets[edge++];
+            }
+        };
+    }
+
+    /**
+     * Returns the index of the first edge leaving the specified vertex.
+     *
+     * @param vertex the source vertex
+     * @return the index of its first edge
+     */
+    public int edgeStart(int vertex) {
+        return offsets[vertex];
+    }
+
+    /**
+     * Returns the index just past the last edge leaving the specified vertex.
+     *
+     * @param vertex the source vertex
+     * @return the end of its edge range
+     */
+    public int edgeEnd(int vertex) {
+        return offsets[vertex + 1];
+    }
+
+    /**
+     * Returns the target vertex of the specified edge.
+     *
+     * @param edge an edge index in [edgeStart(v), edgeEnd(v)) for some v
+     * @return the vertex the edge points to
+     */
+    public int edgeTarget(int edge) {
+        return targets[edge];
     }
 
     /**
      * Returns all vertices reachable from the specified vertex.
-     * 
+     * Prefer addReachableVertices, which does not box the results.
+     *
      * @param sourceVertex the starting vertex
      * @return a set of all reachable vertices
      */
     public Set<Integer> getReachableVertices(int sourceVertex) {
+        BitSet reachable = new BitSet(vertexCount);
+        addReachableVertices(sourceVertex, reachable);
         Set<Integer> reachableVertices = new HashSet<>();
-        traverseGraph(reachableVertices, sourceVertex);
+        for (int v = reachable.nextSetBit(0); v >= 0; v = reachable.nextSetBit(v + 1)) {
+            reachableVertices.add(v);
+        }
         return reachableVertices;
     }
 
     /**
-     * Performs depth-first traversal to find all reachable vertices.
-     * 
-     * @param visitedVertices set to track visited vertices
-     * @param currentVertex the current vertex being visited
+     * Sets the bit of every vertex reachable from the specified vertex, including the
+     * vertex itself, in the given bitmap.
+     *
+     * The traversal is an iterative depth-first search on an explicit int stack, so deep
+     * chains cannot overflow the call stack, and its visit marks live in a buffer reused
+     * by later traversals on any thread.
+     *
+     * @param sourceVertex the starting vertex
+     * @param reachable the bitmap to add the reachable vertices to
      */
-    private void traverseGraph(Set<Integer> visitedVertices, int currentVertex) {
-        visitedVertices.add(currentVertex);
-        for (int adjacentVertex : adjacencyLists[currentVertex]) {
-            if (!visitedVertices.contains(adjacentVertex)) {
-                traverseGraph(visitedVertices, adjacentVertex);
+    public void addReachableVertices(int sourceVertex, BitSet reachable) {
+        Traversal traversal = traversals.borrow();
+        try {
+            traverse(sourceVertex, reachable, traversal);
+        } finally {
+            traversals.release(traversal);
+        }
+    }
+
+    private void traverse(int sourceVertex, BitSet reachable, Traversal traversal) {
+        int[] marks = traversal.marks;
+        int[] stack = traversal.stack;
+        int epoch = traversal.nextEpoch();
+
+        int size = 0;
+        stack[size++] = sourceVertex;
+        marks[sourceVertex] = epoch;
+        while (size > 0) {
+            int currentVertex = stack[--size];
+            reachable.set(currentVertex);
+            for (int e = offsets[currentVertex]; e < offsets[currentVertex + 1]; e += 1) {
+                int adjacentVertex = targets[e];
+                if (marks[adjacentVertex] != epoch) {
+                    marks[adjacentVertex] = epoch;
+                    stack[size++] = adjacentVertex;
+                }
             }
         }
     }
 
+    /**
+     * Returns the pool of scratch space traversals borrow from, for its allocation counts.
+     */
+    public ScratchPool<?> traversals() {
+        return traversals;
+    }
+
     /**
      * Returns the number of vertices in this graph.
-     * 
+     *
      * @return the vertex count
      */
     public int getVertexCount() {
         return vertexCount;
     }
+
+    /**
+     * Returns the number of edges in this graph.
+     *
+     * @return the edge count
+     */
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Returns the approximate heap used by the adjacency arrays, in bytes.
+     *
+     * @return the size of the offsets and targets arrays
+     */
+    public long memoryBytes() {
+        return 4L * (offsets.length + targets.length);
+    }
 }
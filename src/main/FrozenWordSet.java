@@ -0,0 +1,88 @@
+package main;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable set of words, kept as a sorted array. Iteration is in alphabetical order
+ * and contains() is a binary search. Any attempt to modify the set throws an
+ * UnsupportedOperationException, so one instance can safely be shared between callers,
+ * for example through a cache.
+ */
+public final class FrozenWordSet extends AbstractSet<String> {
+    /** The empty set. */
+    public static final FrozenWordSet EMPTY = new FrozenWordSet(new String[0]);
+
+    private final String[] words;
+
+    private FrozenWordSet(String[] words) {
+        this.words = words;
+    }
+
+    /**
+     * Returns a FrozenWordSet holding the distinct elements of WORDS.
+     */
+    public static FrozenWordSet of(Collection<String> words) {
+        String[] sorted = words.toArray(new String[0]);
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i += 1) {
+            if (size == 0 || !sorted[i].equals(sorted[size - 1])) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return size == 0 ? EMPTY : new FrozenWordSet(Arrays.copyOf(sorted, size));
+    }
+
+    /**
+     * Returns a FrozenWordSet holding WORDS, which must be distinct and in alphabetical
+     * order. The array is kept, not copied.
+     */
+    static FrozenWordSet ofSorted(String[] words) {
+        return words.length == 0 ? EMPTY : new FrozenWordSet(words);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof String word && Arrays.binarySearch(words, word) >= 0;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < words.length;
+            }
+
+            @Override
+            public String next() {
+                if (next == words.length) {
+                    throw new NoSuchElementException();
+                }
+                return words[next++];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return words.length;
+    }
+
+    /**
+     * Returns an estimate of the heap used by this set, including its Strings.
+     */
+    public long memoryBytes() {
+        long bytes = 16 + 16 + 4L * words.length;
+        for (String word : words) {
+            bytes += 40 + word.length();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,111 @@
+package main;
+
+import browser.NgordnetQuery;
+import browser.NgordnetQueryHandler;
+import com.google.gson.stream.JsonWriter;
+import ngrams.NGramMap;
+import ngrams.NGramStore;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handler for history queries that returns the data behind a history chart rather than
+ * a rendered image, so that the browser draws the chart itself.
+ *
+ * The response is columnar JSON with one shared years array and one array of relative
+ * frequencies per word, in the order the words were asked for:
+ *
+ *   {"years":[1900,1901],"words":["cat","dog"],"weights":[[1.2E-5,null],[3.4E-5,3.5E-5]]}
+ *
+ * Years run from the first to the last year in the query range for which any of the
+ * words has a record. A word without a record for a year, or a year without a total
+ * count, gets null. Words that are not in the data files are left out. Weights are
+ * sent with float precision, which is plenty for a chart and about half as long as
+ * doubles.
+ */
+public class HistoryDataHandler extends NgordnetQueryHandler {
+    private final NGramMap ngramMap;
+
+    /**
+     * Constructs a new HistoryDataHandler with the specified NGram map.
+     *
+     * @param ngramMap the NGram map containing word frequency data
+     */
+    public HistoryDataHandler(NGramMap ngramMap) {
+        this.ngramMap = ngramMap;
+    }
+
+    /**
+     * Returns the columnar JSON for the query as a string.
+     *
+     * @param query the NgordnetQuery containing words and year range
+     * @return the JSON document
+     */
+    @Override
+    public String handle(NgordnetQuery query) {
+        StringWriter json = new StringWriter();
+        try (JsonWriter out = new JsonWriter(json)) {
+            writeJson(query, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return json.toString();
+    }
+
+    /**
+     * Streams the columnar JSON for the query to OUT, reading the weights into one
+     * primitive array per word.
+     */
+    @Override
+    protected void writeJson(NgordnetQuery query, JsonWriter out) throws IOException {
+        NGramStore store = ngramMap.store();
+        List<String> words = new ArrayList<>();
+        int from = Integer.MAX_VALUE;
+        int to = Integer.MIN_VALUE;
+        for (String word : query.words()) {
+            int id = store.wordId(word);
+            if (id < 0 || words.contains(word)) {
+                continue;
+            }
+            int first = Math.max(query.startYear(), store.firstYear(id));
+            int last = Math.min(query.endYear(), store.lastYear(id));
+            if (first <= last) {
+                words.add(word);
+                from = Math.min(from, first);
+                to = Math.max(to, last);
+            }
+        }
+
+        out.beginObject();
+        out.name("years").beginArray();
+        for (int year = from; year <= to; year += 1) {
+            out.value(year);
+        }
+        out.endArray();
+        out.name("words").beginArray();
+        for (String word : words) {
+            out.value(word);
+        }
+        out.endArray();
+        out.name("weights").beginArray();
+        double[] weights = new double[Math.max(0, to - from + 1)];
+        for (String word : words) {
+            ngramMap.weightHistoryInto(word, from, weights);
+            out.beginArray();
+            for (double weight : weights) {
+                if (!Double.isFinite(weight)) {
+                    out.nullValue();
+                } else {
+                    out.jsonValue(Float.toString((float) weight));
+                }
+            }
+            out.endArray();
+        }
+        out.endArray();
+        out.endObject();
+    }
+}
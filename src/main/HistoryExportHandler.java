@@ -0,0 +1,259 @@
+package main;
+
+import browser.NgordnetQueryHandler;
+import com.google.gson.stream.JsonWriter;
+import ngrams.NGramMap;
+import ngrams.NGramStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Handler for bulk exports of word histories, for clients that want the raw numbers of
+ * thousands of words at once.
+ *
+ * Words come from the "words" parameter of a GET request, or from the body of a POST
+ * request, separated by commas or newlines. Each word is looked up as it is read and its
+ * history written straight to the response stream, which is flushed every FLUSH_EVERY
+ * words. No output is collected along the way, so the memory an export needs does not
+ * grow with its size. (Spark buffers a POST body before the handler runs, but a list of
+ * words is tiny next to their histories.) The body of a POST is always taken as the word
+ * list, whatever its content type, so the other parameters of a POST must be in the
+ * query string.
+ *
+ * The "format" parameter selects the output:
+ *   ndjson (default)  one JSON object per word and line:
+ *                     {"word":"cat","years":[1900,...],"counts":[...],"weights":[...]}
+ *   csv               a header, then one word,year,count,weight row per recorded year
+ *
+ * A word that is not in the data files gets empty arrays, or no rows.
+ */
+public class HistoryExportHandler implements Route {
+    private static final Logger logger = LoggerFactory.getLogger(HistoryExportHandler.class);
+
+    /** How many words are written between flushes of the response stream. */
+    public static final int FLUSH_EVERY = 256;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The export formats.
+     */
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        /**
+         * Returns the format called NAME, ignoring case, or NDJSON if NAME is null.
+         *
+         * @throws IllegalArgumentException if there is no such format
+         */
+        public static Format of(String name) {
+            if (name == null || name.isBlank()) {
+                return NDJSON;
+            }
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(name.trim())) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown export format: " + name);
+        }
+    }
+
+    private final NGramMap ngramMap;
+
+    /**
+     * Constructs a new HistoryExportHandler with the specified NGram map.
+     *
+     * @param ngramMap the NGram map containing word frequency data
+     */
+    public HistoryExportHandler(NGramMap ngramMap) {
+        this.ngramMap = ngramMap;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        // Open a POST body before reading any parameter: Jetty would otherwise parse a
+        // form-encoded body, as curl -d sends, into parameters and leave the stream empty.
+        InputStream body = "POST".equals(request.requestMethod()) ? request.raw().getInputStream() : null;
+
+        Format format;
+        try {
+            format = Format.of(request.queryParams("format"));
+        } catch (IllegalArgumentException e) {
+            response.status(400);
+            return e.getMessage();
+        }
+        int startYear = yearParam(request, "startYear", NgordnetQueryHandler.DEFAULT_START_YEAR);
+        int endYear = yearParam(request, "endYear", NgordnetQueryHandler.DEFAULT_END_YEAR);
+
+        Reader words;
+        if (body != null) {
+            words = new InputStreamReader(body, StandardCharsets.UTF_8);
+        } else {
+            String param = request.queryParams("words");
+            words = new StringReader(param == null ? "" : param);
+        }
+
+        response.status(200);
+        response.type(format.contentType + "; charset=utf-8");
+        response.header("Content-Disposition", "attachment; filename=\"history." + format.extension + "\"");
+        Writer out = new BufferedWriter(
+                new OutputStreamWriter(response.raw().getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+        try (words) {
+            int exported = export(words, startYear, endYear, format, out);
+            out.flush();
+            logger.debug("Exported {} word histories as {}", exported, format);
+        } catch (IOException e) {
+            // Most likely the client went away; there is nobody left to tell.
+            logger.debug("Export aborted: {}", e.getMessage());
+        }
+        return "";
+    }
+
+    private static int yearParam(Request request, String name, int defaultYear) {
+        try {
+            return Integer.parseInt(request.queryParams(name));
+        } catch (RuntimeException e) {
+            return defaultYear;
+        }
+    }
+
+    /**
+     * Writes the histories between STARTYEAR and ENDYEAR of the words read from WORDS to
+     * OUT in the given FORMAT, flushing OUT every FLUSH_EVERY words. Returns the number of
+     * words written.
+     */
+    public int export(Reader words, int startYear, int endYear, Format format, Writer out) throws IOException {
+        BufferedReader in = words instanceof BufferedReader b ? b : new BufferedReader(words);
+        if (format == Format.CSV) {
+            out.write("word,year,count,weight\n");
+        }
+        StringBuilder word = new StringBuilder();
+        int exported = 0;
+        int c;
+        do {
+            c = in.read();
+            if (c == ',' || c == '\n' || c == '\r' || c == -1) {
+                String trimmed = word.toString().trim();
+                word.setLength(0);
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                if (format == Format.CSV) {
+                    writeCsv(trimmed, startYear, endYear, out);
+                } else {
+                    writeNdjson(trimmed, startYear, endYear, out);
+                }
+                exported += 1;
+                if (exported % FLUSH_EVERY == 0) {
+                    out.flush();
+                }
+            } else {
+                word.append((char) c);
+            }
+        } while (c != -1);
+        return exported;
+    }
+
+    private void writeNdjson(String word, int startYear, int endYear, Writer out) throws IOException {
+        NGramStore store = ngramMap.store();
+        int id = store.wordId(word);
+        int from = id < 0 ? 0 : Math.max(startYear, store.firstYear(id));
+        int to = id < 0 ? -1 : Math.min(endYear, store.lastYear(id));
+
+        // JsonWriter has no buffer of its own, so one per line costs nothing to abandon.
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        json.name("word").value(word);
+        json.name("years").beginArray();
+        for (int year = from; year <= to; year += 1) {
+            if (!Double.isNaN(store.count(id, year))) {
+                json.value(year);
+            }
+        }
+        json.endArray();
+        json.name("counts").beginArray();
+        for (int year = from; year <= to; year += 1) {
+            double count = store.count(id, year);
+            if (!Double.isNaN(count)) {
+                json.value((long) count);
+            }
+        }
+        json.endArray();
+        json.name("weights").beginArray();
+        for (int year = from; year <= to; year += 1) {
+            double count = store.count(id, year);
+            if (!Double.isNaN(count)) {
+                writeWeight(json, count / store.totalCount(year));
+            }
+        }
+        json.endArray();
+        json.endObject();
+        out.write('\n');
+    }
+
+    private static void writeWeight(JsonWriter json, double weight) throws IOException {
+        if (Double.isFinite(weight)) {
+            json.value(weight);
+        } else {
+            json.nullValue();
+        }
+    }
+
+    private void writeCsv(String word, int startYear, int endYear, Writer out) throws IOException {
+        NGramStore store = ngramMap.store();
+        int id = store.wordId(word);
+        if (id < 0) {
+            return;
+        }
+        String field = csvField(word);
+        int to = Math.min(endYear, store.lastYear(id));
+        for (int year = Math.max(startYear, store.firstYear(id)); year <= to; year += 1) {
+            double count = store.count(id, year);
+            if (Double.isNaN(count)) {
+                continue;
+            }
+            double weight = count / store.totalCount(year);
+            out.write(field);
+            out.write(',');
+            out.write(Integer.toString(year));
+            out.write(',');
+            out.write(Long.toString((long) count));
+            out.write(',');
+            if (Double.isFinite(weight)) {
+                out.write(Double.toString(weight));
+            }
+            out.write('\n');
+        }
+    }
+
+    /* Quotes WORD as RFC 4180 requires if it contains a comma, quote or line break. */
+    private static String csvField(String word) {
+        if (word.indexOf(',') < 0 && word.indexOf('"') < 0 && word.indexOf('\n') < 0 && word.indexOf('\r') < 0) {
+            return word;
+        }
+        return '"' + word.replace("\"", "\"\"") + '"';
+    }
+}
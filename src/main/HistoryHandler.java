@@ -4,17 +4,21 @@ import ngrams.NGramMap;
 import browser.NgordnetQuery;
 import browser.NgordnetQueryHandler;
 import ngrams.TimeSeries;
+import plotting.ChartCache;
 import plotting.Plotter;
 import org.knowm.xchart.XYChart;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 
 /**
  * Handler for history queries that generates time series charts.
  * Processes word frequency data and returns encoded chart images.
+ * Rendered charts are kept in a ChartCache, so a chart of the same words and years is
+ * only rendered once.
  * 
  * @author Your Name
  */
@@ -22,14 +26,35 @@ public class HistoryHandler extends NgordnetQueryHandler {
     private static final Logger logger = LoggerFactory.getLogger(HistoryHandler.class);
     
     private final NGramMap ngramMap;
+    private final ChartCache chartCache;
 
     /**
-     * Constructs a new HistoryHandler with the specified NGram map.
+     * Constructs a new HistoryHandler with the specified NGram map, caching charts in memory only.
      * 
      * @param ngramMap the NGram map containing word frequency data
      */
     public HistoryHandler(NGramMap ngramMap) {
+        this(ngramMap, new ChartCache(ChartCache.DEFAULT_MEMORY_BYTES));
+    }
+
+    /**
+     * Constructs a new HistoryHandler with the specified NGram map and chart cache.
+     * 
+     * @param ngramMap the NGram map containing word frequency data
+     * @param chartCache where to keep rendered charts
+     */
+    public HistoryHandler(NGramMap ngramMap, ChartCache chartCache) {
         this.ngramMap = ngramMap;
+        this.chartCache = chartCache;
+    }
+
+    /**
+     * Returns the cache rendered charts are kept in.
+     * 
+     * @return the chart cache
+     */
+    public ChartCache chartCache() {
+        return chartCache;
     }
 
     /**
@@ -53,15 +78,11 @@ public class HistoryHandler extends NgordnetQueryHandler {
                 return "";
             }
 
-            List<TimeSeries> timeSeriesList = buildTimeSeriesList(words, startYear, endYear);
-            
-            if (timeSeriesList.isEmpty()) {
-                logger.warn("No valid time series data found for the provided words");
+            byte[] png = chartCache.png(words, startYear, endYear, () -> render(words, startYear, endYear));
+            if (png == null) {
                 return "";
             }
-
-            XYChart chart = Plotter.generateTimeSeriesChart(words, timeSeriesList);
-            return Plotter.encodeChartAsString(chart);
+            return Base64.getEncoder().encodeToString(png);
             
         } catch (Exception e) {
             logger.error("Error processing history query", e);
@@ -69,6 +90,23 @@ public class HistoryHandler extends NgordnetQueryHandler {
         }
     }
     
+    /**
+     * Renders the chart of the given words and year range as a PNG.
+     * 
+     * @return the PNG, or null if there is no data to chart
+     */
+    private byte[] render(List<String> words, int startYear, int endYear) {
+        List<TimeSeries> timeSeriesList = buildTimeSeriesList(words, startYear, endYear);
+        
+        if (timeSeriesList.isEmpty()) {
+            logger.warn("No valid time series data found for the provided words");
+            return null;
+        }
+
+        XYChart chart = Plotter.generateTimeSeriesChart(words, timeSeriesList);
+        return Plotter.encodeChartAsPng(chart);
+    }
+    
     /**
      * Builds a list of TimeSeries objects for the given words and year range.
      * 
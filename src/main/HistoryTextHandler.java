@@ -2,7 +2,7 @@ package main;
 
 import browser.NgordnetQuery;
 import ngrams.NGramMap;
-import ngrams.TimeSeries;
+import ngrams.DenseTimeSeries;
 
 import java.util.List;
 
@@ -23,27 +23,26 @@ public class HistoryTextHandler extends NgordnetQueryHandler{
         List<String> words = q.words();
         int startYear = q.startYear();
         int endYear = q.endYear();
-        String response = "";
+        StringBuilder response = new StringBuilder();
 
         for (int i = 0; i <words.size(); i += 1){
             String word = words.get(i);
-            response += word + ": {";
-            TimeSeries t = ngm.weightHistory(word, startYear, endYear);
+            response.append(word).append(": {");
+            DenseTimeSeries t = ngm.denseWeightHistory(word, startYear, endYear);
             if (t.isEmpty()){
-                response += "invalid word}\n";
+                response.append("invalid word}\n");
                 continue;
             }
-            List<Integer> years = t.years();
-            for (int j = 0; j < years.size() - 1; j += 1){
-                String year = years.get(i).toString();
-                String number = t.get(years.get(i)).toString();
-                response += year + "=" + number + ", ";
+            String separator = "";
+            for (int year = t.startYear(); year <= t.endYear(); year += 1) {
+                double weight = t.get(year);
+                if (!Double.isNaN(weight)) {
+                    response.append(separator).append(year).append('=').append(weight);
+                    separator = ", ";
+                }
             }
-            String year = years.get(years.size()-1).toString();
-            String number = t.get(years.get(years.size()-1)).toString();
-            response += year + "=" + number;
-            response += "}\n";
+            response.append("}\n");
         }
-        return response;
+        return response.toString();
     }
 }
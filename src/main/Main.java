@@ -1,9 +1,16 @@
 package main;
 
 import browser.NgordnetServer;
+import browser.Readiness;
 import ngrams.NGramMap;
+import ngrams.SeriesKernels;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import plotting.ChartCache;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class Main {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
@@ -19,13 +26,20 @@ public class Main {
     public static final String LARGE_SYNSET_FILE = "data/wordnet/synsets.txt";
     public static final String LARGE_HYPONYM_FILE = "data/wordnet/hyponyms.txt";
    
+    // Rendered charts are kept here across restarts
+    private static final String CHART_CACHE_DIRECTORY = "data/charts";
+
+    // Set -Dngordnet.virtualThreads=true to serve each request on a virtual thread (Java 21+)
+    private static final String VIRTUAL_THREADS_PROPERTY = "ngordnet.virtualThreads";
+
     // Server configuration
     private static final int DEFAULT_PORT = 4567;
     private static final String SERVER_URL = "http://localhost:" + DEFAULT_PORT + "/ngordnet.html";
 
     /**
      * main entry point for the application.
-     * initializes the WordNet graph, NGram map, and starts the web server.
+     * starts the web server, then loads the WordNet graph and NGram map in the background.
+     * until a handler's data is loaded it answers 503; /ready reports the load progress.
      * 
      * @param args command line arguments (not used)
      */
@@ -33,15 +47,35 @@ public class Main {
         logger.info("Starting Ngordnet server...");
         
         try {
-            // Initialize data structures
-            WordnetGraph wordnetGraph = new WordnetGraph(LARGE_SYNSET_FILE, LARGE_HYPONYM_FILE);
-            NGramMap ngramMap = new NGramMap(WORDS_FILE, TOTAL_COUNTS_FILE);
-            
-            // Start server and register handlers
+            selectKernels();
+
+            // Start server first, so that it takes health checks while the data loads
             NgordnetServer server = new NgordnetServer();
+            if (Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY)) {
+                server.useVirtualThreads();
+            }
             server.startUp();
-            
+            Readiness readiness = new Readiness();
+            server.registerHealth(readiness);
+            server.registerMetrics("/metrics");
+
+            // Load data structures in the background, from precompiled snapshots when available
+            CompletableFuture<NGramMap> ngramMap = readiness.load("ngrams",
+                    progress -> Snapshots.ngramMap(WORDS_FILE, TOTAL_COUNTS_FILE, progress));
+            CompletableFuture<WordnetGraph> wordnetGraph = readiness.load("wordnet", progress -> {
+                WordnetGraph graph = Snapshots.wordnetGraph(LARGE_SYNSET_FILE, LARGE_HYPONYM_FILE,
+                        fraction -> progress.accept(0.8 * fraction));
+                graph.buildReachabilityIndex();
+                return graph;
+            });
+
             registerHandlers(server, wordnetGraph, ngramMap);
+            wordnetGraph.thenAccept(graph -> {
+                server.registerCacheMetrics("wordnet_closures", graph.closureCache());
+                server.registerCacheMetrics("wordnet_hyponyms", graph.hyponymCache());
+            });
+            CompletableFuture.allOf(ngramMap, wordnetGraph).thenRun(() ->
+                    logger.info("All data loaded, server is ready"));
             
             logger.info("Server startup complete! Visit {}", SERVER_URL);
             System.out.println("Finished server startup! Visit " + SERVER_URL);
@@ -53,16 +87,40 @@ public class Main {
         }
     }
     
+    /**
+     * selects the time series kernels before anything uses them, so that a bad
+     * ngrams.kernels setting stops the server at startup instead of failing requests.
+     */
+    private static void selectKernels() {
+        try {
+            SeriesKernels.get();
+        } catch (ExceptionInInitializerError e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
     /**
      * registers all query handlers with the server.
      * 
      * @param server the NgordnetServer instance
-     * @param wordnetGraph the WordnetGraph
-     * @param ngramMap the NGramMap
+     * @param wordnetGraph the future of the WordnetGraph
+     * @param ngramMap the future of the NGramMap
      */
-    private static void registerHandlers(NgordnetServer server, WordnetGraph wordnetGraph, NGramMap ngramMap) {
-        server.register("history", new HistoryHandler(ngramMap));
-        server.register("historytext", new HistoryTextHandler(ngramMap));
-        server.register("hyponyms", new HyponymsHandler(wordnetGraph, ngramMap));
+    private static void registerHandlers(NgordnetServer server, CompletableFuture<WordnetGraph> wordnetGraph,
+                                         CompletableFuture<NGramMap> ngramMap) {
+        ChartCache chartCache = new ChartCache(ChartCache.DEFAULT_MEMORY_BYTES, Path.of(CHART_CACHE_DIRECTORY),
+                ChartCache.DEFAULT_DISK_BYTES, ChartCache.dataNamespace(List.of(WORDS_FILE, TOTAL_COUNTS_FILE)));
+        // Concurrency limits follow the cost of each query type: chart renders and bulk
+        // exports are CPU or bandwidth heavy, text and data lookups are cheap.
+        int cores = Runtime.getRuntime().availableProcessors();
+        server.register("history", ngramMap.thenApply(map -> new HistoryHandler(map, chartCache)), cores);
+        server.register("historydata", ngramMap.thenApply(HistoryDataHandler::new), 4 * cores);
+        server.register("historytext", ngramMap.thenApply(HistoryTextHandler::new), 4 * cores);
+        server.registerStreaming("export", ngramMap.thenApply(HistoryExportHandler::new), 2);
+        server.register("hyponyms", wordnetGraph.thenCombine(ngramMap, HyponymsHandler::new), 2 * cores);
+        server.registerBatch("batch", cores);
     }
 }
\ No newline at end of file
@@ -0,0 +1,197 @@
+package main;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A precomputed reachability index over an acyclic DiGraph, so that descendant and
+ * "is X below Y" queries never have to traverse the graph.
+ *
+ * The index numbers the vertices in depth-first post-order. In a DFS tree the
+ * descendants of a vertex get exactly the post-order numbers [low, post], where low is
+ * the first number handed out inside its subtree. A DAG has edges outside the tree,
+ * so each vertex keeps a sorted list of disjoint post-order intervals: its own tree
+ * interval merged with the lists of all its direct successors. WordNet is nearly a
+ * tree, so most lists hold a single interval.
+ *
+ * reaches() is a binary search in one list, and addDescendants() walks the list's
+ * intervals, touching only vertices that are part of the answer.
+ */
+public class ReachabilityIndex {
+    private final int[] post;
+    private final int[] vertexAtPost;
+    /* The intervals of the vertex numbered p are the pairs bounds[2i], bounds[2i + 1]
+     * for i in [listOffsets[p], listOffsets[p + 1]). */
+    private final int[] listOffsets;
+    private final int[] bounds;
+    private final long buildNanos;
+
+    private ReachabilityIndex(int[] post, int[] vertexAtPost, int[] listOffsets, int[] bounds,
+                              long buildNanos) {
+        this.post = post;
+        this.vertexAtPost = vertexAtPost;
+        this.listOffsets = listOffsets;
+        this.bounds = bounds;
+        this.buildNanos = buildNanos;
+    }
+
+    /**
+     * Builds the index for GRAPH.
+     *
+     * @throws IllegalArgumentException if GRAPH has a cycle
+     */
+    public static ReachabilityIndex build(DiGraph graph) {
+        long start = System.nanoTime();
+        int n = graph.getVertexCount();
+        int[] post = new int[n];
+        int[] low = new int[n];
+        int[] vertexAtPost = new int[n];
+        byte[] state = new byte[n];
+        int[] stack = new int[n];
+        /* The next edge to look at for each vertex on the stack. */
+        int[] cursors = new int[n];
+
+        int[] listOffsets = new int[n + 1];
+        int[] bounds = new int[2 * n];
+        int intervals = 0;
+        long[] scratch = new long[16];
+        int counter = 0;
+
+        for (int root = 0; root < n; root += 1) {
+            if (state[root] != 0) {
+                continue;
+            }
+            int depth = 0;
+            stack[depth++] = root;
+            state[root] = 1;
+            low[root] = counter;
+            cursors[0] = graph.edgeStart(root);
+            while (depth > 0) {
+                int v = stack[depth - 1];
+                if (cursors[depth - 1] < graph.edgeEnd(v)) {
+                    int w = graph.edgeTarget(cursors[depth - 1]++);
+                    if (state[w] == 1) {
+                        throw new IllegalArgumentException("Graph has a cycle through vertex " + w);
+                    }
+                    if (state[w] == 0) {
+                        state[w] = 1;
+                        low[w] = counter;
+                        stack[depth] = w;
+                        cursors[depth] = graph.edgeStart(w);
+                        depth += 1;
+                    }
+                    continue;
+                }
+
+                /* Every successor of V is finished, so their lists are complete. */
+                int p = counter++;
+                post[v] = p;
+                vertexAtPost[p] = v;
+                state[v] = 2;
+                depth -= 1;
+
+                int count = 0;
+                scratch[count++] = pack(low[v], p);
+                for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e += 1) {
+                    int q = post[graph.edgeTarget(e)];
+                    for (int i = listOffsets[q]; i < listOffsets[q + 1]; i += 1) {
+                        if (count == scratch.length) {
+                            scratch = Arrays.copyOf(scratch, count * 2);
+                        }
+                        scratch[count++] = pack(bounds[2 * i], bounds[2 * i + 1]);
+                    }
+                }
+                Arrays.sort(scratch, 0, count);
+
+                listOffsets[p] = intervals;
+                int from = (int) (scratch[0] >>> 32);
+                int to = (int) scratch[0];
+                for (int i = 1; i <= count; i += 1) {
+                    int a = i < count ? (int) (scratch[i] >>> 32) : Integer.MAX_VALUE;
+                    if (i < count && a <= to + 1) {
+                        to = Math.max(to, (int) scratch[i]);
+                        continue;
+                    }
+                    if (2 * intervals + 2 > bounds.length) {
+                        bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                    }
+                    bounds[2 * intervals] = from;
+                    bounds[2 * intervals + 1] = to;
+                    intervals += 1;
+                    if (i < count) {
+                        from = a;
+                        to = (int) scratch[i];
+                    }
+                }
+                listOffsets[p + 1] = intervals;
+            }
+        }
+        return new ReachabilityIndex(post, vertexAtPost, listOffsets,
+                Arrays.copyOf(bounds, 2 * intervals), System.nanoTime() - start);
+    }
+
+    private static long pack(int from, int to) {
+        return ((long) from << 32) | to;
+    }
+
+    /**
+     * Returns whether TO can be reached from FROM. Every vertex reaches itself.
+     */
+    public boolean reaches(int from, int to) {
+        int target = post[to];
+        int p = post[from];
+        int lo = listOffsets[p];
+        int hi = listOffsets[p + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (bounds[2 * mid + 1] < target) {
+                lo = mid + 1;
+            } else if (bounds[2 * mid] > target) {
+                hi = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the bit of every vertex reachable from VERTEX, including VERTEX itself, in INTO.
+     */
+    public void addDescendants(int vertex, BitSet into) {
+        int p = post[vertex];
+        for (int i = listOffsets[p]; i < listOffsets[p + 1]; i += 1) {
+            for (int q = bounds[2 * i]; q <= bounds[2 * i + 1]; q += 1) {
+                into.set(vertexAtPost[q]);
+            }
+        }
+    }
+
+    /**
+     * Returns the total number of intervals stored, a measure of how far from a tree the
+     * graph is. A forest needs exactly one per vertex.
+     */
+    public int intervalCount() {
+        return bounds.length / 2;
+    }
+
+    /**
+     * Returns the approximate heap used by this index, in bytes.
+     */
+    public long memoryBytes() {
+        return 4L * (post.length + vertexAtPost.length + listOffsets.length + bounds.length);
+    }
+
+    /**
+     * Returns how long build() took, in nanoseconds.
+     */
+    public long buildNanos() {
+        return buildNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d vertices, %,d intervals, %,d bytes, built in %.1f ms",
+                post.length, intervalCount(), memoryBytes(), buildNanos / 1e6);
+    }
+}
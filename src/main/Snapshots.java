@@ -0,0 +1,148 @@
+package main;
+
+import metrics.LoadMetrics;
+import ngrams.MappedNGramStore;
+import ngrams.NGramLoader;
+import ngrams.NGramMap;
+import ngrams.OffHeapNGramWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import snapshot.SnapshotFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Compiles the text data files into binary snapshots, and loads NGramMaps and
+ * WordnetGraphs from those snapshots when they are available.
+ *
+ * Snapshots live in SNAPSHOT_DIRECTORY and are named after the files they were compiled
+ * from. A snapshot is only used if it is readable, of the current format version, and
+ * its source files have not changed since it was written; otherwise the loaders fall
+ * back to parsing the text files.
+ *
+ * Usage: Snapshots WORDSFILE COUNTSFILE SYNSETSFILE HYPONYMSFILE [--verify]
+ */
+public final class Snapshots {
+    private static final Logger logger = LoggerFactory.getLogger(Snapshots.class);
+
+    public static final String SNAPSHOT_DIRECTORY = "data/snapshots";
+
+    private Snapshots() {
+    }
+
+    /**
+     * Returns an NGramMap for WORDSFILE and COUNTSFILE, mapped from a snapshot if there is
+     * a fresh one and parsed from the text files otherwise.
+     */
+    public static NGramMap ngramMap(String wordsFile, String countsFile) {
+        return ngramMap(wordsFile, countsFile, progress -> { });
+    }
+
+    /**
+     * Returns an NGramMap for WORDSFILE and COUNTSFILE like ngramMap(WORDSFILE, COUNTSFILE),
+     * passing the fraction of the load done so far to PROGRESS.
+     */
+    public static NGramMap ngramMap(String wordsFile, String countsFile, DoubleConsumer progress) {
+        Path path = ngramSnapshotPath(wordsFile, countsFile);
+        if (Files.exists(path)) {
+            try {
+                long start = System.nanoTime();
+                MappedNGramStore store = MappedNGramStore.open(path);
+                if (store.file().isFresh()) {
+                    logger.info("Mapped ngram snapshot {}", path);
+                    LoadMetrics.phase("ngrams", "snapshot", System.nanoTime() - start);
+                    progress.accept(1);
+                    return new NGramMap(store);
+                }
+                logger.warn("Ignoring stale ngram snapshot {}", path);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Ignoring unreadable ngram snapshot {}: {}", path, e.getMessage());
+            }
+        }
+        return new NGramMap(new NGramLoader().load(wordsFile, countsFile, progress));
+    }
+
+    /**
+     * Returns a WordnetGraph for SYNSETSFILE and HYPONYMSFILE, read from a snapshot if
+     * there is a fresh one and parsed from the text files otherwise.
+     */
+    public static WordnetGraph wordnetGraph(String synsetsFile, String hyponymsFile) {
+        return wordnetGraph(synsetsFile, hyponymsFile, progress -> { });
+    }
+
+    /**
+     * Returns a WordnetGraph for SYNSETSFILE and HYPONYMSFILE like
+     * wordnetGraph(SYNSETSFILE, HYPONYMSFILE), passing the fraction of the load done so
+     * far to PROGRESS.
+     */
+    public static WordnetGraph wordnetGraph(String synsetsFile, String hyponymsFile, DoubleConsumer progress) {
+        Path path = wordnetSnapshotPath(synsetsFile, hyponymsFile);
+        if (Files.exists(path)) {
+            try {
+                long start = System.nanoTime();
+                SnapshotFile file = SnapshotFile.open(path, WordnetSnapshot.KIND);
+                if (file.isFresh()) {
+                    logger.info("Mapped WordNet snapshot {}", path);
+                    WordnetGraph graph = WordnetSnapshot.read(file);
+                    LoadMetrics.phase("wordnet", "snapshot", System.nanoTime() - start);
+                    progress.accept(1);
+                    return graph;
+                }
+                logger.warn("Ignoring stale WordNet snapshot {}", path);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Ignoring unreadable WordNet snapshot {}: {}", path, e.getMessage());
+            }
+        }
+        return new WordnetGraph(synsetsFile, hyponymsFile, progress);
+    }
+
+    /**
+     * Returns where the snapshot of WORDSFILE and COUNTSFILE is kept.
+     */
+    public static Path ngramSnapshotPath(String wordsFile, String countsFile) {
+        return snapshotPath(wordsFile, countsFile, MappedNGramStore.KIND);
+    }
+
+    /**
+     * Returns where the snapshot of SYNSETSFILE and HYPONYMSFILE is kept.
+     */
+    public static Path wordnetSnapshotPath(String synsetsFile, String hyponymsFile) {
+        return snapshotPath(synsetsFile, hyponymsFile, WordnetSnapshot.KIND);
+    }
+
+    private static Path snapshotPath(String first, String second, String kind) {
+        String name = Path.of(first).getFileName() + "+" + Path.of(second).getFileName();
+        return Path.of(SNAPSHOT_DIRECTORY, name + "." + kind);
+    }
+
+    /**
+     * Parses the given text files and writes their snapshots.
+     */
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.err.println("Usage: Snapshots WORDSFILE COUNTSFILE SYNSETSFILE HYPONYMSFILE [--verify]");
+            System.exit(2);
+        }
+        boolean verify = args.length > 4 && args[4].equals("--verify");
+
+        long start = System.nanoTime();
+        Path ngramPath = ngramSnapshotPath(args[0], args[1]);
+        OffHeapNGramWriter.write(args[0], args[1], ngramPath, false);
+        System.out.printf("Wrote %s in %.1f ms%n", ngramPath, (System.nanoTime() - start) / 1e6);
+
+        start = System.nanoTime();
+        WordnetGraph graph = new WordnetGraph(args[2], args[3]);
+        Path wordnetPath = wordnetSnapshotPath(args[2], args[3]);
+        WordnetSnapshot.write(graph, wordnetPath, List.of(Path.of(args[2]), Path.of(args[3])));
+        System.out.printf("Wrote %s in %.1f ms%n", wordnetPath, (System.nanoTime() - start) / 1e6);
+
+        if (verify) {
+            MappedNGramStore.open(ngramPath).file().verify();
+            SnapshotFile.open(wordnetPath, WordnetSnapshot.KIND).verify();
+            System.out.println("Checksums verified");
+        }
+    }
+}
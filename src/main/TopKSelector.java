@@ -0,0 +1,124 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Picks the K most frequent words from a stream of (word, count) candidates.
+ *
+ * The selector keeps a binary min-heap of at most K entries in parallel primitive and
+ * String arrays, with the weakest entry at the root. A candidate only enters the heap if
+ * it beats the root, so n candidates cost O(n log k) and no allocation per candidate.
+ *
+ * Higher counts win. Equal counts are broken in favour of the alphabetically smaller
+ * word, so the result does not depend on the order the candidates arrive in. Words with
+ * a count of 0 are never selected.
+ */
+public class TopKSelector {
+    private final int k;
+    private double[] counts;
+    private String[] words;
+    private int size;
+
+    /**
+     * Constructs a selector that keeps the K best candidates.
+     *
+     * @throws IllegalArgumentException if K is negative
+     */
+    public TopKSelector(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        this.k = k;
+        int capacity = Math.min(k, 64);
+        this.counts = new double[capacity];
+        this.words = new String[capacity];
+    }
+
+    /**
+     * Offers WORD with the given COUNT. Counts of 0 or less, and NaN, are ignored.
+     */
+    public void offer(String word, double count) {
+        if (!(count > 0) || k == 0) {
+            return;
+        }
+        if (size < k) {
+            if (size == counts.length) {
+                int capacity = Math.min(k, size * 2);
+                counts = Arrays.copyOf(counts, capacity);
+                words = Arrays.copyOf(words, capacity);
+            }
+            counts[size] = count;
+            words[size] = word;
+            siftUp(size);
+            size += 1;
+        } else if (weaker(counts[0], words[0], count, word)) {
+            counts[0] = count;
+            words[0] = word;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Returns the number of words selected so far.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the selected words in alphabetical order.
+     */
+    public List<String> alphabetical() {
+        String[] selected = Arrays.copyOf(words, size);
+        Arrays.sort(selected);
+        return new ArrayList<>(Arrays.asList(selected));
+    }
+
+    /* Returns whether the entry (COUNTA, WORDA) ranks below (COUNTB, WORDB). */
+    private static boolean weaker(double countA, String wordA, double countB, String wordB) {
+        if (countA != countB) {
+            return countA < countB;
+        }
+        return wordA.compareTo(wordB) > 0;
+    }
+
+    private void siftUp(int i) {
+        double count = counts[i];
+        String word = words[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!weaker(count, word, counts[parent], words[parent])) {
+                break;
+            }
+            counts[i] = counts[parent];
+            words[i] = words[parent];
+            i = parent;
+        }
+        counts[i] = count;
+        words[i] = word;
+    }
+
+    private void siftDown(int i) {
+        double count = counts[i];
+        String word = words[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && weaker(counts[child + 1], words[child + 1], counts[child], words[child])) {
+                child += 1;
+            }
+            if (!weaker(counts[child], words[child], count, word)) {
+                break;
+            }
+            counts[i] = counts[child];
+            words[i] = words[child];
+            i = child;
+        }
+        counts[i] = count;
+        words[i] = word;
+    }
+}
@@ -0,0 +1,301 @@
+package main;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable dictionary of the WordNet words and the synsets each one belongs to.
+ *
+ * Word ids run from 0 to size() - 1 in alphabetical order (the order of
+ * String.compareTo), so sorting ids sorts their words. The words are stored once, as
+ * UTF-8 in one byte array, and found through an open-addressing hash table of ids. The
+ * synsets of word w are postings[postingStart(w)] to postings[postingEnd(w) - 1], in
+ * ascending order, laid out like the edges of a DiGraph. Next to a HashMap of boxed
+ * Integer lists this is a handful of flat arrays and no per-word objects.
+ *
+ * The inverse is kept as well: the words of synset s are the ids members[memberStart(s)]
+ * to members[memberEnd(s) - 1], in ascending and so alphabetical order. Turning a set of
+ * synsets into words is then a walk over ints, with no splitting of synset text.
+ *
+ * word(id) decodes a word the first time it is asked for and keeps the String, so
+ * repeated lookups of a word return the same instance.
+ */
+public final class WordDictionary {
+    private final byte[] arena;
+    private final int[] wordStarts;
+    private final int[] hashes;
+    private final int[] table;
+    private final int mask;
+    private final int[] postingStarts;
+    private final int[] postings;
+    private final int[] memberStarts;
+    private final int[] members;
+    private final String[] decoded;
+
+    private WordDictionary(byte[] arena, int[] wordStarts, int[] hashes, int[] table,
+                           int[] postingStarts, int[] postings, int[] memberStarts, int[] members) {
+        this.arena = arena;
+        this.wordStarts = wordStarts;
+        this.hashes = hashes;
+        this.table = table;
+        this.mask = table.length - 1;
+        this.postingStarts = postingStarts;
+        this.postings = postings;
+        this.memberStarts = memberStarts;
+        this.members = members;
+        this.decoded = new String[hashes.length];
+    }
+
+    /**
+     * Collects words and the synsets they belong to, for building a WordDictionary.
+     */
+    public static final class Builder {
+        private final Map<String, int[]> synsets = new HashMap<>();
+        private int postingCount;
+        private int synsetCount;
+
+        /**
+         * Records that WORD belongs to the synset SYNSETID.
+         *
+         * @throws IllegalArgumentException if SYNSETID is negative
+         */
+        public Builder add(String word, int synsetId) {
+            if (synsetId < 0) {
+                throw new IllegalArgumentException("Synset id cannot be negative: " + synsetId);
+            }
+            // The first element of each array counts the ids stored after it.
+            int[] ids = synsets.get(word);
+            if (ids == null) {
+                ids = new int[3];
+                synsets.put(word, ids);
+            } else if (ids[0] + 1 == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+                synsets.put(word, ids);
+            }
+            ids[0] += 1;
+            ids[ids[0]] = synsetId;
+            postingCount += 1;
+            synsetCount = Math.max(synsetCount, synsetId + 1);
+            return this;
+        }
+
+        /**
+         * Returns the dictionary of the words added so far. Repeated memberships of a
+         * word in a synset are stored once.
+         */
+        public WordDictionary build() {
+            String[] words = synsets.keySet().toArray(new String[0]);
+            Arrays.sort(words);
+            int n = words.length;
+
+            byte[][] encoded = new byte[n][];
+            int[] wordStarts = new int[n + 1];
+            for (int i = 0; i < n; i += 1) {
+                encoded[i] = words[i].getBytes(StandardCharsets.UTF_8);
+                wordStarts[i + 1] = wordStarts[i] + encoded[i].length;
+            }
+            byte[] arena = new byte[wordStarts[n]];
+            for (int i = 0; i < n; i += 1) {
+                System.arraycopy(encoded[i], 0, arena, wordStarts[i], encoded[i].length);
+            }
+
+            int[] hashes = new int[n];
+            int[] table = new int[tableSize(n)];
+            for (int i = 0; i < n; i += 1) {
+                hashes[i] = hash(words[i]);
+                int slot = hashes[i] & (table.length - 1);
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & (table.length - 1);
+                }
+                table[slot] = i + 1;
+            }
+
+            int[] postingStarts = new int[n + 1];
+            int[] postings = new int[postingCount];
+            int size = 0;
+            for (int i = 0; i < n; i += 1) {
+                int[] ids = synsets.get(words[i]);
+                Arrays.sort(ids, 1, ids[0] + 1);
+                for (int j = 1; j <= ids[0]; j += 1) {
+                    if (j == 1 || ids[j] != ids[j - 1]) {
+                        postings[size++] = ids[j];
+                    }
+                }
+                postingStarts[i + 1] = size;
+            }
+
+            // Visiting words in id order leaves the words of each synset sorted
+            int[] memberStarts = new int[synsetCount + 1];
+            for (int i = 0; i < size; i += 1) {
+                memberStarts[postings[i] + 1] += 1;
+            }
+            for (int s = 0; s < synsetCount; s += 1) {
+                memberStarts[s + 1] += memberStarts[s];
+            }
+            int[] members = new int[size];
+            int[] next = Arrays.copyOf(memberStarts, synsetCount);
+            for (int i = 0; i < n; i += 1) {
+                for (int j = postingStarts[i]; j < postingStarts[i + 1]; j += 1) {
+                    members[next[postings[j]]++] = i;
+                }
+            }
+            return new WordDictionary(arena, wordStarts, hashes, table, postingStarts,
+                    Arrays.copyOf(postings, size), memberStarts, members);
+        }
+    }
+
+    /* A power of two at least twice N, so probe sequences stay short. */
+    private static int tableSize(int n) {
+        int size = 2;
+        while (size < 2 * n) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /* Spreads String.hashCode, which is cached in the String, over the low bits. */
+    private static int hash(String word) {
+        int h = word.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    /**
+     * Returns the id of WORD, or -1 if it is not in the dictionary.
+     */
+    public int id(String word) {
+        int h = hash(word);
+        int slot = h & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == h && equalsWord(id, word)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /* Compares the stored bytes of word ID with WORD, without decoding them if they are ASCII. */
+    private boolean equalsWord(int id, String word) {
+        int start = wordStarts[id];
+        int length = wordStarts[id + 1] - start;
+        if (length != word.length()) {
+            // Equal only if the word has non-ASCII characters, which take several bytes.
+            return length > word.length() && word.equals(word(id));
+        }
+        for (int i = 0; i < length; i += 1) {
+            byte b = arena[start + i];
+            if (b < 0) {
+                return word.equals(word(id));
+            }
+            if (b != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the word with the given ID.
+     */
+    public String word(int id) {
+        String word = decoded[id];
+        if (word == null) {
+            // Racing threads may both decode; either String is correct to keep.
+            word = new String(arena, wordStarts[id], wordStarts[id + 1] - wordStarts[id], StandardCharsets.UTF_8);
+            decoded[id] = word;
+        }
+        return word;
+    }
+
+    /**
+     * Returns whether WORD is in the dictionary.
+     */
+    public boolean contains(String word) {
+        return id(word) >= 0;
+    }
+
+    /**
+     * Returns the number of words.
+     */
+    public int size() {
+        return hashes.length;
+    }
+
+    /**
+     * Returns the index in postings of the first synset of word ID.
+     */
+    public int postingStart(int id) {
+        return postingStarts[id];
+    }
+
+    /**
+     * Returns the index in postings just past the last synset of word ID.
+     */
+    public int postingEnd(int id) {
+        return postingStarts[id + 1];
+    }
+
+    /**
+     * Returns the synset at index I of the postings.
+     */
+    public int posting(int i) {
+        return postings[i];
+    }
+
+    /**
+     * Returns the synsets of word ID, in ascending order, as a new array.
+     */
+    public int[] synsets(int id) {
+        return Arrays.copyOfRange(postings, postingStarts[id], postingStarts[id + 1]);
+    }
+
+    /**
+     * Returns one more than the largest synset id any word belongs to.
+     */
+    public int synsetCount() {
+        return memberStarts.length - 1;
+    }
+
+    /**
+     * Returns the index in members of the first word of synset SYNSETID.
+     */
+    public int memberStart(int synsetId) {
+        return memberStarts[synsetId];
+    }
+
+    /**
+     * Returns the index in members just past the last word of synset SYNSETID.
+     */
+    public int memberEnd(int synsetId) {
+        return memberStarts[synsetId + 1];
+    }
+
+    /**
+     * Returns the word id at index I of the members.
+     */
+    public int member(int i) {
+        return members[i];
+    }
+
+    /**
+     * Returns an estimate of the heap used by this dictionary, not counting the Strings
+     * word() has decoded so far.
+     */
+    public long memoryBytes() {
+        return 16L * 8 + arena.length + 4L * (wordStarts.length + hashes.length + table.length
+                + postingStarts.length + postings.length + memberStarts.length + members.length
+                + decoded.length);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d words, %,d synset memberships, ~%,d bytes", size(), postings.length, memoryBytes());
+    }
+}
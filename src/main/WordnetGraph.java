@@ -1,7 +1,13 @@
 package main;
 
+import cache.BoundedCache;
 import edu.princeton.cs.algs4.In;
+import metrics.LoadMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.*;
+import java.util.function.DoubleConsumer;
 
 /**
  * A graph representation of WordNet data for finding hyponyms.
@@ -10,14 +16,34 @@ import java.util.*;
 
  
 public class WordnetGraph {
-    public final Map<String, List<Integer>> wordToIds;
+    private static final Logger logger = LoggerFactory.getLogger(WordnetGraph.class);
+
+    /** How many bytes of hyponym sets findHyponyms keeps cached by default. */
+    public static final long DEFAULT_HYPONYM_CACHE_BYTES = 32L << 20;
+    /** How many bytes of per-word synset closures every query keeps cached by default. */
+    public static final long DEFAULT_CLOSURE_CACHE_BYTES = 32L << 20;
+
+    public final WordDictionary dictionary;
     public final DiGraph graph;
-    public final List<String> synsetStrings;
+    private volatile ReachabilityIndex reachability;
+    private final BoundedCache<String, FrozenWordSet> hyponymCache =
+            new BoundedCache<>(DEFAULT_HYPONYM_CACHE_BYTES, (word, set) -> 40 + word.length() + set.memoryBytes());
+    /* Closures are shared between queries and threads, so they are never modified. */
+    private final BoundedCache<Integer, BitSet> closureCache =
+            new BoundedCache<>(DEFAULT_CLOSURE_CACHE_BYTES, (wordId, closure) -> 64 + closure.size() / 8);
 
     /**
      * Constructs a WordnetGraph from synset and hyponym data files.
      */
     public WordnetGraph(String synsetsFile, String hyponymsFile) {
+        this(synsetsFile, hyponymsFile, progress -> { });
+    }
+
+    /**
+     * Constructs a WordnetGraph from synset and hyponym data files, passing the fraction
+     * of the files loaded so far to PROGRESS after each of them.
+     */
+    public WordnetGraph(String synsetsFile, String hyponymsFile, DoubleConsumer progress) {
         if (synsetsFile == null || synsetsFile.trim().isEmpty()) {
             throw new IllegalArgumentException("Synsets file path cannot be null or empty");
         }
@@ -25,44 +51,51 @@ public class WordnetGraph {
             throw new IllegalArgumentException("Hyponyms file path cannot be null or empty");
         }
 
-        this.wordToIds = new HashMap<>();
-        this.synsetStrings = new ArrayList<>();
-        
-        loadSynsets(synsetsFile);
+        long start = System.nanoTime();
+        this.dictionary = loadSynsets(synsetsFile);
+        long synsetsEnd = System.nanoTime();
+        progress.accept(0.5);
         this.graph = buildGraph(hyponymsFile);
+        long end = System.nanoTime();
+        progress.accept(1);
+        LoadMetrics.phase("wordnet", "synsets", synsetsEnd - start);
+        LoadMetrics.phase("wordnet", "hyponyms", end - synsetsEnd);
+        recordSizes();
+    }
+
+    /**
+     * Constructs a WordnetGraph from already parsed parts, for example ones read back
+     * from a WordnetSnapshot.
+     */
+    WordnetGraph(WordDictionary dictionary, DiGraph graph) {
+        this.dictionary = dictionary;
+        this.graph = graph;
+        recordSizes();
+    }
+
+    private void recordSizes() {
+        LoadMetrics.size("wordnet", "synsets", dictionary.synsetCount());
+        LoadMetrics.size("wordnet", "words", dictionary.size());
+        LoadMetrics.size("wordnet", "dictionary_bytes", dictionary.memoryBytes());
+        LoadMetrics.size("wordnet", "edges", graph.getEdgeCount());
     }
 
     /**
-     * Loads synset data from the specified file.
+     * Loads synset data from the specified file and returns the dictionary of its words.
      */
-    private void loadSynsets(String synsetsFile) {
+    private WordDictionary loadSynsets(String synsetsFile) {
         In synsetReader = new In(synsetsFile);
+        WordDictionary.Builder dictionary = new WordDictionary.Builder();
         
         while (synsetReader.hasNextLine()) {
             String[] line = synsetReader.readLine().split(",");
             int synsetId = Integer.parseInt(line[0]);
-            String synsetString = line[1];
-            
-            // Ensure the list is large enough
-            while (synsetStrings.size() <= synsetId) {
-                synsetStrings.add(null);
-            }
-            synsetStrings.set(synsetId, synsetString);
-
-            // Create a map associating each word with its indices
-            String[] words = synsetString.split(" ");
-            for (String w : words) {
-                if (wordToIds.containsKey(w)) {
-                    List<Integer> indexList = wordToIds.get(w);
-                    indexList.add(synsetId);
-                    wordToIds.put(w, indexList);
-                } else {
-                    List<Integer> indexList = new ArrayList<>();
-                    indexList.add(synsetId);
-                    wordToIds.put(w, indexList);
-                }
+
+            for (String w : line[1].split(" ")) {
+                dictionary.add(w, synsetId);
             }
         }
+        return dictionary.build();
     }
 
     /**
@@ -70,8 +103,8 @@ public class WordnetGraph {
      * @return the constructed DiGraph
      */
     private DiGraph buildGraph(String hyponymsFile) {
-        int vertexCount = synsetStrings.size();
-        DiGraph graph = new DiGraph(vertexCount);
+        int vertexCount = dictionary.synsetCount();
+        DiGraph.Builder graph = new DiGraph.Builder(vertexCount);
 
         In hyponymReader = new In(hyponymsFile);
         while (hyponymReader.hasNextLine()) {
@@ -84,37 +117,182 @@ public class WordnetGraph {
             }
         }
         
-        return graph;
+        return graph.build();
+    }
+
+    /**
+     * Builds a ReachabilityIndex over the hyponym graph, so that later queries are answered
+     * from the index instead of by traversal. Logs the build time and memory use.
+     *
+     * @return the index, or null if the graph has a cycle and queries have to keep
+     *         traversing it
+     */
+    public ReachabilityIndex buildReachabilityIndex() {
+        try {
+            long start = System.nanoTime();
+            reachability = ReachabilityIndex.build(graph);
+            LoadMetrics.phase("wordnet", "reachability", System.nanoTime() - start);
+            LoadMetrics.size("wordnet", "reachability_bytes", reachability.memoryBytes());
+            logger.info("Built WordNet reachability index: {}", reachability);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Not indexing WordNet reachability: {}", e.getMessage());
+        }
+        return reachability;
     }
 
     /**
      * Finds all hyponyms of the specified word.
+     * The result is cached, so the returned set is immutable.
      * 
      * @param word the word to find hyponyms for
-     * @return a set of hyponym words
+     * @return an alphabetically ordered, immutable set of hyponym words
      */
     public Set<String> findHyponyms(String word) {
-        List<Integer> synsetIds = wordToIds.get(word);
-        if (synsetIds == null || synsetIds.isEmpty()) {
-            return new TreeSet<>();
+        int wordId = dictionary.id(word);
+        if (wordId < 0) {
+            return FrozenWordSet.EMPTY;
         }
+        return hyponymCache.computeIfAbsent(word, w -> computeHyponyms(wordId));
+    }
 
+    private FrozenWordSet computeHyponyms(int wordId) {
         // Find all reachable synset IDs
-        Set<Integer> reachableSynsetIds = new TreeSet<>();
-        for (Integer synsetId : synsetIds) {
-            reachableSynsetIds.addAll(graph.getReachableVertices(synsetId));
+        BitSet reachableSynsetIds = cachedClosure(wordId);
+
+        // Word ids are in alphabetical order, so the set bits are the sorted, distinct words
+        BitSet wordIds = words(reachableSynsetIds);
+        String[] hyponymWords = new String[wordIds.cardinality()];
+        int i = 0;
+        for (int id = wordIds.nextSetBit(0); id >= 0; id = wordIds.nextSetBit(id + 1)) {
+            hyponymWords[i++] = dictionary.word(id);
         }
+        return FrozenWordSet.ofSorted(hyponymWords);
+    }
 
-        // Convert synset IDs to words
-        Set<String> hyponymWords = new TreeSet<>();
-        for (Integer synsetId : reachableSynsetIds) {
-            if (synsetId < synsetStrings.size() && synsetStrings.get(synsetId) != null) {
-                String[] words = synsetStrings.get(synsetId).split(" ");
-                hyponymWords.addAll(Arrays.asList(words));
+    /* Returns the ids of the words in any of SYNSETIDS. */
+    private BitSet words(BitSet synsetIds) {
+        BitSet wordIds = new BitSet(dictionary.size());
+        for (int synsetId = synsetIds.nextSetBit(0); synsetId >= 0; synsetId = synsetIds.nextSetBit(synsetId + 1)) {
+            for (int i = dictionary.memberStart(synsetId); i < dictionary.memberEnd(synsetId); i += 1) {
+                wordIds.set(dictionary.member(i));
             }
         }
-        
-        return hyponymWords;
+        return wordIds;
+    }
+
+    /**
+     * Returns the cache behind findHyponyms, for its statistics.
+     */
+    public BoundedCache<String, FrozenWordSet> hyponymCache() {
+        return hyponymCache;
+    }
+
+    /**
+     * Returns the cache of the synset closure of each word, which every query reads its
+     * closures through, for its statistics.
+     */
+    public BoundedCache<Integer, BitSet> closureCache() {
+        return closureCache;
+    }
+
+    /**
+     * Finds the words that are hyponyms of every word in WORDS.
+     *
+     * The synset closure of each word is a bitmap, read from the closure cache so that
+     * frequently queried words are only traversed once, and the closures are visited
+     * smallest first. The words of the smallest closure are the candidates; they
+     * are filtered by id against each larger closure in turn, where a word survives if
+     * any of its synsets is in that closure, and only the survivors are turned into
+     * Strings. The filtering stops as soon as no candidate is left.
+     *
+     * @param words the words whose common hyponyms to find
+     * @return the common hyponyms in alphabetical order, empty if any word is unknown
+     */
+    public Set<String> findCommonHyponyms(List<String> words) {
+        BitSet[] closures = new BitSet[words.size()];
+        for (int i = 0; i < closures.length; i += 1) {
+            int wordId = dictionary.id(words.get(i));
+            if (wordId < 0) {
+                return new TreeSet<>();
+            }
+            closures[i] = cachedClosure(wordId);
+        }
+        if (closures.length == 0) {
+            return new TreeSet<>();
+        }
+        Arrays.sort(closures, Comparator.comparingInt(BitSet::cardinality));
+
+        // The distinct words of the most selective closure are the only candidates
+        BitSet candidates = words(closures[0]);
+        for (int i = 1; i < closures.length && !candidates.isEmpty(); i += 1) {
+            for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+                if (!anyIn(id, closures[i])) {
+                    candidates.clear(id);
+                }
+            }
+        }
+        Set<String> common = new TreeSet<>();
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            common.add(dictionary.word(id));
+        }
+        return common;
+    }
+
+    private boolean anyIn(int wordId, BitSet closure) {
+        for (int i = dictionary.postingStart(wordId); i < dictionary.postingEnd(wordId); i += 1) {
+            if (closure.get(dictionary.posting(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* Returns the synsets reachable from any synset of word WORDID, which must not be modified. */
+    private BitSet cachedClosure(int wordId) {
+        return closureCache.computeIfAbsent(wordId, this::closure);
+    }
+
+    /* Returns the synsets reachable from any synset of word WORDID, trimmed to its last set bit. */
+    private BitSet closure(int wordId) {
+        BitSet closure = new BitSet(dictionary.synsetCount());
+        for (int i = dictionary.postingStart(wordId); i < dictionary.postingEnd(wordId); i += 1) {
+            addReachable(dictionary.posting(i), closure);
+        }
+        return BitSet.valueOf(closure.toLongArray());
+    }
+
+    /**
+     * Returns whether HYPONYM is a hyponym of WORD, that is whether some synset of HYPONYM
+     * can be reached from some synset of WORD. Every word is a hyponym of itself.
+     */
+    public boolean isHyponym(String hyponym, String word) {
+        int from = dictionary.id(word);
+        int to = dictionary.id(hyponym);
+        if (from < 0 || to < 0) {
+            return false;
+        }
+        ReachabilityIndex index = reachability;
+        if (index == null) {
+            return anyIn(to, cachedClosure(from));
+        }
+        for (int i = dictionary.postingStart(from); i < dictionary.postingEnd(from); i += 1) {
+            for (int j = dictionary.postingStart(to); j < dictionary.postingEnd(to); j += 1) {
+                if (index.reaches(dictionary.posting(i), dictionary.posting(j))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /* Sets the bits of all synsets reachable from SYNSETID, from the index if there is one. */
+    private void addReachable(int synsetId, BitSet into) {
+        ReachabilityIndex index = reachability;
+        if (index != null) {
+            index.addDescendants(synsetId, into);
+            return;
+        }
+        graph.addReachableVertices(synsetId, into);
     }
 
 }
@@ -0,0 +1,124 @@
+package main;
+
+import snapshot.SnapshotFile;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Reads and writes WordnetGraph snapshots. A snapshot holds the distinct synset words
+ * as a UTF-8 arena, each synset as a list of word ids, and the hyponym edges as
+ * the DiGraph's compressed sparse row arrays, so loading one never has to split or parse
+ * text.
+ */
+public final class WordnetSnapshot {
+    /** The snapshot kind of WordNet snapshots. */
+    public static final String KIND = "wordnet";
+
+    private WordnetSnapshot() {
+    }
+
+    /**
+     * Writes GRAPH as a WordNet snapshot at PATH, recording SOURCES as the files it was
+     * compiled from.
+     */
+    public static void write(WordnetGraph graph, Path path, List<Path> sources) {
+        WordDictionary dictionary = graph.dictionary;
+        int synsetCount = graph.graph.getVertexCount();
+
+        try (SnapshotFile.Writer out = SnapshotFile.writer(path, KIND, sources)) {
+            out.beginSection("meta").putInt(synsetCount).putInt(dictionary.size());
+
+            out.beginSection("words");
+            int[] wordOffsets = new int[dictionary.size() + 1];
+            for (int i = 0; i < dictionary.size(); i += 1) {
+                byte[] bytes = dictionary.word(i).getBytes(StandardCharsets.UTF_8);
+                out.putBytes(bytes, 0, bytes.length);
+                wordOffsets[i + 1] = wordOffsets[i] + bytes.length;
+            }
+            putInts(out.beginSection("wordOffsets"), wordOffsets);
+
+            // The dictionary's members are already each synset's word ids
+            out.beginSection("synsetWordOffsets");
+            int memberCount = dictionary.memberStart(dictionary.synsetCount());
+            for (int synset = 0; synset <= synsetCount; synset += 1) {
+                out.putInt(dictionary.memberStart(Math.min(synset, dictionary.synsetCount())));
+            }
+            out.beginSection("synsetWords");
+            for (int i = 0; i < memberCount; i += 1) {
+                out.putInt(dictionary.member(i));
+            }
+
+            DiGraph digraph = graph.graph;
+            out.beginSection("edgeOffsets");
+            for (int v = 0; v < digraph.getVertexCount(); v += 1) {
+                out.putInt(digraph.edgeStart(v));
+            }
+            out.putInt(digraph.getEdgeCount());
+            out.beginSection("edgeTargets");
+            for (int e = 0; e < digraph.getEdgeCount(); e += 1) {
+                out.putInt(digraph.edgeTarget(e));
+            }
+        }
+    }
+
+    /**
+     * Maps the WordNet snapshot at PATH and builds a WordnetGraph from it.
+     *
+     * @throws IllegalArgumentException if PATH is not a readable WordNet snapshot
+     */
+    public static WordnetGraph open(Path path) {
+        return read(SnapshotFile.open(path, KIND));
+    }
+
+    /**
+     * Builds a WordnetGraph from an already opened WordNet snapshot FILE.
+     */
+    public static WordnetGraph read(SnapshotFile file) {
+        ByteBuffer meta = file.section("meta");
+        int synsetCount = meta.getInt();
+        int wordCount = meta.getInt();
+
+        ByteBuffer wordBytes = file.section("words");
+        IntBuffer wordOffsets = file.section("wordOffsets").asIntBuffer();
+        String[] words = new String[wordCount];
+        byte[] scratch = new byte[64];
+        for (int i = 0; i < wordCount; i += 1) {
+            int start = wordOffsets.get(i);
+            int length = wordOffsets.get(i + 1) - start;
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            wordBytes.get(start, scratch, 0, length);
+            words[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        IntBuffer synsetWordOffsets = file.section("synsetWordOffsets").asIntBuffer();
+        IntBuffer synsetWords = file.section("synsetWords").asIntBuffer();
+        WordDictionary.Builder dictionary = new WordDictionary.Builder();
+        for (int synset = 0; synset < synsetCount; synset += 1) {
+            for (int i = synsetWordOffsets.get(synset); i < synsetWordOffsets.get(synset + 1); i += 1) {
+                dictionary.add(words[synsetWords.get(i)], synset);
+            }
+        }
+
+        DiGraph graph = new DiGraph(ints(file.section("edgeOffsets")), ints(file.section("edgeTargets")));
+        return new WordnetGraph(dictionary.build(), graph);
+    }
+
+    private static int[] ints(ByteBuffer section) {
+        IntBuffer buffer = section.asIntBuffer();
+        int[] values = new int[buffer.remaining()];
+        buffer.get(values);
+        return values;
+    }
+
+    private static void putInts(SnapshotFile.Writer out, int[] values) {
+        for (int value : values) {
+            out.putInt(value);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that only goes up, such as the number of requests served. Increments from
+ * many threads do not contend with each other.
+ */
+public final class Counter implements Metric {
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+    }
+
+    /** Adds one. */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Adds N.
+     *
+     * @throws IllegalArgumentException if N is negative
+     */
+    public void add(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Counters cannot go down: " + n);
+        }
+        count.add(n);
+    }
+
+    /** Returns the count. */
+    public long get() {
+        return count.sum();
+    }
+
+    @Override
+    public void write(String name, String labels, StringBuilder out) {
+        MetricsRegistry.sample(out, name, labels, get());
+    }
+}
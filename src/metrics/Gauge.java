@@ -0,0 +1,38 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A value that can go up and down, such as the number of requests in flight or how long
+ * a load phase took.
+ */
+public final class Gauge implements Metric {
+    private final AtomicLong bits = new AtomicLong(Double.doubleToRawLongBits(0));
+
+    Gauge() {
+    }
+
+    /** Sets the value to VALUE. */
+    public void set(double value) {
+        bits.set(Double.doubleToRawLongBits(value));
+    }
+
+    /** Adds DELTA, which may be negative, to the value. */
+    public void add(double delta) {
+        long current;
+        do {
+            current = bits.get();
+        } while (!bits.compareAndSet(current,
+                Double.doubleToRawLongBits(Double.longBitsToDouble(current) + delta)));
+    }
+
+    /** Returns the value. */
+    public double get() {
+        return Double.longBitsToDouble(bits.get());
+    }
+
+    @Override
+    public void write(String name, String labels, StringBuilder out) {
+        MetricsRegistry.sample(out, name, labels, get());
+    }
+}
@@ -0,0 +1,118 @@
+package metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts observations, such as request latencies in seconds, in buckets with fixed upper
+ * bounds. Recording is a binary search and an increment, so it is cheap enough for every
+ * request. Quantiles are estimated by interpolating within the bucket they fall in, so
+ * they are only as precise as the buckets are narrow.
+ */
+public final class Histogram implements Metric {
+    /**
+     * Default bucket bounds in seconds, doubling from half a millisecond to about 33
+     * seconds, which covers everything from a cached response to a slow chart render.
+     */
+    public static final double[] LATENCY_BUCKETS = latencyBuckets();
+
+    private final double[] bounds;
+    private final LongAdder[] counts;
+    private final DoubleAdder sum = new DoubleAdder();
+
+    Histogram(double[] bounds) {
+        for (int i = 1; i < bounds.length; i += 1) {
+            if (!(bounds[i] > bounds[i - 1])) {
+                throw new IllegalArgumentException("Bucket bounds must increase: " + Arrays.toString(bounds));
+            }
+        }
+        this.bounds = bounds.clone();
+        // One more bucket for observations above the last bound.
+        this.counts = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < counts.length; i += 1) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    private static double[] latencyBuckets() {
+        double[] bounds = new double[17];
+        for (int i = 0; i < bounds.length; i += 1) {
+            bounds[i] = 0.0005 * (1 << i);
+        }
+        return bounds;
+    }
+
+    /** Records one observation of VALUE. */
+    public void observe(double value) {
+        int bucket = Arrays.binarySearch(bounds, value);
+        counts[bucket >= 0 ? bucket : -bucket - 1].increment();
+        sum.add(value);
+    }
+
+    /** Records one observation of NANOS nanoseconds, in seconds. */
+    public void observeNanos(long nanos) {
+        observe(nanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /** Returns the number of observations. */
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /** Returns the sum of all observations. */
+    public double sum() {
+        return sum.sum();
+    }
+
+    /**
+     * Returns an estimate of the Q quantile of the observations, or NaN if there are none.
+     * Observations above the last bound are reported as the last bound.
+     *
+     * @throws IllegalArgumentException if Q is not between 0 and 1
+     */
+    public double quantile(double q) {
+        if (!(q >= 0 && q <= 1)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + q);
+        }
+        long[] snapshot = new long[counts.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i += 1) {
+            snapshot[i] = counts[i].sum();
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return Double.NaN;
+        }
+        double rank = q * total;
+        long below = 0;
+        for (int i = 0; i < bounds.length; i += 1) {
+            if (snapshot[i] > 0 && below + snapshot[i] >= rank) {
+                double lower = i == 0 ? 0 : bounds[i - 1];
+                return lower + (bounds[i] - lower) * (rank - below) / snapshot[i];
+            }
+            below += snapshot[i];
+        }
+        return bounds.length == 0 ? Double.NaN : bounds[bounds.length - 1];
+    }
+
+    @Override
+    public void write(String name, String labels, StringBuilder out) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < bounds.length; i += 1) {
+            cumulative += counts[i].sum();
+            MetricsRegistry.sample(out, name + "_bucket",
+                    prefix + "le=\"" + MetricsRegistry.format(bounds[i]) + "\"", cumulative);
+        }
+        cumulative += counts[bounds.length].sum();
+        MetricsRegistry.sample(out, name + "_bucket", prefix + "le=\"+Inf\"", cumulative);
+        MetricsRegistry.sample(out, name + "_sum", labels, sum());
+        MetricsRegistry.sample(out, name + "_count", labels, cumulative);
+    }
+}
@@ -0,0 +1,30 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long each phase of loading a dataset took and how big the result is, as
+ * the gauges ngordnet_load_phase_seconds{dataset,phase} and
+ * ngordnet_dataset_size{dataset,unit} of the default registry. A reload overwrites them.
+ */
+public final class LoadMetrics {
+    private LoadMetrics() {
+    }
+
+    /**
+     * Records that PHASE of loading DATASET took NANOS nanoseconds.
+     */
+    public static void phase(String dataset, String phase, long nanos) {
+        MetricsRegistry.defaultRegistry().gauge("ngordnet_load_phase_seconds",
+                        "Time taken by each phase of the last load of a dataset.", "dataset", dataset, "phase", phase)
+                .set(nanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Records that DATASET holds SIZE of UNIT, for example words or bytes.
+     */
+    public static void size(String dataset, String unit, long size) {
+        MetricsRegistry.defaultRegistry().gauge("ngordnet_dataset_size",
+                "Size of a loaded dataset.", "dataset", dataset, "unit", unit).set(size);
+    }
+}
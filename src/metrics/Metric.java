@@ -0,0 +1,12 @@
+package metrics;
+
+/**
+ * One labelled series of a metric family, as kept by a MetricsRegistry.
+ */
+interface Metric {
+    /**
+     * Appends the samples of this series to OUT in the Prometheus text format. NAME is
+     * the family name and LABELS the rendered label pairs without braces, possibly empty.
+     */
+    void write(String name, String labels, StringBuilder out);
+}
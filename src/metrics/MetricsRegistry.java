@@ -0,0 +1,167 @@
+package metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A set of named metric families, each holding one series per combination of label
+ * values, that can be written out in the Prometheus text exposition format (version
+ * 0.0.4) for a scraper to collect.
+ *
+ * Labels are given as alternating names and values, for example
+ * counter("ngordnet_requests_total", "Requests served", "handler", "hyponyms").
+ * Asking for a series that already exists returns it, so code that records metrics can
+ * simply look its series up once and keep it. Families and series are written sorted
+ * by name and labels.
+ *
+ * Besides the metrics recorded here, families can be backed by a DoubleSupplier that is
+ * read at scrape time, which suits values some other object already keeps count of.
+ */
+public class MetricsRegistry {
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    /** The content type of the text written by scrape(). */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private enum Type {
+        COUNTER, GAUGE, HISTOGRAM;
+
+        String text() {
+            return name().toLowerCase();
+        }
+    }
+
+    private record Family(String name, String help, Type type, Map<String, Metric> series) { }
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * Returns the registry the server's handlers and data loaders record to.
+     */
+    public static MetricsRegistry defaultRegistry() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the counter NAME with the given LABELS, creating it if needed.
+     *
+     * @throws IllegalArgumentException if NAME is taken by a metric of another type, or
+     *                                  the names or labels are malformed
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) series(name, help, Type.COUNTER, labels, Counter::new);
+    }
+
+    /**
+     * Makes the counter NAME with the given LABELS report the value of COUNT, which must
+     * never go down. Does nothing if that series already exists.
+     */
+    public void counter(String name, String help, DoubleSupplier count, String... labels) {
+        series(name, help, Type.COUNTER, labels, () -> supplied(count));
+    }
+
+    /**
+     * Returns the gauge NAME with the given LABELS, creating it if needed.
+     */
+    public Gauge gauge(String name, String help, String... labels) {
+        return (Gauge) series(name, help, Type.GAUGE, labels, Gauge::new);
+    }
+
+    /**
+     * Makes the gauge NAME with the given LABELS report the value of VALUE. Does nothing
+     * if that series already exists.
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        series(name, help, Type.GAUGE, labels, () -> supplied(value));
+    }
+
+    /**
+     * Returns the histogram NAME with the given LABELS and BOUNDS, creating it if needed.
+     */
+    public Histogram histogram(String name, String help, double[] bounds, String... labels) {
+        return (Histogram) series(name, help, Type.HISTOGRAM, labels, () -> new Histogram(bounds));
+    }
+
+    private static Metric supplied(DoubleSupplier value) {
+        return (name, labels, out) -> sample(out, name, labels, value.getAsDouble());
+    }
+
+    private Metric series(String name, String help, Type type, String[] labels, Supplier<Metric> create) {
+        if (!name.matches("[a-zA-Z_:][a-zA-Z0-9_:]*")) {
+            throw new IllegalArgumentException("Bad metric name: " + name);
+        }
+        Family family = families.computeIfAbsent(name,
+                n -> new Family(n, help, type, new ConcurrentSkipListMap<>()));
+        if (family.type() != type) {
+            throw new IllegalArgumentException(name + " is a " + family.type().text() + ", not a " + type.text());
+        }
+        return family.series().computeIfAbsent(renderLabels(labels), l -> create.get());
+    }
+
+    private static String renderLabels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name and value pairs");
+        }
+        StringBuilder rendered = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (!labels[i].matches("[a-zA-Z_][a-zA-Z0-9_]*")) {
+                throw new IllegalArgumentException("Bad label name: " + labels[i]);
+            }
+            if (i > 0) {
+                rendered.append(',');
+            }
+            rendered.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j += 1) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\\' -> rendered.append("\\\\");
+                    case '"' -> rendered.append("\\\"");
+                    case '\n' -> rendered.append("\\n");
+                    default -> rendered.append(c);
+                }
+            }
+            rendered.append('"');
+        }
+        return rendered.toString();
+    }
+
+    /**
+     * Returns every metric in the Prometheus text format.
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name()).append(' ')
+                    .append(family.help().replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            out.append("# TYPE ").append(family.name()).append(' ').append(family.type().text()).append('\n');
+            family.series().forEach((labels, metric) -> metric.write(family.name(), labels, out));
+        }
+        return out.toString();
+    }
+
+    /* Appends one sample line. */
+    static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(format(value)).append('\n');
+    }
+
+    /* Formats VALUE as Prometheus expects, writing whole numbers without a fraction. */
+    static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,85 @@
+package metrics;
+
+/**
+ * The metrics of one request handler: requests served, requests that failed, requests
+ * in flight, and a latency histogram with its estimated 50th, 95th and 99th percentiles.
+ *
+ * Usage:
+ *   long start = metrics.start();
+ *   boolean failed = true;
+ *   try {
+ *       ... handle the request ...
+ *       failed = false;
+ *   } finally {
+ *       metrics.stop(start, failed);
+ *   }
+ */
+public final class RequestMetrics {
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+    private final Counter requests;
+    private final Counter errors;
+    private final Gauge inFlight;
+    private final Histogram latency;
+
+    private RequestMetrics(MetricsRegistry registry, String handler) {
+        requests = registry.counter("ngordnet_requests_total", "Requests handled.", "handler", handler);
+        errors = registry.counter("ngordnet_request_errors_total", "Requests that failed with an exception.",
+                "handler", handler);
+        inFlight = registry.gauge("ngordnet_requests_in_flight", "Requests being handled now.", "handler", handler);
+        latency = registry.histogram("ngordnet_request_duration_seconds", "Time taken to handle a request.",
+                Histogram.LATENCY_BUCKETS, "handler", handler);
+        for (double q : QUANTILES) {
+            registry.gauge("ngordnet_request_duration_quantile_seconds",
+                    "Request latency percentiles estimated from ngordnet_request_duration_seconds.",
+                    () -> latency.quantile(q), "handler", handler, "quantile", Double.toString(q));
+        }
+    }
+
+    /**
+     * Returns the metrics of the handler called HANDLER in REGISTRY, creating them if needed.
+     */
+    public static RequestMetrics of(MetricsRegistry registry, String handler) {
+        return new RequestMetrics(registry, handler);
+    }
+
+    /**
+     * Records that a request started and returns the time it started at.
+     */
+    public long start() {
+        inFlight.add(1);
+        return System.nanoTime();
+    }
+
+    /**
+     * Records that the request started at START finished, and whether it FAILED.
+     */
+    public void stop(long start, boolean failed) {
+        latency.observeNanos(System.nanoTime() - start);
+        inFlight.add(-1);
+        requests.increment();
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    /** Returns the number of requests handled. */
+    public long requests() {
+        return requests.get();
+    }
+
+    /** Returns the number of requests that failed. */
+    public long errors() {
+        return errors.get();
+    }
+
+    /** Returns the number of requests being handled now. */
+    public int inFlight() {
+        return (int) inFlight.get();
+    }
+
+    /** Returns the latency histogram, in seconds. */
+    public Histogram latency() {
+        return latency;
+    }
+}
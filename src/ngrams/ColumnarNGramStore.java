@@ -0,0 +1,336 @@
+package ngrams;
+
+import java.util.Arrays;
+
+/**
+ * An NGramStore that keeps all counts in primitive arrays. Every word gets a dense id,
+ * and its counts live in one contiguous column of a shared double[], covering the years
+ * from the word's first record to its last. Years inside that span without a record hold
+ * NaN. The total counts are a single column indexed by year - TimeSeries.MIN_YEAR.
+ *
+ * A lookup is an index computation and an array read, and each stored year costs
+ * 8 bytes instead of a boxed Integer, a boxed Double and a tree node.
+ *
+ * Alongside every column the store keeps its running sums, with missing years counting
+ * as 0, so that rangeCount() is two array reads and a subtraction. The counts in the
+ * NGram files are integers, so the differences are exact as long as a word's total
+ * stays below 2^53.
+ */
+public class ColumnarNGramStore implements NGramStore {
+
+    private static final int YEAR_SPAN = TimeSeries.MAX_YEAR - TimeSeries.MIN_YEAR + 1;
+
+    private final WordIndex index;
+    private final int[] firstYears;
+    private final int[] lastYears;
+    private final int[] offsets;
+    private final double[] counts;
+    /* prefixes[offsets[id] + i] is the sum of counts[offsets[id] .. offsets[id] + i]. */
+    private final double[] prefixes;
+    private final double[] totals;
+    /* totalPrefixes[i] is the sum of totals[0 .. i - 1]. */
+    private final double[] totalPrefixes;
+    private final int firstTotalYear;
+    private final int lastTotalYear;
+
+    private ColumnarNGramStore(WordIndex index, int[] firstYears, int[] lastYears,
+                               int[] offsets, double[] counts, double[] totals) {
+        this.index = index;
+        this.firstYears = firstYears;
+        this.lastYears = lastYears;
+        this.offsets = offsets;
+        this.counts = counts;
+        this.totals = totals;
+        this.prefixes = new double[counts.length];
+        for (int id = 0; id < offsets.length; id += 1) {
+            prefixSums(counts, offsets[id], lastYears[id] - firstYears[id] + 1, prefixes, 0);
+        }
+        this.totalPrefixes = new double[YEAR_SPAN + 1];
+        prefixSums(totals, 0, YEAR_SPAN, totalPrefixes, 1);
+
+        int first = TimeSeries.MAX_YEAR;
+        int last = TimeSeries.MIN_YEAR - 1;
+        for (int i = 0; i < YEAR_SPAN; i += 1) {
+            if (!Double.isNaN(totals[i])) {
+                first = Math.min(first, TimeSeries.MIN_YEAR + i);
+                last = TimeSeries.MIN_YEAR + i;
+            }
+        }
+        this.firstTotalYear = first;
+        this.lastTotalYear = last;
+    }
+
+    @Override
+    public int wordId(String word) {
+        return index.id(word);
+    }
+
+    @Override
+    public int wordCount() {
+        return index.size();
+    }
+
+    @Override
+    public String word(int id) {
+        return index.word(id);
+    }
+
+    @Override
+    public int firstYear(int id) {
+        return firstYears[id];
+    }
+
+    @Override
+    public int lastYear(int id) {
+        return lastYears[id];
+    }
+
+    @Override
+    public double count(int id, int year) {
+        if (year < firstYears[id] || year > lastYears[id]) {
+            return Double.NaN;
+        }
+        return counts[offsets[id] + year - firstYears[id]];
+    }
+
+    @Override
+    public void counts(int id, int startYear, double[] into, int offset, int length) {
+        copyRange(counts, offsets[id], firstYears[id], lastYears[id], startYear, into, offset, length);
+    }
+
+    @Override
+    public int firstTotalYear() {
+        return firstTotalYear;
+    }
+
+    @Override
+    public int lastTotalYear() {
+        return lastTotalYear;
+    }
+
+    @Override
+    public double totalCount(int year) {
+        if (year < TimeSeries.MIN_YEAR || year > TimeSeries.MAX_YEAR) {
+            return Double.NaN;
+        }
+        return totals[year - TimeSeries.MIN_YEAR];
+    }
+
+    @Override
+    public void totalCounts(int startYear, double[] into, int offset, int length) {
+        copyRange(totals, 0, TimeSeries.MIN_YEAR, TimeSeries.MAX_YEAR, startYear, into, offset, length);
+    }
+
+    /* Copies the LENGTH years from STARTYEAR of the column at COLUMN[START], which covers
+     * FIRST to LAST, to INTO[OFFSET], filling the years outside the column with NaN. */
+    private static void copyRange(double[] column, int start, int first, int last,
+                                  int startYear, double[] into, int offset, int length) {
+        int from = Math.max(startYear, first);
+        int to = Math.min(startYear + length - 1, last);
+        if (from > to) {
+            Arrays.fill(into, offset, offset + length, Double.NaN);
+            return;
+        }
+        Arrays.fill(into, offset, offset + from - startYear, Double.NaN);
+        System.arraycopy(column, start + from - first, into, offset + from - startYear, to - from + 1);
+        Arrays.fill(into, offset + to - startYear + 1, offset + length, Double.NaN);
+    }
+
+    @Override
+    public double rangeCount(int id, int startYear, int endYear) {
+        int first = firstYears[id];
+        int from = Math.max(startYear, first);
+        int to = Math.min(endYear, lastYears[id]);
+        if (from > to) {
+            return 0;
+        }
+        int base = offsets[id] - first;
+        double before = from == first ? 0 : prefixes[base + from - 1];
+        return prefixes[base + to] - before;
+    }
+
+    @Override
+    public double rangeTotalCount(int startYear, int endYear) {
+        int from = Math.max(startYear, TimeSeries.MIN_YEAR) - TimeSeries.MIN_YEAR;
+        int to = Math.min(endYear, TimeSeries.MAX_YEAR) - TimeSeries.MIN_YEAR;
+        if (from > to) {
+            return 0;
+        }
+        return totalPrefixes[to + 1] - totalPrefixes[from];
+    }
+
+    /* Writes the running sums of VALUES[START .. START + LENGTH - 1] to the same positions
+     * of SUMS, shifted by SHIFT. NaN counts as 0. */
+    static void prefixSums(double[] values, int start, int length, double[] sums, int shift) {
+        double sum = 0;
+        for (int i = start; i < start + length; i += 1) {
+            if (!Double.isNaN(values[i])) {
+                sum += values[i];
+            }
+            sums[i + shift] = sum;
+        }
+    }
+
+    /**
+     * Returns an estimate of the heap used by this store, excluding the word Strings.
+     */
+    public long memoryBytes() {
+        return index.memoryBytes() + 12L * firstYears.length + 16L * counts.length
+                + 16L * totals.length;
+    }
+
+    /**
+     * Accumulates word and total counts in any order and freezes them into a
+     * ColumnarNGramStore. Repeated rows for the same word and year are summed.
+     */
+    public static class Builder {
+        private final WordIndex index = new WordIndex();
+        /* Per-word growable columns; columns[id][i] is the count for year bases[id] + i. */
+        private double[][] columns = new double[1024][];
+        private int[] bases = new int[1024];
+        private int[] firstYears = new int[1024];
+        private int[] lastYears = new int[1024];
+        private final double[] totals = new double[YEAR_SPAN];
+
+        public Builder() {
+            Arrays.fill(totals, Double.NaN);
+        }
+
+        /**
+         * Adds COUNT occurrences of WORD in YEAR.
+         *
+         * @throws IllegalArgumentException if YEAR is outside [MIN_YEAR, MAX_YEAR]
+         */
+        public Builder addCount(String word, int year, double count) {
+            checkYear(year);
+            addCount(idOrAdd(word), year, count);
+            return this;
+        }
+
+        /* Returns the id of WORD, adding it if needed. */
+        int idOrAdd(String word) {
+            int id = index.idOrAdd(word);
+            if (id == columns.length) {
+                int capacity = id * 2;
+                columns = Arrays.copyOf(columns, capacity);
+                bases = Arrays.copyOf(bases, capacity);
+                firstYears = Arrays.copyOf(firstYears, capacity);
+                lastYears = Arrays.copyOf(lastYears, capacity);
+            }
+            return id;
+        }
+
+        /* Adds COUNT occurrences of the word with the given ID in YEAR. */
+        void addCount(int id, int year, double count) {
+            checkYear(year);
+            double[] column = columns[id];
+            if (column == null) {
+                column = new double[Math.min(16, TimeSeries.MAX_YEAR + 1 - year)];
+                Arrays.fill(column, Double.NaN);
+                columns[id] = column;
+                bases[id] = year;
+                firstYears[id] = year;
+                lastYears[id] = year;
+            } else if (year < bases[id] || year >= bases[id] + column.length) {
+                column = regrow(id, year);
+            }
+
+            int i = year - bases[id];
+            column[i] = Double.isNaN(column[i]) ? count : column[i] + count;
+            firstYears[id] = Math.min(firstYears[id], year);
+            lastYears[id] = Math.max(lastYears[id], year);
+        }
+
+        /**
+         * Adds COUNT to the total number of words recorded in YEAR.
+         *
+         * @throws IllegalArgumentException if YEAR is outside [MIN_YEAR, MAX_YEAR]
+         */
+        public Builder addTotal(int year, double count) {
+            checkYear(year);
+            int i = year - TimeSeries.MIN_YEAR;
+            totals[i] = Double.isNaN(totals[i]) ? count : totals[i] + count;
+            return this;
+        }
+
+        /**
+         * Adds everything accumulated in OTHER to this builder. Words first seen in OTHER
+         * take over its columns without copying, so OTHER must not be used afterwards.
+         */
+        void merge(Builder other) {
+            for (int otherId = 0; otherId < other.index.size(); otherId += 1) {
+                double[] column = other.columns[otherId];
+                if (column == null) {
+                    continue;
+                }
+                int id = idOrAdd(other.index.word(otherId));
+                if (columns[id] == null) {
+                    columns[id] = column;
+                    bases[id] = other.bases[otherId];
+                    firstYears[id] = other.firstYears[otherId];
+                    lastYears[id] = other.lastYears[otherId];
+                    continue;
+                }
+                for (int year = other.firstYears[otherId]; year <= other.lastYears[otherId]; year += 1) {
+                    double count = column[year - other.bases[otherId]];
+                    if (!Double.isNaN(count)) {
+                        addCount(id, year, count);
+                    }
+                }
+            }
+            for (int i = 0; i < YEAR_SPAN; i += 1) {
+                if (!Double.isNaN(other.totals[i])) {
+                    addTotal(TimeSeries.MIN_YEAR + i, other.totals[i]);
+                }
+            }
+        }
+
+        /**
+         * Packs the accumulated columns back to back and returns the finished store.
+         */
+        public ColumnarNGramStore build() {
+            int size = index.size();
+            int[] offsets = new int[size];
+            long length = 0;
+            for (int id = 0; id < size; id += 1) {
+                offsets[id] = (int) length;
+                length += lastYears[id] - firstYears[id] + 1;
+            }
+            if (length > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Too many word-years for a heap store: " + length);
+            }
+
+            double[] counts = new double[(int) length];
+            for (int id = 0; id < size; id += 1) {
+                System.arraycopy(columns[id], firstYears[id] - bases[id], counts, offsets[id],
+                        lastYears[id] - firstYears[id] + 1);
+                columns[id] = null;
+            }
+            index.trim();
+            return new ColumnarNGramStore(index, Arrays.copyOf(firstYears, size),
+                    Arrays.copyOf(lastYears, size), offsets, counts, totals.clone());
+        }
+
+        /* Widens the column of word ID so that it covers YEAR. Rows usually arrive in
+         * ascending year order, so the column grows geometrically towards later years. */
+        private double[] regrow(int id, int year) {
+            double[] column = columns[id];
+            int base = Math.min(bases[id], year);
+            int end = Math.max(bases[id] + column.length, year + 1);
+            end = Math.min(Math.max(end, base + column.length * 2), TimeSeries.MAX_YEAR + 1);
+
+            double[] grown = new double[end - base];
+            Arrays.fill(grown, Double.NaN);
+            System.arraycopy(column, 0, grown, bases[id] - base, column.length);
+            columns[id] = grown;
+            bases[id] = base;
+            return grown;
+        }
+
+        private static void checkYear(int year) {
+            if (year < TimeSeries.MIN_YEAR || year > TimeSeries.MAX_YEAR) {
+                throw new IllegalArgumentException("Year out of range: " + year);
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package ngrams;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A time series over a contiguous range of years, kept as one primitive double per year
+ * starting at startYear(). A year without data holds NaN, as in NGramStore, so a
+ * DenseTimeSeries has the same "missing year" semantics as a TimeSeries while its
+ * arithmetic is a loop over an array that boxes nothing. The one difference is that a
+ * NaN value, such as 0 divided by 0, cannot be told apart from a year without data.
+ *
+ * plus and dividedBy return new series and behave exactly like their TimeSeries
+ * counterparts. addInPlace and divideInPlace do the same arithmetic into this series,
+ * so a sum over many series needs a single array however many are added to it.
+ */
+public final class DenseTimeSeries {
+    private final int startYear;
+    private final double[] values;
+
+    /**
+     * Constructs a series covering STARTYEAR to ENDYEAR, inclusive of both ends, with no
+     * data in any year. ENDYEAR may be STARTYEAR - 1, for a series covering no years.
+     *
+     * @throws IllegalArgumentException if ENDYEAR is before STARTYEAR - 1
+     */
+    public DenseTimeSeries(int startYear, int endYear) {
+        if ((long) endYear < (long) startYear - 1) {
+            throw new IllegalArgumentException("End year " + endYear + " is before start year " + startYear);
+        }
+        this.startYear = startYear;
+        this.values = new double[endYear - startYear + 1];
+        Arrays.fill(values, Double.NaN);
+    }
+
+    private DenseTimeSeries(int startYear, double[] values) {
+        this.startYear = startYear;
+        this.values = values;
+    }
+
+    /**
+     * Returns a series holding the data of TS, covering its first to its last year.
+     */
+    public static DenseTimeSeries of(TimeSeries ts) {
+        if (ts.isEmpty()) {
+            return new DenseTimeSeries(0, -1);
+        }
+        DenseTimeSeries dense = new DenseTimeSeries(ts.firstKey(), ts.lastKey());
+        for (Map.Entry<Integer, Double> entry : ts.entrySet()) {
+            dense.values[entry.getKey() - dense.startYear] = entry.getValue();
+        }
+        return dense;
+    }
+
+    /**
+     * Returns a TimeSeries holding the years of this series that have data.
+     */
+    public TimeSeries toTimeSeries() {
+        TimeSeries ts = new TimeSeries();
+        for (int i = 0; i < values.length; i += 1) {
+            if (!Double.isNaN(values[i])) {
+                ts.put(startYear + i, values[i]);
+            }
+        }
+        return ts;
+    }
+
+    /**
+     * Returns the first year this series covers.
+     */
+    public int startYear() {
+        return startYear;
+    }
+
+    /**
+     * Returns the last year this series covers, startYear() - 1 if it covers none.
+     */
+    public int endYear() {
+        return startYear + values.length - 1;
+    }
+
+    /**
+     * Returns the number of years this series covers, with or without data.
+     */
+    public int length() {
+        return values.length;
+    }
+
+    /**
+     * Returns the value for YEAR, or NaN if the year has no data or is not covered.
+     */
+    public double get(int year) {
+        int i = year - startYear;
+        return i >= 0 && i < values.length ? values[i] : Double.NaN;
+    }
+
+    /**
+     * Sets the value for YEAR to VALUE. Setting NaN removes the year's data.
+     *
+     * @throws IllegalArgumentException if YEAR is not covered by this series
+     */
+    public void set(int year, double value) {
+        values[index(year)] = value;
+    }
+
+    /**
+     * Adds VALUE to the value for YEAR, or sets it if the year has no data yet.
+     *
+     * @throws IllegalArgumentException if YEAR is not covered by this series
+     */
+    public void add(int year, double value) {
+        int i = index(year);
+        values[i] = plus(values[i], value);
+    }
+
+    private int index(int year) {
+        int i = year - startYear;
+        if (i < 0 || i >= values.length) {
+            throw new IllegalArgumentException("Year " + year + " is outside " + startYear + "-" + endYear());
+        }
+        return i;
+    }
+
+    /**
+     * Returns the number of years that have data.
+     */
+    public int size() {
+        int size = 0;
+        for (double value : values) {
+            if (!Double.isNaN(value)) {
+                size += 1;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns whether no year has data.
+     */
+    public boolean isEmpty() {
+        for (double value : values) {
+            if (!Double.isNaN(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the data of every year, keeping the years covered.
+     */
+    public void clear() {
+        Arrays.fill(values, Double.NaN);
+    }
+
+    /**
+     * Returns the sum of the values of the years that have data, or 0 if none do.
+     */
+    public double sum() {
+        return SeriesKernels.get().sum(values, 0, values.length);
+    }
+
+    /**
+     * Returns the year-wise sum of this series and TS, covering the years either covers.
+     * As in TimeSeries.plus, a year with data in only one of them keeps that value.
+     */
+    public DenseTimeSeries plus(DenseTimeSeries ts) {
+        if (ts.values.length == 0) {
+            return new DenseTimeSeries(startYear, values.clone());
+        }
+        if (values.length == 0) {
+            return new DenseTimeSeries(ts.startYear, ts.values.clone());
+        }
+        int from = Math.min(startYear, ts.startYear);
+        int to = Math.max(endYear(), ts.endYear());
+        DenseTimeSeries sum = new DenseTimeSeries(from, to);
+        System.arraycopy(values, 0, sum.values, startYear - from, values.length);
+        sum.addInPlace(ts);
+        return sum;
+    }
+
+    /**
+     * Adds TS to this series year by year and returns this series. A year with data only
+     * in TS takes its value.
+     *
+     * @throws IllegalArgumentException if TS has data in a year this series does not cover
+     */
+    public DenseTimeSeries addInPlace(DenseTimeSeries ts) {
+        // TS's indices of the years this series covers are [from, to)
+        int from = Math.min(Math.max(0, startYear - ts.startYear), ts.values.length);
+        int to = Math.max(Math.min(ts.values.length, endYear() - ts.startYear + 1), from);
+        int outside = firstWithData(ts.values, 0, from);
+        if (outside < 0) {
+            outside = firstWithData(ts.values, to, ts.values.length);
+        }
+        if (outside >= 0) {
+            throw new IllegalArgumentException("Year " + (ts.startYear + outside) + " is outside "
+                    + startYear + "-" + endYear());
+        }
+        SeriesKernels.get().add(values, ts.startYear + from - startYear, ts.values, from, to - from);
+        return this;
+    }
+
+    /**
+     * Returns the quotient of the value for each year of this series divided by the value
+     * for the same year in TS, covering the same years as this series.
+     *
+     * @throws IllegalArgumentException if TS has no data in a year this series has data in
+     */
+    public DenseTimeSeries dividedBy(DenseTimeSeries ts) {
+        return new DenseTimeSeries(startYear, values.clone()).divideInPlace(ts);
+    }
+
+    /**
+     * Divides the value for each year of this series by the value for the same year in TS
+     * and returns this series.
+     *
+     * @throws IllegalArgumentException if TS has no data in a year this series has data in
+     */
+    public DenseTimeSeries divideInPlace(DenseTimeSeries ts) {
+        // This series' indices of the years TS covers are [from, to)
+        int from = Math.min(Math.max(0, ts.startYear - startYear), values.length);
+        int to = Math.max(Math.min(values.length, ts.endYear() - startYear + 1), from);
+        int missing = firstWithData(values, 0, from);
+        if (missing < 0) {
+            missing = SeriesKernels.get().divide(values, from, ts.values, startYear + from - ts.startYear, to - from);
+            missing = missing < 0 ? firstWithData(values, to, values.length) : from + missing;
+        }
+        if (missing >= 0) {
+            throw new IllegalArgumentException("No value for year " + (startYear + missing));
+        }
+        return this;
+    }
+
+    /* Returns the first index in [FROM, TO) of VALUES that is not NaN, or -1. */
+    private static int firstWithData(double[] values, int from, int to) {
+        for (int i = from; i < to; i += 1) {
+            if (!Double.isNaN(values[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /* The values, one per year from startYear, for the kernels of this package. */
+    double[] values() {
+        return values;
+    }
+
+    /* Adds two values where NaN means no data, so NaN + x is x. */
+    static double plus(double a, double b) {
+        return Double.isNaN(a) ? b : Double.isNaN(b) ? a : a + b;
+    }
+
+    @Override
+    public String toString() {
+        return toTimeSeries().toString();
+    }
+}
@@ -0,0 +1,47 @@
+package ngrams;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Chooses the SeriesKernels once, the first time SeriesKernels.get() is called, from
+ * the system property ngrams.kernels: "auto" (the default), "vector" or "scalar". A
+ * bad choice fails that call with an ExceptionInInitializerError and every later one
+ * with NoClassDefFoundError, which is why Main makes the first call at startup.
+ */
+final class KernelSelection {
+    private static final Logger logger = LoggerFactory.getLogger(SeriesKernels.class);
+
+    static final SeriesKernels SELECTED = select(System.getProperty("ngrams.kernels", "auto"));
+
+    private KernelSelection() {
+    }
+
+    /* Loads the vector kernels reflectively, so that this class links without the
+     * jdk.incubator.vector module and without ngrams.simd having been compiled. */
+    static SeriesKernels vector() {
+        try {
+            return (SeriesKernels) Class.forName("ngrams.simd.VectorSeriesKernels")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.debug("Vector kernels unavailable", e);
+            return null;
+        }
+    }
+
+    private static SeriesKernels select(String choice) {
+        SeriesKernels kernels = switch (choice) {
+            case "scalar" -> SeriesKernels.scalar();
+            case "vector", "auto" -> vector();
+            default -> throw new IllegalArgumentException("Unknown ngrams.kernels: " + choice);
+        };
+        if (kernels == null) {
+            if (choice.equals("vector")) {
+                throw new IllegalStateException("Vector kernels need --add-modules jdk.incubator.vector");
+            }
+            kernels = SeriesKernels.scalar();
+        }
+        logger.info("Using {} time series kernels", kernels);
+        return kernels;
+    }
+}
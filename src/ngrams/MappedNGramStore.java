@@ -0,0 +1,274 @@
+package ngrams;
+
+import snapshot.MappedSegment;
+import snapshot.SnapshotFile;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * An NGramStore that reads straight out of a memory-mapped snapshot file. The layout
+ * mirrors ColumnarNGramStore: per-word year bounds and column offsets, one shared column
+ * of counts with a parallel column of running sums, and the total counts indexed by
+ * year - MIN_YEAR. The vocabulary is stored
+ * as a UTF-8 arena with an open-addressing hash table, so opening a snapshot does not
+ * have to rebuild any index on the heap.
+ *
+ * Everything but the totals is read through long-addressed MappedSegments, so neither
+ * the heap nor the 2GB limit of a single mapping bounds the size of the corpus; only the
+ * TimeSeries a query returns are ever materialized.
+ *
+ * Use write() to compile any NGramStore into a snapshot, or OffHeapNGramWriter to compile
+ * the text files directly without loading them first.
+ */
+public class MappedNGramStore implements NGramStore {
+    /** The snapshot kind of ngram snapshots. */
+    public static final String KIND = "ngrams";
+
+    private static final int YEAR_SPAN = TimeSeries.MAX_YEAR - TimeSeries.MIN_YEAR + 1;
+
+    private final SnapshotFile file;
+    private final int wordCount;
+    private final MappedSegment firstYears;
+    private final MappedSegment lastYears;
+    private final MappedSegment offsets;
+    private final MappedSegment counts;
+    private final MappedSegment prefixes;
+    private final DoubleBuffer totals;
+    private final double[] totalPrefixes;
+    private final MappedSegment wordOffsets;
+    private final MappedSegment words;
+    private final MappedSegment table;
+    private final long tableMask;
+    private final int firstTotalYear;
+    private final int lastTotalYear;
+
+    private MappedNGramStore(SnapshotFile file) {
+        this.file = file;
+        ByteBuffer meta = file.section("meta");
+        this.wordCount = meta.getInt();
+        this.firstYears = file.segment("firstYears");
+        this.lastYears = file.segment("lastYears");
+        this.offsets = file.segment("offsets");
+        this.counts = file.segment("counts");
+        this.prefixes = file.segment("prefixes");
+        this.totals = file.section("totals").asDoubleBuffer();
+        this.wordOffsets = file.segment("wordOffsets");
+        this.words = file.segment("words");
+        this.table = file.segment("wordTable");
+        long slots = table.byteSize() / 4;
+        if (firstYears.byteSize() != 4L * wordCount || totals.limit() != YEAR_SPAN
+                || prefixes.byteSize() != counts.byteSize() || Long.bitCount(slots) != 1) {
+            throw new IllegalArgumentException("Inconsistent ngram snapshot: " + file.path());
+        }
+        this.tableMask = slots - 1;
+
+        int first = TimeSeries.MAX_YEAR;
+        int last = TimeSeries.MIN_YEAR - 1;
+        for (int i = 0; i < YEAR_SPAN; i += 1) {
+            if (!Double.isNaN(totals.get(i))) {
+                first = Math.min(first, TimeSeries.MIN_YEAR + i);
+                last = TimeSeries.MIN_YEAR + i;
+            }
+        }
+        this.firstTotalYear = first;
+        this.lastTotalYear = last;
+
+        double[] totalValues = new double[YEAR_SPAN];
+        totals.get(0, totalValues);
+        this.totalPrefixes = new double[YEAR_SPAN + 1];
+        ColumnarNGramStore.prefixSums(totalValues, 0, YEAR_SPAN, totalPrefixes, 1);
+    }
+
+    /**
+     * Maps the ngram snapshot at PATH.
+     *
+     * @throws IllegalArgumentException if PATH is not a readable ngram snapshot
+     */
+    public static MappedNGramStore open(Path path) {
+        return new MappedNGramStore(SnapshotFile.open(path, KIND));
+    }
+
+    /**
+     * Returns the snapshot file this store reads from.
+     */
+    public SnapshotFile file() {
+        return file;
+    }
+
+    @Override
+    public int wordId(String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        for (long i = WordIndex.mix(word.hashCode()) & tableMask; ; i = (i + 1) & tableMask) {
+            int slot = table.getInt(i << 2);
+            if (slot == 0) {
+                return -1;
+            }
+            if (wordEquals(slot - 1, bytes)) {
+                return slot - 1;
+            }
+        }
+    }
+
+    private boolean wordEquals(int id, byte[] bytes) {
+        long start = wordOffsets.getLong((long) id << 3);
+        long end = wordOffsets.getLong((long) (id + 1) << 3);
+        if (end - start != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i += 1) {
+            if (words.getByte(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int wordCount() {
+        return wordCount;
+    }
+
+    @Override
+    public String word(int id) {
+        long start = wordOffsets.getLong((long) id << 3);
+        byte[] bytes = new byte[(int) (wordOffsets.getLong((long) (id + 1) << 3) - start)];
+        words.getBytes(start, bytes, 0, bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int firstYear(int id) {
+        return firstYears.getInt((long) id << 2);
+    }
+
+    @Override
+    public int lastYear(int id) {
+        return lastYears.getInt((long) id << 2);
+    }
+
+    @Override
+    public double count(int id, int year) {
+        int first = firstYear(id);
+        if (year < first || year > lastYear(id)) {
+            return Double.NaN;
+        }
+        return counts.getDouble((offsets.getLong((long) id << 3) + year - first) << 3);
+    }
+
+    @Override
+    public int firstTotalYear() {
+        return firstTotalYear;
+    }
+
+    @Override
+    public int lastTotalYear() {
+        return lastTotalYear;
+    }
+
+    @Override
+    public double totalCount(int year) {
+        if (year < TimeSeries.MIN_YEAR || year > TimeSeries.MAX_YEAR) {
+            return Double.NaN;
+        }
+        return totals.get(year - TimeSeries.MIN_YEAR);
+    }
+
+    @Override
+    public double rangeCount(int id, int startYear, int endYear) {
+        int first = firstYear(id);
+        int from = Math.max(startYear, first);
+        int to = Math.min(endYear, lastYear(id));
+        if (from > to) {
+            return 0;
+        }
+        long base = offsets.getLong((long) id << 3) - first;
+        double before = from == first ? 0 : prefixes.getDouble((base + from - 1) << 3);
+        return prefixes.getDouble((base + to) << 3) - before;
+    }
+
+    @Override
+    public double rangeTotalCount(int startYear, int endYear) {
+        int from = Math.max(startYear, TimeSeries.MIN_YEAR) - TimeSeries.MIN_YEAR;
+        int to = Math.min(endYear, TimeSeries.MAX_YEAR) - TimeSeries.MIN_YEAR;
+        if (from > to) {
+            return 0;
+        }
+        return totalPrefixes[to + 1] - totalPrefixes[from];
+    }
+
+    /**
+     * Writes the contents of STORE as an ngram snapshot at PATH, recording SOURCES as the
+     * files it was compiled from.
+     */
+    public static void write(NGramStore store, Path path, List<Path> sources) {
+        int n = store.wordCount();
+        int capacity = Integer.highestOneBit(Math.max(n, 8) * 2 - 1) << 1;
+
+        try (SnapshotFile.Writer out = SnapshotFile.writer(path, KIND, sources)) {
+            out.beginSection("meta").putInt(n);
+
+            out.beginSection("totals");
+            for (int year = TimeSeries.MIN_YEAR; year <= TimeSeries.MAX_YEAR; year += 1) {
+                out.putDouble(store.totalCount(year));
+            }
+
+            out.beginSection("firstYears");
+            for (int id = 0; id < n; id += 1) {
+                out.putInt(store.firstYear(id));
+            }
+            out.beginSection("lastYears");
+            for (int id = 0; id < n; id += 1) {
+                out.putInt(store.lastYear(id));
+            }
+            out.beginSection("offsets");
+            long offset = 0;
+            for (int id = 0; id < n; id += 1) {
+                out.putLong(offset);
+                offset += store.lastYear(id) - store.firstYear(id) + 1;
+            }
+            out.beginSection("counts");
+            for (int id = 0; id < n; id += 1) {
+                for (int year = store.firstYear(id); year <= store.lastYear(id); year += 1) {
+                    out.putDouble(store.count(id, year));
+                }
+            }
+            out.beginSection("prefixes");
+            for (int id = 0; id < n; id += 1) {
+                double sum = 0;
+                for (int year = store.firstYear(id); year <= store.lastYear(id); year += 1) {
+                    double count = store.count(id, year);
+                    sum += Double.isNaN(count) ? 0 : count;
+                    out.putDouble(sum);
+                }
+            }
+
+            int[] slots = new int[capacity];
+            out.beginSection("words");
+            long[] wordOffsets = new long[n + 1];
+            for (int id = 0; id < n; id += 1) {
+                String word = store.word(id);
+                byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+                out.putBytes(bytes, 0, bytes.length);
+                wordOffsets[id + 1] = wordOffsets[id] + bytes.length;
+
+                int i = WordIndex.mix(word.hashCode()) & (capacity - 1);
+                while (slots[i] != 0) {
+                    i = (i + 1) & (capacity - 1);
+                }
+                slots[i] = id + 1;
+            }
+            out.beginSection("wordOffsets");
+            for (long wordOffset : wordOffsets) {
+                out.putLong(wordOffset);
+            }
+            out.beginSection("wordTable");
+            for (int slot : slots) {
+                out.putInt(slot);
+            }
+        }
+    }
+}
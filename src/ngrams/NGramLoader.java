@@ -0,0 +1,499 @@
+package ngrams;
+
+import metrics.LoadMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Loads an ngram words file and counts file into a ColumnarNGramStore.
+ *
+ * The words file is memory-mapped and cut into newline-aligned chunks, which are parsed
+ * in parallel by a byte-level tokenizer into one ColumnarNGramStore.Builder each. The
+ * per-chunk builders are then merged in file order, so word ids come out the same as
+ * with a sequential load.
+ *
+ * In validating mode every row is checked for the expected number of fields, numeric
+ * year and count fields and years within [MIN_YEAR, MAX_YEAR]. Otherwise rows are
+ * assumed to be well formed and only the first three fields are looked at.
+ */
+public class NGramLoader {
+    private static final Logger logger = LoggerFactory.getLogger(NGramLoader.class);
+
+    /* Upper bound on a single mapped chunk; MappedByteBuffer is int-indexed. */
+    private static final long MAX_CHUNK_BYTES = 256L << 20;
+    /* Share of the reported progress that parsing accounts for; merging takes the rest. */
+    private static final double PARSE_SHARE = 0.9;
+    /* Chunks per thread, so that one slow chunk does not hold up the whole load. */
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int MAX_WORD_BYTES = 1 << 16;
+
+    private final int threads;
+    private final boolean validate;
+    private LoadReport lastReport;
+
+    /**
+     * Statistics about one call to load().
+     */
+    public record LoadReport(long rows, long bytes, int chunks, int threads,
+                             long parseNanos, long mergeNanos, long totalNanos) {
+        @Override
+        public String toString() {
+            return String.format("%,d rows (%,d bytes) in %d chunks on %d threads: "
+                            + "parse %.1f ms, merge %.1f ms, total %.1f ms",
+                    rows, bytes, chunks, threads, parseNanos / 1e6, mergeNanos / 1e6,
+                    totalNanos / 1e6);
+        }
+    }
+
+    /**
+     * Constructs a non-validating NGramLoader that uses all available processors.
+     */
+    public NGramLoader() {
+        this(Runtime.getRuntime().availableProcessors(), false);
+    }
+
+    /**
+     * Constructs an NGramLoader that parses on THREADS threads and checks every row
+     * if VALIDATE is true.
+     */
+    public NGramLoader(int threads, boolean validate) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        this.threads = threads;
+        this.validate = validate;
+    }
+
+    /**
+     * Loads WORDSFILENAME and COUNTSFILENAME into a new ColumnarNGramStore.
+     *
+     * @throws IllegalArgumentException if a file cannot be read, or if validating and a
+     *                                  row is malformed
+     */
+    public ColumnarNGramStore load(String wordsFilename, String countsFilename) {
+        return load(wordsFilename, countsFilename, progress -> { });
+    }
+
+    /**
+     * Loads WORDSFILENAME and COUNTSFILENAME into a new ColumnarNGramStore, passing the
+     * fraction of the work done so far, from 0 to 1, to PROGRESS as chunks are parsed and
+     * merged. PROGRESS is called from the parsing threads, possibly concurrently.
+     *
+     * @throws IllegalArgumentException if a file cannot be read, or if validating and a
+     *                                  row is malformed
+     */
+    public ColumnarNGramStore load(String wordsFilename, String countsFilename, DoubleConsumer progress) {
+        long start = System.nanoTime();
+        List<Chunk> chunks = split(wordsFilename, threads * CHUNKS_PER_THREAD);
+        long totalBytes = chunks.isEmpty() ? 0 : chunks.get(chunks.size() - 1).end;
+        AtomicLong parsedBytes = new AtomicLong();
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(chunks.size(), 1)));
+        List<Future<ColumnarNGramStore.Builder>> parsed = new ArrayList<>();
+        try {
+            for (Chunk chunk : chunks) {
+                parsed.add(pool.submit(() -> {
+                    ColumnarNGramStore.Builder chunkBuilder = parseChunk(wordsFilename, chunk);
+                    long done = parsedBytes.addAndGet(chunk.end - chunk.start);
+                    progress.accept(PARSE_SHARE * done / totalBytes);
+                    return chunkBuilder;
+                }));
+            }
+
+            ColumnarNGramStore.Builder builder = new ColumnarNGramStore.Builder();
+            long rows = parseTotals(countsFilename, validate, builder);
+            long parsedAt = 0;
+            long mergeNanos = 0;
+            int merged = 0;
+            for (Future<ColumnarNGramStore.Builder> future : parsed) {
+                ColumnarNGramStore.Builder chunkBuilder = future.get();
+                long mergeStart = System.nanoTime();
+                parsedAt = Math.max(parsedAt, mergeStart);
+                builder.merge(chunkBuilder);
+                mergeNanos += System.nanoTime() - mergeStart;
+                merged += 1;
+                if (parsedBytes.get() == totalBytes) {
+                    progress.accept(PARSE_SHARE + (1 - PARSE_SHARE) * merged / (chunks.size() + 1));
+                }
+            }
+            for (Chunk chunk : chunks) {
+                rows += chunk.rows;
+            }
+
+            long buildStart = System.nanoTime();
+            ColumnarNGramStore store = builder.build();
+            long end = System.nanoTime();
+            mergeNanos += end - buildStart;
+            progress.accept(1);
+
+            lastReport = new LoadReport(rows, chunks.isEmpty() ? 0 : chunks.get(chunks.size() - 1).end,
+                    chunks.size(), threads, Math.max(parsedAt - start, 0), mergeNanos, end - start);
+            logger.info("Loaded {} and {}: {}", wordsFilename, countsFilename, lastReport);
+            LoadMetrics.phase("ngrams", "parse", lastReport.parseNanos());
+            LoadMetrics.phase("ngrams", "merge", lastReport.mergeNanos());
+            LoadMetrics.phase("ngrams", "total", lastReport.totalNanos());
+            LoadMetrics.size("ngrams", "rows", lastReport.rows());
+            LoadMetrics.size("ngrams", "file_bytes", lastReport.bytes());
+            LoadMetrics.size("ngrams", "heap_bytes", store.memoryBytes());
+            return store;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading " + wordsFilename, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Failed to load " + wordsFilename, e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns statistics about the most recent load, or null if nothing was loaded yet.
+     */
+    public LoadReport lastReport() {
+        return lastReport;
+    }
+
+    /** A newline-aligned byte range [start, end) of the words file. */
+    static final class Chunk {
+        final long start;
+        final long end;
+        long rows;
+
+        Chunk(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /* Cuts the file into at least MINCHUNKS roughly equal chunks of at most MAX_CHUNK_BYTES
+     * each, whose boundaries sit right after a newline. */
+    static List<Chunk> split(String filename, int minChunks) {
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long count = Math.max(minChunks, (size + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+            long target = Math.max(size / count, 1);
+
+            List<Chunk> chunks = new ArrayList<>();
+            ByteBuffer probe = ByteBuffer.allocate(4096);
+            long start = 0;
+            while (start < size) {
+                long end = Math.min(start + target, size);
+                end = nextLineStart(channel, end, size, probe);
+                if (end - start > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Line too long in " + filename + " at byte " + start);
+                }
+                chunks.add(new Chunk(start, end));
+                start = end;
+            }
+            return chunks;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read " + filename, e);
+        }
+    }
+
+    /* Returns the offset just past the first newline at or after POS, or SIZE. */
+    private static long nextLineStart(FileChannel channel, long pos, long size, ByteBuffer probe)
+            throws IOException {
+        if (pos == 0 || pos >= size) {
+            return Math.min(pos, size);
+        }
+        pos -= 1;
+        while (pos < size) {
+            probe.clear();
+            int n = channel.read(probe, pos);
+            if (n <= 0) {
+                return size;
+            }
+            for (int i = 0; i < n; i += 1) {
+                if (probe.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    private ColumnarNGramStore.Builder parseChunk(String filename, Chunk chunk) throws IOException {
+        ColumnarNGramStore.Builder builder = new ColumnarNGramStore.Builder();
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start,
+                    chunk.end - chunk.start);
+            Tokenizer tokens = new Tokenizer(buffer, filename, chunk.start, (byte) '\t', validate);
+
+            /* Rows for one word are usually adjacent, so only decode a new String and
+             * look it up when the word bytes change. */
+            byte[] previous = new byte[64];
+            int previousLength = -1;
+            int id = -1;
+            long rows = 0;
+            while (tokens.nextRow()) {
+                int length = tokens.word();
+                if (!tokens.wordEquals(previous, previousLength)) {
+                    if (length > previous.length) {
+                        previous = new byte[Math.max(length, previous.length * 2)];
+                    }
+                    tokens.copyWord(previous);
+                    previousLength = length;
+                    id = builder.idOrAdd(new String(previous, 0, length, StandardCharsets.UTF_8));
+                }
+                int year = tokens.year();
+                double count = tokens.count();
+                tokens.endRow(validate ? 4 : 3);
+                builder.addCount(id, year, count);
+                rows += 1;
+            }
+            chunk.rows = rows;
+        }
+        return builder;
+    }
+
+    /* Adds every row of the counts file FILENAME to BUILDER's totals and returns the
+     * number of rows. */
+    static long parseTotals(String filename, boolean validate, ColumnarNGramStore.Builder builder) {
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Tokenizer tokens = new Tokenizer(buffer, filename, 0, (byte) ',', validate);
+            long rows = 0;
+            while (tokens.nextRow()) {
+                int year = tokens.year();
+                double count = tokens.count();
+                tokens.endRow(validate ? 4 : 2);
+                builder.addTotal(year, count);
+                rows += 1;
+            }
+            return rows;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Splits a mapped buffer into rows and fields without creating Strings. Field methods
+     * must be called in column order; each consumes its field and the separator after it.
+     */
+    static final class Tokenizer {
+        private final ByteBuffer buffer;
+        private final String filename;
+        private final long baseOffset;
+        private final byte separator;
+        private final boolean validate;
+        private int pos;
+        private int rowStart;
+        private int fields;
+        private int wordStart;
+        private int wordLength;
+
+        Tokenizer(ByteBuffer buffer, String filename, long baseOffset, byte separator,
+                  boolean validate) {
+            this.buffer = buffer;
+            this.filename = filename;
+            this.baseOffset = baseOffset;
+            this.separator = separator;
+            this.validate = validate;
+        }
+
+        /* Moves to the start of the next non-empty row. Returns false at the end. */
+        boolean nextRow() {
+            int limit = buffer.limit();
+            while (pos < limit && (buffer.get(pos) == '\n' || buffer.get(pos) == '\r')) {
+                pos += 1;
+            }
+            rowStart = pos;
+            fields = 0;
+            return pos < limit;
+        }
+
+        /* Reads the word field and returns its length in bytes. */
+        int word() {
+            wordStart = pos;
+            int end = fieldEnd();
+            wordLength = end - pos;
+            if (validate && wordLength == 0) {
+                throw malformed("empty word");
+            }
+            if (wordLength > MAX_WORD_BYTES) {
+                throw malformed("word longer than " + MAX_WORD_BYTES + " bytes");
+            }
+            consume(end);
+            return wordLength;
+        }
+
+        /* Returns whether the last word read equals the first LENGTH bytes of BYTES. */
+        boolean wordEquals(byte[] bytes, int length) {
+            if (length != wordLength) {
+                return false;
+            }
+            for (int i = 0; i < length; i += 1) {
+                if (bytes[i] != buffer.get(wordStart + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /* Copies the bytes of the last word read to the front of BYTES. */
+        void copyWord(byte[] bytes) {
+            buffer.get(wordStart, bytes, 0, wordLength);
+        }
+
+        int year() {
+            int end = fieldEnd();
+            if (validate && (end == pos || end - pos > 9)) {
+                throw malformed("bad year");
+            }
+            int year = 0;
+            for (int i = pos; i < end; i += 1) {
+                int digit = buffer.get(i) - '0';
+                if (validate && (digit < 0 || digit > 9)) {
+                    throw malformed("bad year");
+                }
+                year = year * 10 + digit;
+            }
+            if (validate && (year < TimeSeries.MIN_YEAR || year > TimeSeries.MAX_YEAR)) {
+                throw malformed("year out of range: " + year);
+            }
+            consume(end);
+            return year;
+        }
+
+        /* Parses a non-negative decimal number such as 12, 12.5 or 1.2E5. Integral counts,
+         * which is every row of the Google NGram files, are exact. */
+        double count() {
+            int end = fieldEnd();
+            int i = pos;
+            long mantissa = 0;
+            int digits = 0;
+            int scale = 0;
+            boolean fraction = false;
+            for (; i < end; i += 1) {
+                byte b = buffer.get(i);
+                if (b == '.' && !fraction) {
+                    fraction = true;
+                } else if (b >= '0' && b <= '9') {
+                    if (digits < 18) {
+                        mantissa = mantissa * 10 + (b - '0');
+                        digits += mantissa == 0 ? 0 : 1;
+                        scale -= fraction ? 1 : 0;
+                    } else if (!fraction) {
+                        scale += 1;
+                    }
+                } else {
+                    break;
+                }
+            }
+            if (i < end && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+                i += 1;
+                boolean negative = i < end && buffer.get(i) == '-';
+                if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                    i += 1;
+                }
+                int exponent = 0;
+                int exponentStart = i;
+                for (; i < end && buffer.get(i) >= '0' && buffer.get(i) <= '9'; i += 1) {
+                    exponent = Math.min(exponent * 10 + (buffer.get(i) - '0'), 1000);
+                }
+                if (validate && i == exponentStart) {
+                    throw malformed("bad count");
+                }
+                scale += negative ? -exponent : exponent;
+            }
+            if (validate && (i != end || end == pos)) {
+                throw malformed("bad count");
+            }
+            consume(end);
+            if (scale == 0) {
+                return mantissa;
+            }
+            return scale > 0 ? mantissa * Math.pow(10, scale) : mantissa / Math.pow(10, -scale);
+        }
+
+        /* Finishes the current row. When validating, the row must have had exactly
+         * EXPECTEDFIELDS fields. */
+        void endRow(int expectedFields) {
+            int limit = buffer.limit();
+            while (pos < limit && buffer.get(pos) != '\n') {
+                if (validate && buffer.get(pos) != '\r') {
+                    consume(fieldEnd());
+                } else {
+                    pos += 1;
+                }
+            }
+            if (validate && fields != expectedFields) {
+                throw malformed("expected " + expectedFields + " fields but found " + fields);
+            }
+        }
+
+        private int fieldEnd() {
+            int limit = buffer.limit();
+            int end = pos;
+            while (end < limit) {
+                byte b = buffer.get(end);
+                if (b == separator || b == '\n' || b == '\r') {
+                    break;
+                }
+                end += 1;
+            }
+            return end;
+        }
+
+        /* Moves past the field ending at END and the separator after it, if any. */
+        private void consume(int end) {
+            fields += 1;
+            pos = end;
+            if (pos < buffer.limit() && buffer.get(pos) == separator) {
+                pos += 1;
+            }
+        }
+
+        private IllegalArgumentException malformed(String problem) {
+            return new IllegalArgumentException(String.format("Malformed row in %s at byte %d: %s",
+                    filename, baseOffset + rowStart, problem));
+        }
+    }
+
+    /**
+     * Loads the given files with every engine and prints the load times, for comparing
+     * the parallel loader against the original line-by-line constructor.
+     * Usage: NGramLoader WORDSFILE COUNTSFILE [--validate]
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: NGramLoader WORDSFILE COUNTSFILE [--validate]");
+            System.exit(2);
+        }
+        boolean validate = args.length > 2 && args[2].equals("--validate");
+
+        long start = System.nanoTime();
+        new TreeMapNGramStore(args[0], args[1]);
+        System.out.printf("TREE_MAP constructor: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+        NGramLoader loader = new NGramLoader(Runtime.getRuntime().availableProcessors(), validate);
+        ColumnarNGramStore store = loader.load(args[0], args[1]);
+        System.out.println("Parallel loader: " + loader.lastReport());
+        System.out.printf("%,d words, ~%,d bytes of heap%n", store.wordCount(), store.memoryBytes());
+
+        start = System.nanoTime();
+        OffHeapNGramWriter.open(args[0], args[1]);
+        System.out.printf("Off-heap snapshot: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+    }
+}
@@ -1,11 +1,9 @@
 package ngrams;
 
-import edu.princeton.cs.algs4.In;
+import metrics.LoadMetrics;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
-import java.util.List;
-import java.util.TreeMap;
 
 /**
  * An object that provides utility methods for making queries on the
@@ -13,52 +11,57 @@ import java.util.TreeMap;
  *
  * An NGramMap stores pertinent data from a "words file" and a "counts
  * file". It is not a map in the strict sense, but it does provide additional
- * functionality.
+ * functionality. The data itself lives in an NGramStore; see Engine for the
+ * available storage engines.
  */
 public class NGramMap {
 
+    /**
+     * The storage engines an NGramMap can be built on.
+     */
+    public enum Engine {
+        /** The original TreeMap of TimeSeries. Kept for comparison. */
+        TREE_MAP,
+        /** Dense word ids and primitive year columns, loaded in parallel by NGramLoader. */
+        COLUMNAR,
+        /** Columns in a memory-mapped snapshot compiled by OffHeapNGramWriter, for
+         * corpora larger than the heap. */
+        OFF_HEAP
+    }
 
-    public TreeMap<String, TimeSeries> wordmap = new TreeMap<>();
-    public TimeSeries countmap = new TimeSeries();
-
-
+    private final NGramStore store;
 
     /**
      * Constructs an NGramMap from WORDSFILENAME and COUNTSFILENAME.
      */
     public NGramMap(String wordsFilename, String countsFilename) {
+        this(wordsFilename, countsFilename, Engine.COLUMNAR);
+    }
 
-        In words = new In(wordsFilename);
-
-        while (words.hasNextLine()){
-            String[] nextLine = words.readLine().split("\t");
-            String word = nextLine[0];
-            int year = Integer.parseInt(nextLine[1]);
-            double number = Double.parseDouble(nextLine[2]);
-            TimeSeries t = new TimeSeries();
-            t.put(year, number);
-            if (wordmap.get(word) == null){
-                wordmap.put(word, t);
-            } else {
-                t = wordmap.get(word).plus(t);
-                wordmap.put(word, t);
-            }
-        }
+    /**
+     * Constructs an NGramMap from WORDSFILENAME and COUNTSFILENAME using the given ENGINE.
+     */
+    public NGramMap(String wordsFilename, String countsFilename, Engine engine) {
+        this(switch (engine) {
+            case TREE_MAP -> new TreeMapNGramStore(wordsFilename, countsFilename);
+            case COLUMNAR -> new NGramLoader().load(wordsFilename, countsFilename);
+            case OFF_HEAP -> OffHeapNGramWriter.open(wordsFilename, countsFilename);
+        });
+    }
 
-        In counts = new In(countsFilename);
+    /**
+     * Constructs an NGramMap on top of an already loaded STORE.
+     */
+    public NGramMap(NGramStore store) {
+        this.store = store;
+        LoadMetrics.size("ngrams", "words", store.wordCount());
+    }
 
-        while(counts.hasNextLine()){
-            String[] nextLine = counts.readLine().split(",");
-            int year = Integer.parseInt(nextLine[0]);
-            double number = Double.parseDouble(nextLine[1]);
-            if (countmap.get(year) == null){
-                countmap.put(year, number);
-            } else{
-                TimeSeries t = new TimeSeries();
-                t.put(year, number);
-                countmap.plus(t);
-            }
-        }
+    /**
+     * Returns the store backing this NGramMap.
+     */
+    public NGramStore store() {
+        return store;
     }
 
     /**
@@ -69,22 +72,22 @@ public class NGramMap {
      * returns an empty TimeSeries.
      */
     public TimeSeries countHistory(String word, int startYear, int endYear) {
-
-        if (wordmap.get(word) == null) {
+        int id = store.wordId(word);
+        if (id < 0) {
             return new TimeSeries();
-        } else {
-            return copy(word, startYear, endYear);
         }
+        return copy(id, startYear, endYear);
     }
 
-    private TimeSeries copy(String word, int startYear, int endYear){
+    private TimeSeries copy(int id, int startYear, int endYear) {
         TimeSeries copy = new TimeSeries();
-        int year = startYear;
-        while (year <= endYear){
-            if(wordmap.get(word).containsKey(year)){
-                copy.put(year, wordmap.get(word).get(year));
+        int from = Math.max(startYear, store.firstYear(id));
+        int to = Math.min(endYear, store.lastYear(id));
+        for (int year = from; year <= to; year += 1) {
+            double count = store.count(id, year);
+            if (!Double.isNaN(count)) {
+                copy.put(year, count);
             }
-            year += 1;
         }
         return copy;
     }
@@ -96,15 +99,33 @@ public class NGramMap {
      * is not in the data files, returns an empty TimeSeries.
      */
     public TimeSeries countHistory(String word) {
-
-        if (wordmap.get(word) == null) {
+        int id = store.wordId(word);
+        if (id < 0) {
             return new TimeSeries();
-        } else {
-            List<Integer> years = wordmap.get(word).years();
-            int startYear = years.get(0);
-            int endYear = years.get(years.size()-1);
-            return copy(word, startYear, endYear);
         }
+        return copy(id, store.firstYear(id), store.lastYear(id));
+    }
+
+    /**
+     * Returns the total count of WORD over the years in [STARTYEAR, ENDYEAR], inclusive of
+     * both ends, or 0 if the word is not in the data files. This is the sum of the values of
+     * countHistory(word, startYear, endYear), but it is answered from prefix sums without
+     * building a TimeSeries.
+     */
+    public double rangeTotal(String word, int startYear, int endYear) {
+        int id = store.wordId(word);
+        if (id < 0) {
+            return 0;
+        }
+        return store.rangeCount(id, startYear, endYear);
+    }
+
+    /**
+     * Returns the total number of words recorded in all volumes over the years in
+     * [STARTYEAR, ENDYEAR], inclusive of both ends.
+     */
+    public double totalCountRange(int startYear, int endYear) {
+        return store.rangeTotalCount(startYear, endYear);
     }
 
     /**
@@ -112,11 +133,11 @@ public class NGramMap {
      */
     public TimeSeries totalCountHistory() {
         TimeSeries t = new TimeSeries();
-        List<Integer> years = countmap.years();
-        for (int i = 0; i < years.size(); i += 1){
-            int year = years.get(i);
-            double number = countmap.get(year);
-            t.put(year, number);
+        for (int year = store.firstTotalYear(); year <= store.lastTotalYear(); year += 1) {
+            double number = store.totalCount(year);
+            if (!Double.isNaN(number)) {
+                t.put(year, number);
+            }
         }
         return t;
     }
@@ -127,13 +148,11 @@ public class NGramMap {
      * TimeSeries.
      */
     public TimeSeries weightHistory(String word, int startYear, int endYear) {
-
-        if (wordmap.get(word) == null){
+        int id = store.wordId(word);
+        if (id < 0) {
             return new TimeSeries();
         }
-        TimeSeries t = countHistory(word, startYear, endYear);
-        TimeSeries weightedt = t.dividedBy(countmap);
-        return weightedt;
+        return weights(id, startYear, endYear);
     }
 
     /**
@@ -142,12 +161,96 @@ public class NGramMap {
      * TimeSeries.
      */
     public TimeSeries weightHistory(String word) {
-        if (wordmap.get(word) == null){
+        int id = store.wordId(word);
+        if (id < 0) {
             return new TimeSeries();
         }
-        TimeSeries t = countHistory(word);
-        TimeSeries weightedt = t.dividedBy(countmap);
-        return weightedt;
+        return weights(id, store.firstYear(id), store.lastYear(id));
+    }
+
+    private TimeSeries weights(int id, int startYear, int endYear) {
+        int from = Math.max(startYear, store.firstYear(id));
+        int to = Math.min(endYear, store.lastYear(id));
+        DenseTimeSeries weights = new DenseTimeSeries(from, Math.max(to, from - 1));
+        addWeights(id, weights, totals(weights), new double[weights.length()]);
+        return weights.toTimeSeries();
+    }
+
+    /**
+     * Provides the relative frequency per year of WORD between STARTYEAR and ENDYEAR,
+     * inclusive of both ends, as a DenseTimeSeries covering just the years the word has
+     * records in. If the word is not in the data files, returns a series covering no years.
+     */
+    public DenseTimeSeries denseWeightHistory(String word, int startYear, int endYear) {
+        int id = store.wordId(word);
+        if (id < 0) {
+            return new DenseTimeSeries(0, -1);
+        }
+        int from = Math.max(startYear, store.firstYear(id));
+        int to = Math.min(endYear, store.lastYear(id));
+        DenseTimeSeries weights = new DenseTimeSeries(from, Math.max(to, from - 1));
+        addWeights(id, weights, totals(weights), new double[weights.length()]);
+        return weights;
+    }
+
+    /**
+     * Adds the relative frequency of WORD in each year INTO covers to that year of INTO,
+     * without allocating anything per year. Returns false, leaving INTO untouched, if the
+     * word is not in the data files.
+     */
+    public boolean addWeightHistory(String word, DenseTimeSeries into) {
+        int id = store.wordId(word);
+        if (id < 0) {
+            return false;
+        }
+        addWeights(id, into, totals(into), new double[into.length()]);
+        return true;
+    }
+
+    /* Returns the total counts of the years RANGE covers. */
+    private double[] totals(DenseTimeSeries range) {
+        double[] totals = new double[range.length()];
+        store.totalCounts(range.startYear(), totals, 0, totals.length);
+        return totals;
+    }
+
+    /* Adds the counts of word ID divided by the total counts to INTO, year by year, with the
+     * SeriesKernels. TOTALS holds the total counts of the years INTO covers and COUNTS is
+     * scratch space as long. Like TimeSeries.dividedBy, a year without a total count is an
+     * IllegalArgumentException. */
+    private void addWeights(int id, DenseTimeSeries into, double[] totals, double[] counts) {
+        int from = Math.max(into.startYear(), store.firstYear(id));
+        int to = Math.min(into.endYear(), store.lastYear(id));
+        if (from > to) {
+            return;
+        }
+        int offset = from - into.startYear();
+        store.counts(id, from, counts, offset, to - from + 1);
+        int missing = SeriesKernels.get().addQuotients(into.values(), offset, counts, offset,
+                totals, offset, to - from + 1);
+        if (missing >= 0) {
+            throw new IllegalArgumentException("No total count for year " + (from + missing));
+        }
+    }
+
+    /**
+     * Writes the relative frequency of WORD in each of the years STARTYEAR, STARTYEAR + 1, ...
+     * to WEIGHTS, one year per element, without building a TimeSeries. Years without a
+     * record, or without a total count, get NaN. Returns false, leaving WEIGHTS untouched,
+     * if the word is not in the data files.
+     */
+    public boolean weightHistoryInto(String word, int startYear, double[] weights) {
+        int id = store.wordId(word);
+        if (id < 0) {
+            return false;
+        }
+        Arrays.fill(weights, Double.NaN);
+        int from = Math.max(startYear, store.firstYear(id));
+        int to = Math.min(startYear + weights.length - 1, store.lastYear(id));
+        for (int year = from; year <= to; year += 1) {
+            weights[year - startYear] = store.count(id, year) / store.totalCount(year);
+        }
+        return true;
     }
 
     /**
@@ -157,15 +260,7 @@ public class NGramMap {
      */
     public TimeSeries summedWeightHistory(Collection<String> words,
                                           int startYear, int endYear) {
-        Iterator<String> iter= words.iterator();
-        TimeSeries collection = new TimeSeries();
-
-        while (iter.hasNext()){
-            String word = iter.next();
-            TimeSeries t = weightHistory(word, startYear, endYear);
-            collection = collection.plus(t);
-        }
-        return collection;
+        return denseSummedWeightHistory(words, startYear, endYear).toTimeSeries();
     }
 
     /**
@@ -173,15 +268,29 @@ public class NGramMap {
      * exist in this time frame, ignore it rather than throwing an exception.
      */
     public TimeSeries summedWeightHistory(Collection<String> words) {
-        Iterator<String> iter= words.iterator();
-        TimeSeries collection = new TimeSeries();
+        return summedWeightHistory(words, TimeSeries.MIN_YEAR, TimeSeries.MAX_YEAR);
+    }
 
-        while (iter.hasNext()){
-            String word = iter.next();
-            TimeSeries t = weightHistory(word);
-            collection = collection.plus(t);
+    /**
+     * Provides the summed relative frequency per year of all words in WORDS between STARTYEAR
+     * and ENDYEAR, inclusive of both ends, as a DenseTimeSeries covering those years within
+     * [MIN_YEAR, MAX_YEAR]. Every word is added into the same array with the
+     * SeriesKernels, so the sum allocates nothing per word or per year. Words not in the
+     * data files are ignored.
+     */
+    public DenseTimeSeries denseSummedWeightHistory(Collection<String> words, int startYear, int endYear) {
+        int from = Math.max(startYear, TimeSeries.MIN_YEAR);
+        int to = Math.min(endYear, TimeSeries.MAX_YEAR);
+        DenseTimeSeries sum = new DenseTimeSeries(from, Math.max(to, from - 1));
+        double[] totals = totals(sum);
+        double[] counts = new double[sum.length()];
+        for (String word : words) {
+            int id = store.wordId(word);
+            if (id >= 0) {
+                addWeights(id, sum, totals, counts);
+            }
         }
-        return collection;
+        return sum;
     }
 
 }
@@ -0,0 +1,112 @@
+package ngrams;
+
+/**
+ * The storage engine behind an NGramMap. A store gives every word a dense integer id
+ * and answers per-year lookups as primitives, so that NGramMap only has to build the
+ * TimeSeries a query actually returns.
+ *
+ * Years without a record are reported as NaN rather than 0, which preserves the
+ * "missing year" semantics of TimeSeries.
+ */
+public interface NGramStore {
+
+    /**
+     * Returns the id of WORD, or -1 if the word is not in the words file.
+     */
+    int wordId(String word);
+
+    /**
+     * Returns the number of distinct words in this store. Ids range over [0, wordCount()).
+     */
+    int wordCount();
+
+    /**
+     * Returns the word with the given ID.
+     */
+    String word(int id);
+
+    /**
+     * Returns the earliest year with a record for the word with the given ID.
+     */
+    int firstYear(int id);
+
+    /**
+     * Returns the latest year with a record for the word with the given ID.
+     */
+    int lastYear(int id);
+
+    /**
+     * Returns the count of the word with the given ID in YEAR, or NaN if there is no record.
+     */
+    double count(int id, int year);
+
+    /**
+     * Writes the counts of the word with the given ID in the LENGTH years from STARTYEAR
+     * to INTO, starting at index OFFSET, with NaN for years without a record. Stores that
+     * keep a word's years contiguous copy them in one go; the default reads them one by one.
+     */
+    default void counts(int id, int startYear, double[] into, int offset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            into[offset + i] = count(id, startYear + i);
+        }
+    }
+
+    /**
+     * Returns the earliest year in the counts file. Greater than lastTotalYear() if the
+     * counts file was empty.
+     */
+    int firstTotalYear();
+
+    /**
+     * Returns the latest year in the counts file.
+     */
+    int lastTotalYear();
+
+    /**
+     * Returns the total number of words recorded in YEAR, or NaN if there is no record.
+     */
+    double totalCount(int year);
+
+    /**
+     * Writes the total counts of the LENGTH years from STARTYEAR to INTO, starting at
+     * index OFFSET, with NaN for years without a record.
+     */
+    default void totalCounts(int startYear, double[] into, int offset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            into[offset + i] = totalCount(startYear + i);
+        }
+    }
+
+    /**
+     * Returns the sum of the counts of the word with the given ID over the recorded years in
+     * [STARTYEAR, ENDYEAR], or 0 if there are none. Stores that keep prefix sums answer this
+     * in constant time; the default adds the years up one by one.
+     */
+    default double rangeCount(int id, int startYear, int endYear) {
+        double sum = 0;
+        int to = Math.min(endYear, lastYear(id));
+        for (int year = Math.max(startYear, firstYear(id)); year <= to; year += 1) {
+            double count = count(id, year);
+            if (!Double.isNaN(count)) {
+                sum += count;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the sum of the total counts over the recorded years in [STARTYEAR, ENDYEAR],
+     * or 0 if there are none.
+     */
+    default double rangeTotalCount(int startYear, int endYear) {
+        double sum = 0;
+        int to = Math.min(endYear, lastTotalYear());
+        for (int year = Math.max(startYear, firstTotalYear()); year <= to; year += 1) {
+            double count = totalCount(year);
+            if (!Double.isNaN(count)) {
+                sum += count;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,344 @@
+package ngrams;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import snapshot.MappedSegment;
+import snapshot.SnapshotFile;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Compiles an ngram words file and counts file into a MappedNGramStore snapshot without
+ * ever holding the corpus on the heap, so corpora far larger than the heap can be served.
+ *
+ * The words file is streamed once, in newline-aligned mapped chunks, and each column of
+ * the snapshot is spilled to its own temporary file as it goes. The vocabulary hash
+ * table is then built in a memory-mapped file, and the spilled columns are copied into
+ * the snapshot. The heap only ever holds the rows of the current word.
+ *
+ * The words file must keep all rows of a word together, as the Google NGram exports do.
+ * A word that shows up again after other words is rejected.
+ */
+public final class OffHeapNGramWriter {
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapNGramWriter.class);
+
+    private static final int YEAR_SPAN = TimeSeries.MAX_YEAR - TimeSeries.MIN_YEAR + 1;
+
+    private OffHeapNGramWriter() {
+    }
+
+    /**
+     * Compiles WORDSFILENAME and COUNTSFILENAME into a temporary snapshot, which is deleted
+     * when the JVM exits, and maps it.
+     */
+    public static MappedNGramStore open(String wordsFilename, String countsFilename) {
+        try {
+            Path path = Files.createTempFile("ngrams", "." + MappedNGramStore.KIND);
+            path.toFile().deleteOnExit();
+            write(wordsFilename, countsFilename, path, false);
+            return MappedNGramStore.open(path);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not create a temporary ngram snapshot", e);
+        }
+    }
+
+    /**
+     * Compiles WORDSFILENAME and COUNTSFILENAME into an ngram snapshot at PATH, checking
+     * every row if VALIDATE is true.
+     *
+     * @throws IllegalArgumentException if a file cannot be read, a word's rows are not
+     *                                  contiguous, or if validating and a row is malformed
+     */
+    public static void write(String wordsFilename, String countsFilename, Path path, boolean validate) {
+        long start = System.nanoTime();
+        Path spillDirectory = null;
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            spillDirectory = Files.createTempDirectory(parent, path.getFileName() + ".spill");
+            Columns columns = new Columns(spillDirectory);
+            try (columns) {
+                streamWords(wordsFilename, validate, columns);
+            }
+            Path table = buildTable(columns, spillDirectory.resolve("wordTable"), wordsFilename);
+
+            ColumnarNGramStore.Builder totalsBuilder = new ColumnarNGramStore.Builder();
+            NGramLoader.parseTotals(countsFilename, validate, totalsBuilder);
+            ColumnarNGramStore totals = totalsBuilder.build();
+
+            try (SnapshotFile.Writer out = SnapshotFile.writer(path, MappedNGramStore.KIND,
+                    List.of(Path.of(wordsFilename), Path.of(countsFilename)))) {
+                out.beginSection("meta").putInt(columns.wordCount);
+                out.beginSection("totals");
+                for (int year = TimeSeries.MIN_YEAR; year <= TimeSeries.MAX_YEAR; year += 1) {
+                    out.putDouble(totals.totalCount(year));
+                }
+                out.beginSection("firstYears").putFile(columns.firstYears.file);
+                out.beginSection("lastYears").putFile(columns.lastYears.file);
+                out.beginSection("offsets").putFile(columns.offsets.file);
+                out.beginSection("counts").putFile(columns.counts.file);
+                out.beginSection("prefixes").putFile(columns.prefixes.file);
+                out.beginSection("words").putFile(columns.words.file);
+                out.beginSection("wordOffsets").putFile(columns.wordOffsets.file);
+                out.beginSection("wordTable").putFile(table);
+            }
+            logger.info("Compiled {} and {} into {}: {} words, {} values in {} ms", wordsFilename,
+                    countsFilename, path, columns.wordCount, columns.valueCount,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not compile " + wordsFilename + " into " + path, e);
+        } finally {
+            deleteRecursively(spillDirectory);
+        }
+    }
+
+    private static void streamWords(String filename, boolean validate, Columns columns) throws IOException {
+        double[] column = new double[YEAR_SPAN];
+        Arrays.fill(column, Double.NaN);
+        byte[] word = new byte[64];
+        int wordLength = -1;
+        int first = TimeSeries.MAX_YEAR + 1;
+        int last = TimeSeries.MIN_YEAR - 1;
+
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            for (NGramLoader.Chunk chunk : NGramLoader.split(filename, 1)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start,
+                        chunk.end - chunk.start);
+                NGramLoader.Tokenizer tokens = new NGramLoader.Tokenizer(buffer, filename, chunk.start,
+                        (byte) '\t', validate);
+                while (tokens.nextRow()) {
+                    int length = tokens.word();
+                    if (!tokens.wordEquals(word, wordLength)) {
+                        if (wordLength >= 0) {
+                            columns.add(word, wordLength, column, first, last);
+                            first = TimeSeries.MAX_YEAR + 1;
+                            last = TimeSeries.MIN_YEAR - 1;
+                        }
+                        if (length > word.length) {
+                            word = new byte[Math.max(length, word.length * 2)];
+                        }
+                        tokens.copyWord(word);
+                        wordLength = length;
+                    }
+                    int year = tokens.year();
+                    double count = tokens.count();
+                    tokens.endRow(validate ? 4 : 3);
+                    if (year < TimeSeries.MIN_YEAR || year > TimeSeries.MAX_YEAR) {
+                        throw new IllegalArgumentException("Year out of range in " + filename + ": " + year);
+                    }
+                    int i = year - TimeSeries.MIN_YEAR;
+                    column[i] = Double.isNaN(column[i]) ? count : column[i] + count;
+                    first = Math.min(first, year);
+                    last = Math.max(last, year);
+                }
+            }
+        }
+        if (wordLength >= 0) {
+            columns.add(word, wordLength, column, first, last);
+        }
+    }
+
+    /* Builds the open-addressing word table of MappedNGramStore in a mapped file, reading
+     * the spilled words back through segments. */
+    private static Path buildTable(Columns columns, Path file, String filename) throws IOException {
+        int n = columns.wordCount;
+        long capacity = Long.highestOneBit(Math.max(n, 8) * 2L - 1) << 1;
+        long mask = capacity - 1;
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw");
+             FileChannel words = FileChannel.open(columns.words.file, StandardOpenOption.READ);
+             FileChannel wordOffsets = FileChannel.open(columns.wordOffsets.file, StandardOpenOption.READ);
+             FileChannel hashes = FileChannel.open(columns.hashes.file, StandardOpenOption.READ)) {
+            raf.setLength(capacity * 4);
+            MappedSegment table = MappedSegment.map(raf.getChannel(), FileChannel.MapMode.READ_WRITE, 0, capacity * 4);
+            MappedSegment wordBytes = MappedSegment.map(words, FileChannel.MapMode.READ_ONLY, 0, words.size());
+            MappedSegment offsets = MappedSegment.map(wordOffsets, FileChannel.MapMode.READ_ONLY, 0,
+                    wordOffsets.size());
+            MappedSegment hashValues = MappedSegment.map(hashes, FileChannel.MapMode.READ_ONLY, 0, hashes.size());
+
+            for (int id = 0; id < n; id += 1) {
+                int hash = hashValues.getInt((long) id << 2);
+                long i = WordIndex.mix(hash) & mask;
+                for (int slot; (slot = table.getInt(i << 2)) != 0; i = (i + 1) & mask) {
+                    int other = slot - 1;
+                    if (hashValues.getInt((long) other << 2) == hash
+                            && sameWord(wordBytes, offsets, id, other)) {
+                        throw new IllegalArgumentException(String.format(
+                                "Rows for \"%s\" are not contiguous in %s; the words file must be grouped by word",
+                                word(wordBytes, offsets, id), filename));
+                    }
+                }
+                table.putInt(i << 2, id + 1);
+            }
+            table.force();
+        }
+        return file;
+    }
+
+    private static boolean sameWord(MappedSegment words, MappedSegment offsets, int a, int b) {
+        long aStart = offsets.getLong((long) a << 3);
+        long bStart = offsets.getLong((long) b << 3);
+        long length = offsets.getLong((long) (a + 1) << 3) - aStart;
+        if (offsets.getLong((long) (b + 1) << 3) - bStart != length) {
+            return false;
+        }
+        for (long i = 0; i < length; i += 1) {
+            if (words.getByte(aStart + i) != words.getByte(bStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String word(MappedSegment words, MappedSegment offsets, int id) {
+        long start = offsets.getLong((long) id << 3);
+        byte[] bytes = new byte[(int) (offsets.getLong((long) (id + 1) << 3) - start)];
+        words.getBytes(start, bytes, 0, bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void deleteRecursively(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not remove spill directory {}", directory, e);
+        }
+    }
+
+    /** The per-word columns of a snapshot, each spilled to its own file. */
+    private static final class Columns implements AutoCloseable {
+        final Spill firstYears;
+        final Spill lastYears;
+        final Spill offsets;
+        final Spill counts;
+        final Spill prefixes;
+        final Spill words;
+        final Spill wordOffsets;
+        final Spill hashes;
+        int wordCount;
+        long valueCount;
+
+        Columns(Path directory) throws IOException {
+            firstYears = new Spill(directory.resolve("firstYears"));
+            lastYears = new Spill(directory.resolve("lastYears"));
+            offsets = new Spill(directory.resolve("offsets"));
+            counts = new Spill(directory.resolve("counts"));
+            prefixes = new Spill(directory.resolve("prefixes"));
+            words = new Spill(directory.resolve("words"));
+            wordOffsets = new Spill(directory.resolve("wordOffsets"));
+            hashes = new Spill(directory.resolve("hashes"));
+            wordOffsets.putLong(0);
+        }
+
+        /* Appends a word whose counts are in COLUMN[FIRST - MIN_YEAR .. LAST - MIN_YEAR],
+         * and resets that part of COLUMN to NaN. */
+        void add(byte[] word, int length, double[] column, int first, int last) throws IOException {
+            if (wordCount == Integer.MAX_VALUE - 1) {
+                throw new IllegalArgumentException("Too many distinct words");
+            }
+            firstYears.putInt(first);
+            lastYears.putInt(last);
+            offsets.putLong(valueCount);
+            double sum = 0;
+            for (int i = first - TimeSeries.MIN_YEAR; i <= last - TimeSeries.MIN_YEAR; i += 1) {
+                counts.putDouble(column[i]);
+                sum += Double.isNaN(column[i]) ? 0 : column[i];
+                prefixes.putDouble(sum);
+                column[i] = Double.NaN;
+            }
+            valueCount += last - first + 1;
+            words.putBytes(word, length);
+            wordOffsets.putLong(words.size);
+            hashes.putInt(new String(word, 0, length, StandardCharsets.UTF_8).hashCode());
+            wordCount += 1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (Spill spill : List.of(firstYears, lastYears, offsets, counts, prefixes, words, wordOffsets,
+                    hashes)) {
+                spill.close();
+            }
+        }
+    }
+
+    /** An append-only, buffered, little-endian temporary file. */
+    private static final class Spill implements AutoCloseable {
+        private static final int BUFFER_BYTES = 1 << 20;
+
+        final Path file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long size;
+
+        Spill(Path file) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+            size += 4;
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+            size += 8;
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(8);
+            buffer.putDouble(value);
+            size += 8;
+        }
+
+        void putBytes(byte[] values, int length) throws IOException {
+            for (int offset = 0; offset < length; ) {
+                ensure(1);
+                int n = Math.min(length - offset, buffer.remaining());
+                buffer.put(values, offset, n);
+                offset += n;
+            }
+            size += length;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ngrams;
+
+/**
+ * The SeriesKernels written as plain loops, which run on every JVM.
+ */
+final class ScalarSeriesKernels implements SeriesKernels {
+    static final ScalarSeriesKernels INSTANCE = new ScalarSeriesKernels();
+
+    private ScalarSeriesKernels() {
+    }
+
+    @Override
+    public void add(double[] dst, int dstOffset, double[] src, int srcOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            dst[dstOffset + i] = DenseTimeSeries.plus(dst[dstOffset + i], src[srcOffset + i]);
+        }
+    }
+
+    @Override
+    public int divide(double[] dst, int dstOffset, double[] divisors, int divisorOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            if (Double.isNaN(dst[dstOffset + i])) {
+                continue;
+            }
+            double divisor = divisors[divisorOffset + i];
+            if (Double.isNaN(divisor)) {
+                return i;
+            }
+            dst[dstOffset + i] /= divisor;
+        }
+        return -1;
+    }
+
+    @Override
+    public int addQuotients(double[] dst, int dstOffset, double[] counts, int countsOffset,
+                            double[] totals, int totalsOffset, int length) {
+        for (int i = 0; i < length; i += 1) {
+            double count = counts[countsOffset + i];
+            if (Double.isNaN(count)) {
+                continue;
+            }
+            double total = totals[totalsOffset + i];
+            if (Double.isNaN(total)) {
+                return i;
+            }
+            dst[dstOffset + i] = DenseTimeSeries.plus(dst[dstOffset + i], count / total);
+        }
+        return -1;
+    }
+
+    @Override
+    public double sum(double[] values, int offset, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i += 1) {
+            double value = values[offset + i];
+            if (!Double.isNaN(value)) {
+                sum += value;
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return "scalar";
+    }
+}
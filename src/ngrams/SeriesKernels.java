@@ -0,0 +1,70 @@
+package ngrams;
+
+/**
+ * The loops behind DenseTimeSeries arithmetic and NGramMap's weight histories, over
+ * ranges of primitive arrays in which NaN means a year without data.
+ *
+ * There are two implementations. The scalar one is plain Java loops. The vector one,
+ * ngrams.simd.VectorSeriesKernels, works on several years per instruction with the
+ * incubating Vector API, and is only compiled and usable with
+ * --add-modules jdk.incubator.vector. get() picks one the first time it is called,
+ * which Main does at startup: the vector kernels if they load, the scalar ones
+ * otherwise. Setting the system property ngrams.kernels to "scalar" or "vector" forces
+ * the choice; an unknown value, or "vector" when they cannot load, makes that first
+ * call fail.
+ *
+ * Every implementation returns exactly the same values as the scalar one, except that
+ * sum() may add in a different order and so differ in the last bits.
+ */
+public interface SeriesKernels {
+
+    /**
+     * Adds SRC[SRCOFFSET + i] to DST[DSTOFFSET + i] for every i below LENGTH. Where one
+     * of the two is NaN the result is the other one, so only years without data in
+     * either stay NaN.
+     */
+    void add(double[] dst, int dstOffset, double[] src, int srcOffset, int length);
+
+    /**
+     * Divides DST[DSTOFFSET + i] by DIVISORS[DIVISOROFFSET + i] for every i below
+     * LENGTH where DST has data. Returns the first i where DST has data and the divisor
+     * is NaN, or -1 if there is none; DST may be partly divided when it is not -1.
+     */
+    int divide(double[] dst, int dstOffset, double[] divisors, int divisorOffset, int length);
+
+    /**
+     * Adds COUNTS[COUNTSOFFSET + i] / TOTALS[TOTALSOFFSET + i] to DST[DSTOFFSET + i], as
+     * add() does, for every i below LENGTH where COUNTS has data. Returns the first i
+     * where COUNTS has data and TOTALS is NaN, or -1 if there is none; DST may be partly
+     * updated when it is not -1.
+     */
+    int addQuotients(double[] dst, int dstOffset, double[] counts, int countsOffset,
+                     double[] totals, int totalsOffset, int length);
+
+    /**
+     * Returns the sum of VALUES[OFFSET .. OFFSET + LENGTH - 1], skipping NaN, or 0 if
+     * every value is NaN.
+     */
+    double sum(double[] values, int offset, int length);
+
+    /**
+     * Returns the kernels selected at startup.
+     */
+    static SeriesKernels get() {
+        return KernelSelection.SELECTED;
+    }
+
+    /**
+     * Returns the scalar kernels.
+     */
+    static SeriesKernels scalar() {
+        return ScalarSeriesKernels.INSTANCE;
+    }
+
+    /**
+     * Returns the vector kernels, or null if they cannot be loaded in this JVM.
+     */
+    static SeriesKernels vector() {
+        return KernelSelection.vector();
+    }
+}
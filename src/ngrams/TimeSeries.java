@@ -29,13 +29,8 @@ public class TimeSeries extends TreeMap<Integer, Double> {
      */
     public TimeSeries(TimeSeries ts, int startYear, int endYear) {
         super();
-        TimeSeries copy = new TimeSeries();
-        int year = startYear;
-        while (year <= endYear){
-            if(ts.containsKey(year)){
-                copy.put(year, ts.get(year));
-            }
-            year += 1;
+        if (startYear <= endYear) {
+            putAll(ts.subMap(startYear, true, endYear, true));
         }
     }
 
@@ -43,15 +38,7 @@ public class TimeSeries extends TreeMap<Integer, Double> {
      *  Returns all years for this time series in ascending order.
      */
     public List<Integer> years() {
-
-        Set<Integer> x = keySet();
-        int size = size();
-        Iterator iter = x.iterator();
-        List<Integer> arr = new ArrayList<>(size);
-        for (int i = 0; i < size; i += 1){
-            arr.add((Integer) iter.next());
-        }
-        return arr;
+        return new ArrayList<>(keySet());
     }
 
     /**
@@ -59,15 +46,7 @@ public class TimeSeries extends TreeMap<Integer, Double> {
      *  order of years().
      */
     public List<Double> data() {
-
-        Collection<Double> y = values();
-        int size = size();
-        Iterator iter = y.iterator();
-        List<Double> arr = new ArrayList<>(size);
-        for (int i = 0; i < size; i += 1){
-            arr.add((double)iter.next());
-        }
-        return arr;
+        return new ArrayList<>(values());
     }
 
     /**
@@ -80,33 +59,14 @@ public class TimeSeries extends TreeMap<Integer, Double> {
      * should store the value from the TimeSeries that contains that year.
      */
     public TimeSeries plus(TimeSeries ts) {
-
-        if (isEmpty() && ts.isEmpty()){
-            return new TimeSeries();
-        }
-        List<Integer> allyears = allyears(years(), ts.years());
         TimeSeries t = new TimeSeries();
-        for (int i = 0; i < allyears.size(); i += 1){
-            int year = allyears.get(i);
-            double data;
-            if (ts.get(year) == null){
-                data = get(year);
-            } else if (get(year) == null){
-                data = ts.get(year);}
-            else{
-            data = get(year) + ts.get(year);}
-            t.put(year, data);
+        t.putAll(this);
+        for (Map.Entry<Integer, Double> entry : ts.entrySet()) {
+            t.merge(entry.getKey(), entry.getValue(), Double::sum);
         }
         return t;
     }
 
-    private List<Integer> allyears(List<Integer> a, List<Integer> b){
-        List<Integer> c = new ArrayList<>();
-        c.addAll(a);
-        c.addAll(b);
-        return c;
-    }
-
 
 
     /**
@@ -121,16 +81,12 @@ public class TimeSeries extends TreeMap<Integer, Double> {
     public TimeSeries dividedBy(TimeSeries ts) {
 
         TimeSeries t = new TimeSeries();
-        List<Integer> years = years();
-        for (int i = 0; i < years.size(); i += 1){
-            int year = years.get(i);
-            double data;
-            if (ts.get(year)== null){
-                throw new IllegalArgumentException();
-            } else{
-                data = get(year) / ts.get(year);
+        for (Map.Entry<Integer, Double> entry : entrySet()) {
+            Double divisor = ts.get(entry.getKey());
+            if (divisor == null) {
+                throw new IllegalArgumentException("No value for year " + entry.getKey());
             }
-            t.put(year, data);
+            t.put(entry.getKey(), entry.getValue() / divisor);
         }
         return t;
     }
@@ -0,0 +1,110 @@
+package ngrams;
+
+import edu.princeton.cs.algs4.In;
+
+import java.util.Arrays;
+import java.util.TreeMap;
+
+/**
+ * The original NGramMap storage: one TimeSeries per word, kept in a TreeMap. Every
+ * word-year costs a boxed Integer, a boxed Double and a tree node, so this engine is
+ * only kept around as a reference to compare the other engines against.
+ *
+ * Word ids are positions in the sorted vocabulary.
+ */
+public class TreeMapNGramStore implements NGramStore {
+
+    private final TreeMap<String, TimeSeries> wordmap = new TreeMap<>();
+    private final TimeSeries countmap = new TimeSeries();
+    private final String[] words;
+    private final TimeSeries[] series;
+
+    /**
+     * Constructs a TreeMapNGramStore from WORDSFILENAME and COUNTSFILENAME.
+     */
+    public TreeMapNGramStore(String wordsFilename, String countsFilename) {
+
+        In words = new In(wordsFilename);
+
+        while (words.hasNextLine()){
+            String[] nextLine = words.readLine().split("\t");
+            String word = nextLine[0];
+            int year = Integer.parseInt(nextLine[1]);
+            double number = Double.parseDouble(nextLine[2]);
+            TimeSeries t = new TimeSeries();
+            t.put(year, number);
+            if (wordmap.get(word) == null){
+                wordmap.put(word, t);
+            } else {
+                t = wordmap.get(word).plus(t);
+                wordmap.put(word, t);
+            }
+        }
+
+        In counts = new In(countsFilename);
+
+        while(counts.hasNextLine()){
+            String[] nextLine = counts.readLine().split(",");
+            int year = Integer.parseInt(nextLine[0]);
+            double number = Double.parseDouble(nextLine[1]);
+            if (countmap.get(year) == null){
+                countmap.put(year, number);
+            } else{
+                TimeSeries t = new TimeSeries();
+                t.put(year, number);
+                countmap.plus(t);
+            }
+        }
+
+        this.words = wordmap.keySet().toArray(new String[0]);
+        this.series = wordmap.values().toArray(new TimeSeries[0]);
+    }
+
+    @Override
+    public int wordId(String word) {
+        int id = Arrays.binarySearch(words, word);
+        return id < 0 ? -1 : id;
+    }
+
+    @Override
+    public int wordCount() {
+        return words.length;
+    }
+
+    @Override
+    public String word(int id) {
+        return words[id];
+    }
+
+    @Override
+    public int firstYear(int id) {
+        return series[id].firstKey();
+    }
+
+    @Override
+    public int lastYear(int id) {
+        return series[id].lastKey();
+    }
+
+    @Override
+    public double count(int id, int year) {
+        Double count = series[id].get(year);
+        return count == null ? Double.NaN : count;
+    }
+
+    @Override
+    public int firstTotalYear() {
+        return countmap.isEmpty() ? TimeSeries.MAX_YEAR : countmap.firstKey();
+    }
+
+    @Override
+    public int lastTotalYear() {
+        return countmap.isEmpty() ? TimeSeries.MIN_YEAR - 1 : countmap.lastKey();
+    }
+
+    @Override
+    public double totalCount(int year) {
+        Double count = countmap.get(year);
+        return count == null ? Double.NaN : count;
+    }
+}
@@ -0,0 +1,113 @@
+package ngrams;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash index from words to dense ids. Ids are handed out in insertion
+ * order, so id i always refers to the i-th distinct word added. Unlike a
+ * HashMap<String, Integer>, there are no boxed values and no per-entry nodes.
+ */
+final class WordIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private String[] words;
+    /* Each slot holds id + 1 of the word hashed there, or 0 if the slot is empty. */
+    private int[] slots;
+    private int size;
+
+    WordIndex() {
+        this(INITIAL_CAPACITY);
+    }
+
+    WordIndex(int expectedWords) {
+        int capacity = Integer.highestOneBit(Math.max(expectedWords, 16) * 2 - 1) << 1;
+        words = new String[Math.max(expectedWords, 16)];
+        slots = new int[capacity];
+    }
+
+    /**
+     * Returns the id of WORD, or -1 if it has not been added.
+     */
+    int id(String word) {
+        int mask = slots.length - 1;
+        for (int i = mix(word.hashCode()) & mask; ; i = (i + 1) & mask) {
+            int slot = slots[i];
+            if (slot == 0) {
+                return -1;
+            }
+            if (words[slot - 1].equals(word)) {
+                return slot - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of WORD, adding it with the next free id if it is not present yet.
+     */
+    int idOrAdd(String word) {
+        int mask = slots.length - 1;
+        int i = mix(word.hashCode()) & mask;
+        for (; slots[i] != 0; i = (i + 1) & mask) {
+            if (words[slots[i] - 1].equals(word)) {
+                return slots[i] - 1;
+            }
+        }
+        if (size == words.length) {
+            words = Arrays.copyOf(words, size * 2);
+        }
+        words[size] = word;
+        slots[i] = size + 1;
+        size += 1;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return size - 1;
+    }
+
+    /**
+     * Returns the word with the given ID.
+     */
+    String word(int id) {
+        return words[id];
+    }
+
+    /**
+     * Returns the number of words in this index.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Releases the spare capacity left over from growing the index.
+     */
+    void trim() {
+        words = Arrays.copyOf(words, size);
+    }
+
+    /**
+     * Returns an estimate of the heap used by this index, excluding the word Strings.
+     */
+    long memoryBytes() {
+        return 8L * words.length + 4L * slots.length;
+    }
+
+    private void rehash(int capacity) {
+        int[] newSlots = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id += 1) {
+            int i = mix(words[id].hashCode()) & mask;
+            while (newSlots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            newSlots[i] = id + 1;
+        }
+        slots = newSlots;
+    }
+
+    /* String.hashCode clusters badly in the low bits for short, similar words. */
+    static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
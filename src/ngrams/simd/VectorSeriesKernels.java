@@ -0,0 +1,89 @@
+package ngrams.simd;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import ngrams.SeriesKernels;
+
+/**
+ * The SeriesKernels on the incubating Vector API, processing as many years at once as
+ * the CPU's preferred vector shape holds doubles (4 with AVX2, 8 with AVX-512). The
+ * last few years of a range that do not fill a vector go through the scalar kernels.
+ *
+ * NaN is handled with lane masks instead of branches: a sum keeps the other operand
+ * where one is NaN, and a range is checked for missing divisors before it is stored.
+ * This class needs --add-modules jdk.incubator.vector both to compile and to run;
+ * SeriesKernels loads it reflectively so that nothing else does.
+ */
+public final class VectorSeriesKernels implements SeriesKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final SeriesKernels SCALAR = SeriesKernels.scalar();
+
+    @Override
+    public void add(double[] dst, int dstOffset, double[] src, int srcOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector a = DoubleVector.fromArray(SPECIES, dst, dstOffset + i);
+            DoubleVector b = DoubleVector.fromArray(SPECIES, src, srcOffset + i);
+            plus(a, b).intoArray(dst, dstOffset + i);
+        }
+        SCALAR.add(dst, dstOffset + i, src, srcOffset + i, length - i);
+    }
+
+    @Override
+    public int divide(double[] dst, int dstOffset, double[] divisors, int divisorOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector a = DoubleVector.fromArray(SPECIES, dst, dstOffset + i);
+            DoubleVector b = DoubleVector.fromArray(SPECIES, divisors, divisorOffset + i);
+            VectorMask<Double> missing = a.test(VectorOperators.IS_NAN).not().and(b.test(VectorOperators.IS_NAN));
+            if (missing.anyTrue()) {
+                return i + missing.firstTrue();
+            }
+            // A year without data stays NaN, since NaN divided by anything is NaN
+            a.div(b).intoArray(dst, dstOffset + i);
+        }
+        int tail = SCALAR.divide(dst, dstOffset + i, divisors, divisorOffset + i, length - i);
+        return tail < 0 ? -1 : i + tail;
+    }
+
+    @Override
+    public int addQuotients(double[] dst, int dstOffset, double[] counts, int countsOffset,
+                            double[] totals, int totalsOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector c = DoubleVector.fromArray(SPECIES, counts, countsOffset + i);
+            DoubleVector t = DoubleVector.fromArray(SPECIES, totals, totalsOffset + i);
+            VectorMask<Double> missing = c.test(VectorOperators.IS_NAN).not().and(t.test(VectorOperators.IS_NAN));
+            if (missing.anyTrue()) {
+                return i + missing.firstTrue();
+            }
+            DoubleVector a = DoubleVector.fromArray(SPECIES, dst, dstOffset + i);
+            plus(a, c.div(t)).intoArray(dst, dstOffset + i);
+        }
+        int tail = SCALAR.addQuotients(dst, dstOffset + i, counts, countsOffset + i, totals, totalsOffset + i, length - i);
+        return tail < 0 ? -1 : i + tail;
+    }
+
+    @Override
+    public double sum(double[] values, int offset, int length) {
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector v = DoubleVector.fromArray(SPECIES, values, offset + i);
+            sums = sums.add(v, v.test(VectorOperators.IS_NAN).not());
+        }
+        return sums.reduceLanes(VectorOperators.ADD) + SCALAR.sum(values, offset + i, length - i);
+    }
+
+    /* Adds A and B lane by lane, taking the other operand where one of them is NaN. */
+    private static DoubleVector plus(DoubleVector a, DoubleVector b) {
+        return a.add(b).blend(b, a.test(VectorOperators.IS_NAN)).blend(a, b.test(VectorOperators.IS_NAN));
+    }
+
+    @Override
+    public String toString() {
+        return "vector (" + SPECIES.length() + " doubles wide)";
+    }
+}
@@ -0,0 +1,279 @@
+package plotting;
+
+import cache.BoundedCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A two-tier cache of rendered chart PNGs, keyed by the charted words and year range.
+ *
+ * The first tier is a byte-bounded in-memory LRU cache. The second is a directory on
+ * local disk holding one file per chart, so rendered charts survive restarts. A chart
+ * missing from memory is looked up on disk before it is rendered, and a newly rendered
+ * chart is written to both tiers. Disk files are named after a hash of the key and of a
+ * namespace that should identify the data being charted, so charts of different data
+ * never collide. When the directory grows past its budget, the least recently used
+ * files are deleted.
+ *
+ * Disk problems are logged and otherwise ignored: the cache then behaves as if the
+ * chart was not on disk.
+ */
+public class ChartCache {
+    private static final Logger logger = LoggerFactory.getLogger(ChartCache.class);
+
+    /** Default byte budget of the in-memory tier. */
+    public static final long DEFAULT_MEMORY_BYTES = 32L << 20;
+    /** Default byte budget of the disk tier. */
+    public static final long DEFAULT_DISK_BYTES = 256L << 20;
+
+    /* Bump when the rendering or the encoding changes, so old disk files are not served. */
+    private static final String FORMAT = "png-1";
+    private static final String SUFFIX = ".png";
+
+    private final BoundedCache<String, byte[]> memory;
+    private final Path directory;
+    private final long diskBytes;
+    private final String namespace;
+    private final AtomicLong diskUsed = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong diskWrites = new AtomicLong();
+    private final AtomicLong renders = new AtomicLong();
+
+    /**
+     * Constructs a cache that only keeps charts in memory.
+     *
+     * @param memoryBytes the byte budget of the in-memory tier
+     * @throws IllegalArgumentException if memoryBytes is negative
+     */
+    public ChartCache(long memoryBytes) {
+        this(memoryBytes, null, 0, "");
+    }
+
+    /**
+     * Constructs a cache that keeps charts in memory and in DIRECTORY, which is created if
+     * needed. If DIRECTORY is null, the disk tier is disabled.
+     *
+     * @param memoryBytes the byte budget of the in-memory tier
+     * @param directory where to keep charts on disk, or null
+     * @param diskBytes the byte budget of the disk tier
+     * @param namespace identifies the charted data, for example dataNamespace(files)
+     * @throws IllegalArgumentException if either budget is negative
+     */
+    public ChartCache(long memoryBytes, Path directory, long diskBytes, String namespace) {
+        if (diskBytes < 0) {
+            throw new IllegalArgumentException("Disk budget cannot be negative: " + diskBytes);
+        }
+        this.memory = new BoundedCache<>(memoryBytes, (key, png) -> png.length + 2L * key.length() + 96);
+        this.diskBytes = diskBytes;
+        this.namespace = namespace;
+        this.directory = directory == null ? null : openDirectory(directory);
+    }
+
+    private Path openDirectory(Path dir) {
+        try {
+            Files.createDirectories(dir);
+            long used = 0;
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+                for (Path file : files) {
+                    used += Files.size(file);
+                }
+            }
+            diskUsed.set(used);
+            logger.info("Chart cache directory {} holds {} bytes", dir, used);
+            return dir;
+        } catch (IOException e) {
+            logger.warn("Disabling disk chart cache in {}: {}", dir, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns a namespace identifying the contents of FILES by their paths, sizes and
+     * modification times, so charts cached on disk are not reused after the data changes.
+     */
+    public static String dataNamespace(List<String> files) {
+        StringBuilder namespace = new StringBuilder();
+        for (String file : files) {
+            Path path = Path.of(file);
+            namespace.append(path.toAbsolutePath()).append(';');
+            try {
+                namespace.append(Files.size(path)).append(';')
+                        .append(Files.getLastModifiedTime(path).toMillis()).append(';');
+            } catch (IOException e) {
+                namespace.append("?;");
+            }
+        }
+        return namespace.toString();
+    }
+
+    /**
+     * Returns the PNG of the chart of WORDS from STARTYEAR to ENDYEAR, calling RENDER only
+     * if it is in neither tier. A null result from RENDER is returned but not cached.
+     */
+    public byte[] png(List<String> words, int startYear, int endYear, Supplier<byte[]> render) {
+        String key = String.join(",", words) + "|" + startYear + "-" + endYear;
+        return memory.computeIfAbsent(key, k -> {
+            Path file = directory == null ? null : directory.resolve(fileName(k));
+            byte[] png = file == null ? null : readFromDisk(file);
+            if (png != null) {
+                diskHits.incrementAndGet();
+                return png;
+            }
+            png = render.get();
+            renders.incrementAndGet();
+            if (png != null && file != null) {
+                writeToDisk(file, png);
+            }
+            return png;
+        });
+    }
+
+    private String fileName(String key) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256")
+                    .digest((FORMAT + "|" + namespace + "|" + key).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        StringBuilder name = new StringBuilder(36);
+        for (int i = 0; i < 16; i += 1) {
+            name.append(Character.forDigit((digest[i] >> 4) & 0xf, 16))
+                    .append(Character.forDigit(digest[i] & 0xf, 16));
+        }
+        return name.append(SUFFIX).toString();
+    }
+
+    private byte[] readFromDisk(Path file) {
+        try {
+            byte[] png = Files.readAllBytes(file);
+            // The modification time doubles as the last use, for pruning.
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return png;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Could not read cached chart {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk(Path file, byte[] png) {
+        if (png.length > diskBytes) {
+            return;
+        }
+        try {
+            // Another thread may have stored the same chart since this one missed
+            long replaced = sizeOrZero(file);
+            Path temp = Files.createTempFile(directory, "chart", ".tmp");
+            try {
+                Files.write(temp, png);
+                try {
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            diskWrites.incrementAndGet();
+            if (diskUsed.addAndGet(png.length - replaced) > diskBytes) {
+                prune();
+            }
+        } catch (IOException e) {
+            logger.warn("Could not write cached chart {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static long sizeOrZero(Path file) throws IOException {
+        try {
+            return Files.size(file);
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    private record CachedFile(Path path, long lastUsed, long size) { }
+
+    /* Deletes the least recently used files until the directory is within 90% of its budget. */
+    private synchronized void prune() {
+        List<CachedFile> files = new ArrayList<>();
+        long used = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                CachedFile cached = new CachedFile(file, Files.getLastModifiedTime(file).toMillis(), Files.size(file));
+                files.add(cached);
+                used += cached.size;
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            logger.warn("Could not prune chart cache {}: {}", directory, e.getMessage());
+            return;
+        }
+        files.sort(Comparator.comparingLong(CachedFile::lastUsed));
+        long target = diskBytes / 10 * 9;
+        for (int i = 0; i < files.size() && used > target; i += 1) {
+            CachedFile file = files.get(i);
+            try {
+                if (Files.deleteIfExists(file.path)) {
+                    used -= file.size;
+                }
+            } catch (IOException e) {
+                logger.debug("Could not delete cached chart {}: {}", file.path, e.getMessage());
+            }
+        }
+        diskUsed.set(used);
+        logger.debug("Pruned chart cache {} to {} bytes", directory, used);
+    }
+
+    /**
+     * Returns the statistics of the in-memory tier.
+     */
+    public BoundedCache.Stats memoryStats() {
+        return memory.stats();
+    }
+
+    /**
+     * Returns how many charts were served from disk.
+     */
+    public long diskHits() {
+        return diskHits.get();
+    }
+
+    /**
+     * Returns the bytes of charts in the disk tier, as this cache has counted them.
+     */
+    public long diskUsed() {
+        return diskUsed.get();
+    }
+
+    /**
+     * Returns how many charts had to be rendered.
+     */
+    public long renders() {
+        return renders.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("memory: %s; disk: %,d hits, %,d writes, %,d of %,d bytes; %,d renders",
+                memory.stats(), diskHits.get(), diskWrites.get(), diskUsed.get(), diskBytes, renders.get());
+    }
+}
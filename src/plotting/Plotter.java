@@ -7,10 +7,7 @@ import org.knowm.xchart.XYChart;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.Base64;
 import java.util.List;
 import java.util.ArrayList;
@@ -29,7 +26,7 @@ public class Plotter {
     // Chart configuration constants
     private static final int DEFAULT_CHART_WIDTH = 800;
     private static final int DEFAULT_CHART_HEIGHT = 600;
-    private static final String IMAGE_FORMAT = "png";
+    private static final PngEncoder PNG_ENCODER = new PngEncoder();
     
     /**
      * Generates a time series chart from a list of words and their corresponding TimeSeries data.
@@ -155,30 +152,31 @@ public class Plotter {
      * @throws RuntimeException if encoding fails
      */
     public static String encodeChartAsString(XYChart chart) {
+        String encodedImage = Base64.getEncoder().encodeToString(encodeChartAsPng(chart));
+        logger.debug("Successfully encoded chart as Base64 string ({} bytes)", encodedImage.length());
+        return encodedImage;
+    }
+
+    /**
+     * Renders a chart and encodes it as a PNG file with PngEncoder, which is several
+     * times faster than ImageIO for charts and produces smaller files.
+     * 
+     * @param chart the XYChart to encode
+     * @return the bytes of the PNG file
+     * @throws IllegalArgumentException if the chart is null
+     * @throws RuntimeException if encoding fails
+     */
+    public static byte[] encodeChartAsPng(XYChart chart) {
         if (chart == null) {
             logger.error("Cannot encode null chart");
             throw new IllegalArgumentException("Chart cannot be null");
         }
         
-        logger.debug("Encoding chart as Base64 string");
+        logger.debug("Encoding chart as PNG");
         
         try {
             BufferedImage img = BitmapEncoder.getBufferedImage(chart);
-            ByteArrayOutputStream os = new ByteArrayOutputStream();
-            
-            boolean writeSuccess = ImageIO.write(img, IMAGE_FORMAT, os);
-            if (!writeSuccess) {
-                logger.error("Failed to write image in {} format", IMAGE_FORMAT);
-                throw new IOException("ImageIO.write returned false");
-            }
-            
-            String encodedImage = Base64.getEncoder().encodeToString(os.toByteArray());
-            logger.debug("Successfully encoded chart as Base64 string ({} bytes)", encodedImage.length());
-            return encodedImage;
-            
-        } catch (IOException e) {
-            logger.error("Error encoding chart as Base64 string", e);
-            throw new RuntimeException("Failed to encode chart: " + e.getMessage(), e);
+            return PNG_ENCODER.encode(img);
         } catch (Exception e) {
             logger.error("Unexpected error encoding chart", e);
             throw new RuntimeException("Unexpected error encoding chart: " + e.getMessage(), e);
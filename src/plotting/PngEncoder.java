@@ -0,0 +1,326 @@
+package plotting;
+
+import cache.ScratchPool;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A small PNG writer tuned for rendered charts, used instead of ImageIO.
+ *
+ * An image with at most 256 distinct colours, such as a chart drawn without
+ * antialiasing, is written as an 8-bit indexed PNG. That needs a quarter of the bytes of
+ * RGBA before compression, so deflate has much less to do. Antialiased charts usually
+ * have more colours than that and are written as truecolour with the Sub filter, which
+ * turns the long flat runs of a chart into zeros. The deflate level defaults to
+ * BEST_SPEED: on an 800x600 chart level 6 takes about twice as long and level 9 ten
+ * times as long, for output only 10 to 20 percent smaller.
+ *
+ * The pixel, scanline and output buffers, the Deflater and the palette table are kept
+ * in a small pool per encoder, shared by all threads and reused, so encoding a chart
+ * only allocates the returned array, even when every request runs on a new virtual
+ * thread. Keep one encoder for all charts, as Plotter does, to benefit from it.
+ */
+public final class PngEncoder {
+    /** The deflate level used by the no-argument constructor. */
+    public static final int DEFAULT_LEVEL = Deflater.BEST_SPEED;
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final int COLOR_TYPE_TRUECOLOR = 2;
+    private static final int COLOR_TYPE_INDEXED = 3;
+    private static final int COLOR_TYPE_TRUECOLOR_ALPHA = 6;
+    private static final int FILTER_NONE = 0;
+    private static final int FILTER_SUB = 1;
+    private static final int MAX_PALETTE = 256;
+
+    private final int level;
+    private final ScratchPool<Scratch> scratches = new ScratchPool<>(Scratch::new);
+
+    /**
+     * Constructs an encoder that compresses with DEFAULT_LEVEL.
+     */
+    public PngEncoder() {
+        this(DEFAULT_LEVEL);
+    }
+
+    /**
+     * Constructs an encoder that compresses with the given deflate LEVEL.
+     *
+     * @throws IllegalArgumentException if LEVEL is not in [0, 9]
+     */
+    public PngEncoder(int level) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Deflate level must be in [0, 9]: " + level);
+        }
+        this.level = level;
+    }
+
+    /* Buffers borrowed by one encode() at a time. */
+    private static final class Scratch {
+        final Deflater deflater = new Deflater();
+        final CRC32 crc = new CRC32();
+        /* Open-addressing table from ARGB colour to palette index + 1; 0 means empty. */
+        final int[] tableColors = new int[4 * MAX_PALETTE];
+        final int[] tableIndices = new int[4 * MAX_PALETTE];
+        final int[] palette = new int[MAX_PALETTE];
+        int[] pixels = new int[0];
+        byte[] raw = new byte[0];
+        byte[] out = new byte[0];
+        int size;
+
+        int[] pixels(int length) {
+            if (pixels.length < length) {
+                pixels = new int[length];
+            }
+            return pixels;
+        }
+
+        byte[] raw(int length) {
+            if (raw.length < length) {
+                raw = new byte[length];
+            }
+            return raw;
+        }
+
+        void ensure(int extra) {
+            if (size + extra > out.length) {
+                out = Arrays.copyOf(out, Math.max(size + extra, out.length * 2));
+            }
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            out[size++] = (byte) (value >>> 24);
+            out[size++] = (byte) (value >>> 16);
+            out[size++] = (byte) (value >>> 8);
+            out[size++] = (byte) value;
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            out[size++] = (byte) value;
+        }
+
+        /* Starts a chunk and returns where its data begins. */
+        int beginChunk(String type) {
+            writeInt(0);
+            for (int i = 0; i < 4; i += 1) {
+                writeByte(type.charAt(i));
+            }
+            return size;
+        }
+
+        /* Back-fills the length of the chunk whose data began at START and appends its CRC. */
+        void endChunk(int start) {
+            int length = size - start;
+            out[start - 8] = (byte) (length >>> 24);
+            out[start - 7] = (byte) (length >>> 16);
+            out[start - 6] = (byte) (length >>> 8);
+            out[start - 5] = (byte) length;
+            crc.reset();
+            crc.update(out, start - 4, length + 4);
+            writeInt((int) crc.getValue());
+        }
+    }
+
+    /**
+     * Returns IMAGE encoded as a PNG file.
+     */
+    public byte[] encode(BufferedImage image) {
+        Scratch s = scratches.borrow();
+        try {
+            return encode(image, s);
+        } finally {
+            scratches.release(s);
+        }
+    }
+
+    /**
+     * Returns the pool of buffers encode() borrows from, for its allocation counts.
+     */
+    public ScratchPool<?> scratches() {
+        return scratches;
+    }
+
+    private byte[] encode(BufferedImage image, Scratch s) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean alpha = image.getColorModel().hasAlpha();
+        int[] pixels = readPixels(image, s.pixels(width * height));
+        int colors = buildPalette(s, pixels, width * height);
+
+        s.size = 0;
+        s.ensure(SIGNATURE.length);
+        System.arraycopy(SIGNATURE, 0, s.out, 0, SIGNATURE.length);
+        s.size = SIGNATURE.length;
+
+        int colorType = colors > 0 ? COLOR_TYPE_INDEXED
+                : alpha ? COLOR_TYPE_TRUECOLOR_ALPHA : COLOR_TYPE_TRUECOLOR;
+        int start = s.beginChunk("IHDR");
+        s.writeInt(width);
+        s.writeInt(height);
+        s.writeByte(8);
+        s.writeByte(colorType);
+        s.writeByte(0);
+        s.writeByte(0);
+        s.writeByte(0);
+        s.endChunk(start);
+
+        int rawLength;
+        if (colorType == COLOR_TYPE_INDEXED) {
+            writePalette(s, colors);
+            rawLength = indexedScanlines(s, pixels, width, height);
+        } else {
+            rawLength = truecolorScanlines(s, pixels, width, height, alpha ? 4 : 3);
+        }
+
+        start = s.beginChunk("IDAT");
+        Deflater deflater = s.deflater;
+        deflater.reset();
+        deflater.setLevel(level);
+        deflater.setInput(s.raw, 0, rawLength);
+        deflater.finish();
+        while (!deflater.finished()) {
+            s.ensure(Math.max(8192, rawLength / 8));
+            s.size += deflater.deflate(s.out, s.size, s.out.length - s.size);
+        }
+        s.endChunk(start);
+
+        s.endChunk(s.beginChunk("IEND"));
+        return Arrays.copyOf(s.out, s.size);
+    }
+
+    /* Reads IMAGE as ARGB into PIXELS, straight from the raster when it stores ints. */
+    private static int[] readPixels(BufferedImage image, int[] pixels) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int type = image.getType();
+        WritableRaster raster = image.getRaster();
+        if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+                && raster.getDataBuffer().getDataType() == DataBuffer.TYPE_INT) {
+            raster.getDataElements(0, 0, width, height, pixels);
+            if (type == BufferedImage.TYPE_INT_RGB) {
+                for (int i = 0; i < width * height; i += 1) {
+                    pixels[i] |= 0xff000000;
+                }
+            }
+        } else {
+            image.getRGB(0, 0, width, height, pixels, 0, width);
+        }
+        return pixels;
+    }
+
+    /*
+     * Fills the palette with the distinct colours of the first LENGTH PIXELS and returns
+     * how many there are, or 0 if there are more than fit in a palette.
+     */
+    private static int buildPalette(Scratch s, int[] pixels, int length) {
+        int[] colors = s.tableColors;
+        int[] indices = s.tableIndices;
+        Arrays.fill(indices, 0);
+        int mask = colors.length - 1;
+        int count = 0;
+        int last = 0;
+        boolean haveLast = false;
+        for (int i = 0; i < length; i += 1) {
+            int color = pixels[i];
+            if (haveLast && color == last) {
+                continue;
+            }
+            int slot = mix(color) & mask;
+            while (indices[slot] != 0 && colors[slot] != color) {
+                slot = (slot + 1) & mask;
+            }
+            if (indices[slot] == 0) {
+                if (count == MAX_PALETTE) {
+                    return 0;
+                }
+                colors[slot] = color;
+                s.palette[count] = color;
+                count += 1;
+                indices[slot] = count;
+            }
+            last = color;
+            haveLast = true;
+        }
+        return count;
+    }
+
+    private static int mix(int color) {
+        int h = color * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int paletteIndex(Scratch s, int color) {
+        int[] colors = s.tableColors;
+        int mask = colors.length - 1;
+        int slot = mix(color) & mask;
+        while (colors[slot] != color || s.tableIndices[slot] == 0) {
+            slot = (slot + 1) & mask;
+        }
+        return s.tableIndices[slot] - 1;
+    }
+
+    private static void writePalette(Scratch s, int colors) {
+        int start = s.beginChunk("PLTE");
+        boolean translucent = false;
+        for (int i = 0; i < colors; i += 1) {
+            int color = s.palette[i];
+            s.writeByte(color >>> 16);
+            s.writeByte(color >>> 8);
+            s.writeByte(color);
+            translucent |= (color >>> 24) != 0xff;
+        }
+        s.endChunk(start);
+        if (translucent) {
+            start = s.beginChunk("tRNS");
+            for (int i = 0; i < colors; i += 1) {
+                s.writeByte(s.palette[i] >>> 24);
+            }
+            s.endChunk(start);
+        }
+    }
+
+    private static int indexedScanlines(Scratch s, int[] pixels, int width, int height) {
+        byte[] raw = s.raw(height * (width + 1));
+        int pos = 0;
+        int last = 0;
+        int lastIndex = -1;
+        for (int y = 0; y < height; y += 1) {
+            raw[pos++] = FILTER_NONE;
+            for (int x = 0, i = y * width; x < width; x += 1, i += 1) {
+                int color = pixels[i];
+                if (lastIndex < 0 || color != last) {
+                    last = color;
+                    lastIndex = paletteIndex(s, color);
+                }
+                raw[pos++] = (byte) lastIndex;
+            }
+        }
+        return pos;
+    }
+
+    private static int truecolorScanlines(Scratch s, int[] pixels, int width, int height, int channels) {
+        byte[] raw = s.raw(height * (width * channels + 1));
+        int pos = 0;
+        for (int y = 0; y < height; y += 1) {
+            raw[pos++] = FILTER_SUB;
+            int left = 0;
+            for (int x = 0, i = y * width; x < width; x += 1, i += 1) {
+                int color = pixels[i];
+                raw[pos++] = (byte) ((color >>> 16) - (left >>> 16));
+                raw[pos++] = (byte) ((color >>> 8) - (left >>> 8));
+                raw[pos++] = (byte) (color - left);
+                if (channels == 4) {
+                    raw[pos++] = (byte) ((color >>> 24) - (left >>> 24));
+                }
+                left = color;
+            }
+        }
+        return pos;
+    }
+}
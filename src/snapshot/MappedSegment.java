@@ -0,0 +1,124 @@
+package snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A little-endian, long-addressed view of a memory-mapped file range of any size.
+ *
+ * A single MappedByteBuffer is int-indexed and so cannot cover more than 2GB. A segment
+ * maps its range as a run of regions of REGION_BYTES each and picks the region by the
+ * high bits of the offset. The region size is a multiple of 8, so as long as values are
+ * aligned to their own size relative to the start of the segment (which snapshot
+ * sections always are) no value straddles two regions.
+ *
+ * The accessors follow java.lang.foreign.MemorySegment: offsets are in bytes, not
+ * elements, and nothing is copied onto the heap.
+ */
+public final class MappedSegment {
+    private static final int REGION_SHIFT = 30;
+    private static final long REGION_BYTES = 1L << REGION_SHIFT;
+    private static final long REGION_MASK = REGION_BYTES - 1;
+
+    private final ByteBuffer[] regions;
+    private final long length;
+
+    private MappedSegment(ByteBuffer[] regions, long length) {
+        this.regions = regions;
+        this.length = length;
+    }
+
+    /**
+     * Maps LENGTH bytes of CHANNEL starting at OFFSET in the given MODE. The mapping stays
+     * valid after CHANNEL is closed.
+     */
+    public static MappedSegment map(FileChannel channel, FileChannel.MapMode mode, long offset, long length)
+            throws IOException {
+        int count = (int) ((length + REGION_BYTES - 1) >>> REGION_SHIFT);
+        ByteBuffer[] regions = new ByteBuffer[Math.max(count, 1)];
+        if (count == 0) {
+            regions[0] = ByteBuffer.allocate(0);
+        }
+        for (int i = 0; i < count; i += 1) {
+            long start = (long) i << REGION_SHIFT;
+            long size = Math.min(REGION_BYTES, length - start);
+            regions[i] = channel.map(mode, offset + start, size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new MappedSegment(regions, length);
+    }
+
+    /**
+     * Returns the size of this segment in bytes.
+     */
+    public long byteSize() {
+        return length;
+    }
+
+    public byte getByte(long offset) {
+        return regionAt(offset).get((int) (offset & REGION_MASK));
+    }
+
+    public int getInt(long offset) {
+        return regionAt(offset).getInt((int) (offset & REGION_MASK));
+    }
+
+    public long getLong(long offset) {
+        return regionAt(offset).getLong((int) (offset & REGION_MASK));
+    }
+
+    public double getDouble(long offset) {
+        return regionAt(offset).getDouble((int) (offset & REGION_MASK));
+    }
+
+    public void putInt(long offset, int value) {
+        regionAt(offset).putInt((int) (offset & REGION_MASK), value);
+    }
+
+    /**
+     * Copies LENGTH bytes starting at OFFSET into DST, starting at DSTOFFSET. Unlike the
+     * other accessors this may cross a region boundary.
+     */
+    public void getBytes(long offset, byte[] dst, int dstOffset, int length) {
+        while (length > 0) {
+            ByteBuffer region = regionAt(offset);
+            int start = (int) (offset & REGION_MASK);
+            int n = Math.min(length, region.limit() - start);
+            region.get(start, dst, dstOffset, n);
+            offset += n;
+            dstOffset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Writes any changes made through a READ_WRITE segment back to the file.
+     */
+    public void force() {
+        for (ByteBuffer region : regions) {
+            if (region instanceof MappedByteBuffer mapped) {
+                mapped.force();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of mapped regions.
+     */
+    public int regionCount() {
+        return regions.length;
+    }
+
+    /**
+     * Returns a view of the I-th mapped region, for bulk operations such as checksums.
+     */
+    public ByteBuffer region(int i) {
+        return regions[i].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private ByteBuffer regionAt(long offset) {
+        return regions[(int) (offset >>> REGION_SHIFT)];
+    }
+}
@@ -0,0 +1,476 @@
+package snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * A versioned, checksummed binary container for precompiled datasets.
+ *
+ * A snapshot is a fixed-size header, a run of named sections and a footer. The footer
+ * names the snapshot's kind (for example "ngrams"), the source files it was compiled
+ * from, and where each section lives. Sections are 8-byte aligned, little-endian, and
+ * carry their own CRC32C.
+ *
+ * Opening a snapshot reads the header and footer only, so it costs the same whatever
+ * the size of the data. Sections are memory-mapped when they are asked for, either as a
+ * ByteBuffer or, for sections that may exceed 2GB, as a MappedSegment. verify() checks
+ * the section checksums on demand.
+ */
+public final class SnapshotFile {
+    /** Bumped whenever the layout of any snapshot kind changes. */
+    public static final int FORMAT_VERSION = 2;
+
+    private static final byte[] MAGIC = "NGORDNET".getBytes(StandardCharsets.US_ASCII);
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    /* Magic, version, footer offset, footer length and footer checksum. */
+    private static final int HEADER_BYTES = 32;
+
+    private final Path path;
+    private final String kind;
+    private final List<Source> sources;
+    private final Map<String, Section> sections;
+
+    /** A source file a snapshot was compiled from, with its size and modification time. */
+    public record Source(String path, long size, long lastModified) {
+        static Source of(Path path) throws IOException {
+            return new Source(path.toString(), Files.size(path),
+                    Files.getLastModifiedTime(path).toMillis());
+        }
+    }
+
+    private record Section(String name, long offset, long length, int checksum) { }
+
+    private SnapshotFile(Path path, String kind, List<Source> sources,
+                         Map<String, Section> sections) {
+        this.path = path;
+        this.kind = kind;
+        this.sources = sources;
+        this.sections = sections;
+    }
+
+    /**
+     * Opens the snapshot at PATH and checks its magic number, version, kind and footer
+     * checksum.
+     *
+     * @throws IllegalArgumentException if the file cannot be read, is not a snapshot of
+     *                                  the expected KIND, or was written by another version
+     */
+    public static SnapshotFile open(Path path, String kind) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IllegalArgumentException("Not a snapshot file: " + path);
+            }
+            ByteBuffer header = read(channel, 0, HEADER_BYTES);
+
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IllegalArgumentException("Not a snapshot file: " + path);
+            }
+            int version = header.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException(String.format(
+                        "Snapshot %s has format version %d, expected %d", path, version, FORMAT_VERSION));
+            }
+            header.getInt();
+            long footerOffset = header.getLong();
+            int footerLength = header.getInt();
+            int footerChecksum = header.getInt();
+            if (footerOffset < HEADER_BYTES || footerOffset + footerLength > size) {
+                throw new IllegalArgumentException("Truncated snapshot: " + path);
+            }
+
+            ByteBuffer footer = read(channel, footerOffset, footerLength);
+            CRC32C crc = new CRC32C();
+            crc.update(footer.duplicate());
+            if ((int) crc.getValue() != footerChecksum) {
+                throw new IllegalArgumentException("Corrupt snapshot footer: " + path);
+            }
+
+            String actualKind = readString(footer);
+            if (!actualKind.equals(kind)) {
+                throw new IllegalArgumentException(String.format(
+                        "Snapshot %s holds %s, expected %s", path, actualKind, kind));
+            }
+            int sourceCount = footer.getInt();
+            List<Source> sources = new ArrayList<>(sourceCount);
+            for (int i = 0; i < sourceCount; i += 1) {
+                sources.add(new Source(readString(footer), footer.getLong(), footer.getLong()));
+            }
+            int sectionCount = footer.getInt();
+            Map<String, Section> sections = new LinkedHashMap<>();
+            for (int i = 0; i < sectionCount; i += 1) {
+                Section section = new Section(readString(footer), footer.getLong(), footer.getLong(),
+                        footer.getInt());
+                if (section.offset < HEADER_BYTES || section.offset + section.length > footerOffset) {
+                    throw new IllegalArgumentException("Truncated snapshot: " + path);
+                }
+                sections.put(section.name, section);
+            }
+            return new SnapshotFile(path, kind, List.copyOf(sources), sections);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read snapshot " + path, e);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Corrupt snapshot: " + path, e);
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ORDER);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Returns whether every source file recorded in this snapshot still has the size and
+     * modification time it had when the snapshot was written.
+     */
+    public boolean isFresh() {
+        try {
+            for (Source source : sources) {
+                if (!Source.of(Path.of(source.path)).equals(source)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Maps the section called NAME and returns a little-endian view of it.
+     *
+     * @throws IllegalArgumentException if the snapshot has no such section, or it is
+     *                                  larger than 2GB
+     */
+    public ByteBuffer section(String name) {
+        Section section = find(name);
+        if (section.length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Section " + name + " of " + path
+                    + " is larger than 2GB; map it as a segment");
+        }
+        return segment(section).region(0);
+    }
+
+    /**
+     * Maps the section called NAME as a long-addressed segment, whatever its size.
+     *
+     * @throws IllegalArgumentException if the snapshot has no such section
+     */
+    public MappedSegment segment(String name) {
+        return segment(find(name));
+    }
+
+    private Section find(String name) {
+        Section section = sections.get(name);
+        if (section == null) {
+            throw new IllegalArgumentException("Snapshot " + path + " has no section " + name);
+        }
+        return section;
+    }
+
+    private MappedSegment segment(Section section) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return MappedSegment.map(channel, FileChannel.MapMode.READ_ONLY, section.offset, section.length);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not map snapshot " + path, e);
+        }
+    }
+
+    /**
+     * Checks the checksum of every section.
+     *
+     * @throws IllegalStateException if a section does not match its checksum
+     */
+    public void verify() {
+        for (Section section : sections.values()) {
+            CRC32C crc = new CRC32C();
+            MappedSegment segment = segment(section);
+            for (int i = 0; i < segment.regionCount(); i += 1) {
+                crc.update(segment.region(i));
+            }
+            if ((int) crc.getValue() != section.checksum) {
+                throw new IllegalStateException("Checksum mismatch in section " + section.name
+                        + " of " + path);
+            }
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public String kind() {
+        return kind;
+    }
+
+    public List<Source> sources() {
+        return sources;
+    }
+
+    /**
+     * Returns the total size in bytes of all sections.
+     */
+    public long dataBytes() {
+        long bytes = 0;
+        for (Section section : sections.values()) {
+            bytes += section.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Starts writing a snapshot of the given KIND to PATH, recording SOURCES so that
+     * readers can tell when it is stale. The file only appears at PATH once the writer
+     * is closed.
+     */
+    public static Writer writer(Path path, String kind, List<Path> sources) {
+        return new Writer(path, kind, sources);
+    }
+
+    /**
+     * Writes a snapshot one section at a time. Values are buffered and checksummed on
+     * their way to a temporary file, which is moved into place by close().
+     */
+    public static final class Writer implements AutoCloseable {
+        private static final int BUFFER_BYTES = 1 << 20;
+
+        private final Path path;
+        private final Path temp;
+        private final String kind;
+        private final List<Source> sources = new ArrayList<>();
+        private final List<Section> sections = new ArrayList<>();
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ORDER);
+        private final CRC32C crc = new CRC32C();
+        private String sectionName;
+        private long sectionStart;
+        private long position = HEADER_BYTES;
+        private long flushed = HEADER_BYTES;
+
+        private Writer(Path path, String kind, List<Path> sourcePaths) {
+            this.path = path;
+            this.kind = kind;
+            try {
+                for (Path source : sourcePaths) {
+                    sources.add(Source.of(source));
+                }
+                Path parent = path.toAbsolutePath().getParent();
+                Files.createDirectories(parent);
+                this.temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+                this.channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Could not create snapshot " + path, e);
+            }
+        }
+
+        /**
+         * Starts a new section called NAME. A section ends when the next one starts or
+         * the writer is closed.
+         */
+        public Writer beginSection(String name) {
+            endSection();
+            while (position % 8 != 0) {
+                putByte((byte) 0);
+            }
+            flush();
+            crc.reset();
+            sectionName = name;
+            sectionStart = position;
+            return this;
+        }
+
+        public Writer putByte(byte value) {
+            ensure(1);
+            buffer.put(value);
+            position += 1;
+            return this;
+        }
+
+        public Writer putBytes(byte[] values, int offset, int length) {
+            while (length > 0) {
+                ensure(1);
+                int n = Math.min(length, buffer.remaining());
+                buffer.put(values, offset, n);
+                offset += n;
+                length -= n;
+                position += n;
+            }
+            return this;
+        }
+
+        public Writer putInt(int value) {
+            ensure(4);
+            buffer.putInt(value);
+            position += 4;
+            return this;
+        }
+
+        public Writer putLong(long value) {
+            ensure(8);
+            buffer.putLong(value);
+            position += 8;
+            return this;
+        }
+
+        public Writer putDouble(double value) {
+            ensure(8);
+            buffer.putDouble(value);
+            position += 8;
+            return this;
+        }
+
+        /**
+         * Appends the whole contents of FILE to the current section, for sections that
+         * were spilled to disk before the snapshot was assembled.
+         */
+        public Writer putFile(Path file) {
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                flush();
+                while (in.read(buffer) >= 0) {
+                    position += buffer.position();
+                    flush();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not copy " + file + " into snapshot " + path, e);
+            }
+            return this;
+        }
+
+        /**
+         * Finishes the snapshot and moves it into place. If writing failed, the
+         * temporary file is removed instead.
+         */
+        @Override
+        public void close() {
+            boolean done = false;
+            try {
+                endSection();
+                writeFooter();
+                channel.force(false);
+                channel.close();
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                done = true;
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not write snapshot " + path, e);
+            } finally {
+                if (!done) {
+                    try {
+                        channel.close();
+                        Files.deleteIfExists(temp);
+                    } catch (IOException ignored) {
+                        // Nothing more to do about a leftover temporary file.
+                    }
+                }
+            }
+        }
+
+        private void endSection() {
+            if (sectionName != null) {
+                flush();
+                sections.add(new Section(sectionName, sectionStart, position - sectionStart,
+                        (int) crc.getValue()));
+                sectionName = null;
+            }
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            try {
+                while (buffer.hasRemaining()) {
+                    flushed += channel.write(buffer, flushed);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not write snapshot " + path, e);
+            }
+            buffer.clear();
+        }
+
+        private void writeFooter() throws IOException {
+            flush();
+            long footerOffset = align(position);
+            int length = stringLength(kind) + 4 + 4;
+            for (Source source : sources) {
+                length += stringLength(source.path) + 16;
+            }
+            for (Section section : sections) {
+                length += stringLength(section.name) + 20;
+            }
+
+            ByteBuffer footer = ByteBuffer.allocate(length).order(ORDER);
+            putString(footer, kind);
+            footer.putInt(sources.size());
+            for (Source source : sources) {
+                putString(footer, source.path);
+                footer.putLong(source.size).putLong(source.lastModified);
+            }
+            footer.putInt(sections.size());
+            for (Section section : sections) {
+                putString(footer, section.name);
+                footer.putLong(section.offset).putLong(section.length).putInt(section.checksum);
+            }
+            CRC32C footerCrc = new CRC32C();
+            footerCrc.update(footer.array(), 0, length);
+            footer.flip();
+            while (footer.hasRemaining()) {
+                channel.write(footer, footerOffset + footer.position());
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+            header.put(MAGIC).putInt(FORMAT_VERSION).putInt(0).putLong(footerOffset)
+                    .putInt(length).putInt((int) footerCrc.getValue());
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    private static int stringLength(String s) {
+        return 4 + s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void putString(ByteBuffer buffer, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
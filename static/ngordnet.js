@@ -1,12 +1,14 @@
 $(function() {
     // DOM elements
     const plot = document.getElementById('plot');
+    const chart = document.getElementById('chart');
     const textresult = document.getElementById('textresult');
     const loadingOverlay = document.getElementById('loadingOverlay');
 
     // Server configuration
     const host = 'http://localhost:4568'; // Updated port
     const history_server = host + '/history';
+    const historydata_server = host + '/historydata';
     const historytext_server = host + '/historytext';
     const hyponyms_server = host + '/hyponyms';
     const hypohist_server = host + '/hypohist';
@@ -72,6 +74,91 @@ $(function() {
         };
     }
 
+    // Draws the columnar history data ({years, words, weights}) as a line chart on the
+    // canvas, so the server only has to send numbers instead of a rendered image.
+    function drawChart(canvas, data) {
+        const colors = ['#1f77b4', '#ff7f0e', '#2ca02c', '#d62728', '#9467bd',
+                        '#8c564b', '#e377c2', '#7f7f7f', '#bcbd22', '#17becf'];
+        const ctx = canvas.getContext('2d');
+        const width = canvas.width;
+        const height = canvas.height;
+        const left = 80, right = 20, top = 20, bottom = 60;
+        ctx.clearRect(0, 0, width, height);
+        ctx.fillStyle = '#ffffff';
+        ctx.fillRect(0, 0, width, height);
+        ctx.font = '12px sans-serif';
+
+        const years = data.years;
+        if (years.length === 0 || data.words.length === 0) {
+            ctx.fillStyle = '#666666';
+            ctx.textAlign = 'center';
+            ctx.fillText('No data for these words and years.', width / 2, height / 2);
+            return;
+        }
+
+        let max = 0;
+        data.weights.forEach(function(series) {
+            series.forEach(function(w) {
+                if (w !== null && w > max) {
+                    max = w;
+                }
+            });
+        });
+        if (max === 0) {
+            max = 1;
+        }
+        const firstYear = years[0];
+        const yearSpan = Math.max(1, years[years.length - 1] - firstYear);
+        const x = function(year) { return left + (year - firstYear) / yearSpan * (width - left - right); };
+        const y = function(w) { return height - bottom - w / max * (height - top - bottom); };
+
+        // Axes, with five ticks on each
+        ctx.strokeStyle = '#cccccc';
+        ctx.fillStyle = '#333333';
+        ctx.lineWidth = 1;
+        for (let i = 0; i <= 4; i += 1) {
+            const w = max * i / 4;
+            ctx.beginPath();
+            ctx.moveTo(left, y(w));
+            ctx.lineTo(width - right, y(w));
+            ctx.stroke();
+            ctx.textAlign = 'right';
+            ctx.fillText(w.toExponential(1), left - 6, y(w) + 4);
+
+            const year = Math.round(firstYear + yearSpan * i / 4);
+            ctx.textAlign = 'center';
+            ctx.fillText(String(year), x(year), height - bottom + 18);
+        }
+
+        // One line per word; nulls break the line
+        ctx.lineWidth = 2;
+        data.words.forEach(function(word, i) {
+            const series = data.weights[i];
+            ctx.strokeStyle = colors[i % colors.length];
+            ctx.beginPath();
+            let drawing = false;
+            for (let j = 0; j < years.length; j += 1) {
+                if (series[j] === null) {
+                    drawing = false;
+                } else if (drawing) {
+                    ctx.lineTo(x(years[j]), y(series[j]));
+                } else {
+                    ctx.moveTo(x(years[j]), y(series[j]));
+                    drawing = true;
+                }
+            }
+            ctx.stroke();
+
+            // Legend entry below the x axis
+            const legendX = left + i * 120;
+            ctx.fillStyle = colors[i % colors.length];
+            ctx.fillRect(legendX, height - 24, 14, 4);
+            ctx.fillStyle = '#333333';
+            ctx.textAlign = 'left';
+            ctx.fillText(word, legendX + 20, height - 19);
+        });
+    }
+
     function makeRequest(url, params, successCallback, errorCallback) {
         if (!validateInputs()) {
             return;
@@ -102,15 +189,16 @@ $(function() {
     $('#history').click(function() {
         ngordnetQueryType = "HISTORY";
         $("#textresult").hide();
-        $("#plot").show();
+        $("#plot").hide();
+        $("#chart").show();
 
         const params = get_params();
         makeRequest(
-            history_server,
+            historydata_server,
             params,
             function(data) {
-                plot.src = 'data:image/png;base64,' + data;
-                plot.classList.add('fade-in');
+                drawChart(chart, data);
+                chart.classList.add('fade-in');
             },
             function(xhr, status, error) {
                 showError('Failed to load history chart. Please try again.');
@@ -121,6 +209,7 @@ $(function() {
     $('#historytext').click(function() {
         ngordnetQueryType = "HISTORY_TEXT";
         $("#plot").hide();
+        $("#chart").hide();
         $("#textresult").show();
 
         const params = get_params();
@@ -140,6 +229,7 @@ $(function() {
     $('#hyponyms').click(function() {
         ngordnetQueryType = "HYPONYMS";
         $("#plot").hide();
+        $("#chart").hide();
         $("#textresult").show();
 
         const params = get_params();
@@ -158,6 +248,7 @@ $(function() {
 
     $('#hypohist').click(function() {
         ngordnetQueryType = "HYPOHIST";
+        $("#chart").hide();
         $("#plot").show();
         $("#textresult").hide();
 
@@ -178,6 +269,7 @@ $(function() {
     $('#commonancestors').click(function() {
         ngordnetQueryType = "ANCESTORS";
         $("#plot").hide();
+        $("#chart").hide();
         $("#textresult").show();
 
         const params = get_params();
@@ -257,6 +349,7 @@ $(function() {
         
         // Show initial state
         $("#textresult").hide();
+        $("#chart").hide();
         $("#plot").show();
         
         console.log('WordNet & NGram Explorer initialized successfully');
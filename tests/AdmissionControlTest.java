@@ -0,0 +1,64 @@
+import browser.AdmissionControl;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Unit Tests for the per-route and overall request limits. */
+public class AdmissionControlTest {
+
+    @Test
+    public void testRouteLimit() throws InterruptedException {
+        AdmissionControl admission = new AdmissionControl(10, Duration.ZERO, 1);
+        AdmissionControl.Limiter limiter = admission.limiter("history", 2);
+        assertThat(limiter.tryAcquire()).isEqualTo(0);
+        assertThat(limiter.tryAcquire()).isEqualTo(0);
+        assertThat(limiter.tryAcquire()).isEqualTo(429);
+        assertThat(limiter.active()).isEqualTo(2);
+
+        limiter.release();
+        assertThat(limiter.tryAcquire()).isEqualTo(0);
+        assertThat(limiter.admitted()).isEqualTo(3L);
+        assertThat(limiter.rejected()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testOverallLimit() throws InterruptedException {
+        AdmissionControl admission = new AdmissionControl(1, Duration.ZERO, 1);
+        AdmissionControl.Limiter history = admission.limiter("history", 4);
+        AdmissionControl.Limiter hyponyms = admission.limiter("hyponyms", 4);
+        assertThat(history.tryAcquire()).isEqualTo(0);
+        assertThat(hyponyms.tryAcquire()).isEqualTo(503);
+        // A refused request must not keep its route permit.
+        assertThat(hyponyms.active()).isEqualTo(0);
+
+        history.release();
+        assertThat(hyponyms.tryAcquire()).isEqualTo(0);
+    }
+
+    @Test
+    public void testWaitsForPermit() throws InterruptedException {
+        AdmissionControl admission = new AdmissionControl(10, Duration.ofSeconds(5), 1);
+        AdmissionControl.Limiter limiter = admission.limiter("history", 1);
+        assertThat(limiter.tryAcquire()).isEqualTo(0);
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                return;
+            }
+            limiter.release();
+        });
+        releaser.start();
+        assertThat(limiter.tryAcquire()).isEqualTo(0);
+        releaser.join();
+    }
+
+    @Test
+    public void testBadLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionControl(0, Duration.ZERO, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionControl().limiter("x", 0));
+    }
+}
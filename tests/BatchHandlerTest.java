@@ -0,0 +1,104 @@
+import browser.AdmissionControl;
+import browser.BatchHandler;
+import browser.NgordnetQuery;
+import browser.NgordnetQueryHandler;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Unit Tests for the batch query endpoint. */
+public class BatchHandlerTest {
+
+    /* Answers with its name and the query's words, counting how often it was called. */
+    private static class NamedHandler extends NgordnetQueryHandler {
+        final String name;
+        final AtomicInteger calls = new AtomicInteger();
+
+        NamedHandler(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String handle(NgordnetQuery q) {
+            calls.incrementAndGet();
+            if (q.words().contains("fail")) {
+                throw new IllegalStateException("failed on purpose");
+            }
+            return name + q.words() + q.k();
+        }
+    }
+
+    private static String run(BatchHandler batch, String body) throws InterruptedException {
+        return new String(batch.run(body), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testResultsInOrder() throws InterruptedException {
+        NamedHandler a = new NamedHandler("a");
+        NamedHandler b = new NamedHandler("b");
+        BatchHandler batch = new BatchHandler(Map.of("a", a, "b", b), 4);
+        String body = "[{\"type\":\"b\",\"words\":[\"x\"]},"
+                + "{\"type\":\"a\",\"words\":[\"y\",\"z\"],\"k\":3},"
+                + "{\"type\":\"c\",\"words\":[\"x\"]},"
+                + "{\"type\":\"a\",\"words\":[\"fail\"]},"
+                + "{\"words\":[\"x\"]}]";
+        assertThat(run(batch, body)).isEqualTo("[\"b[x]0\",\"a[y, z]3\","
+                + "{\"error\":\"Unknown query type: c\"},{\"error\":\"failed on purpose\"},"
+                + "{\"error\":\"Unknown query type: null\"}]");
+        batch.shutdown();
+    }
+
+    @Test
+    public void testRepeatedQueriesRunOnce() throws InterruptedException {
+        NamedHandler a = new NamedHandler("a");
+        a.configureResponseCache(0, null);
+        BatchHandler batch = new BatchHandler(Map.of("a", a), 2);
+        String body = "[{\"type\":\"a\",\"words\":[\"x\",\"y\"]},"
+                + "{\"type\":\"a\",\"words\":[\" x\",\"y\",\"x\"],\"startYear\":1900},"
+                + "{\"type\":\"a\",\"words\":[\"x\",\"y\"]}]";
+        assertThat(run(batch, body)).isEqualTo("[\"a[x, y]0\",\"a[x, y]0\",\"a[x, y]0\"]");
+        assertThat(a.calls.get()).isEqualTo(1);
+        batch.shutdown();
+    }
+
+    @Test
+    public void testMalformedBatches() {
+        NamedHandler a = new NamedHandler("a");
+        BatchHandler batch = new BatchHandler(Map.of("a", a), 1);
+        assertThrows(IllegalArgumentException.class, () -> batch.run("{\"type\":\"a\"}"));
+        assertThrows(IllegalArgumentException.class, () -> batch.run(""));
+        assertThrows(IllegalArgumentException.class,
+                () -> batch.run("[" + "{},".repeat(BatchHandler.MAX_QUERIES) + "{}]"));
+        assertThrows(IllegalArgumentException.class,
+                () -> batch.run("[{\"type\":\"a\",\"words\":[\"x\"]},{\"type\":\"a\",\"words\":[null]}]"));
+        assertThat(a.calls.get()).isEqualTo(0);
+        batch.shutdown();
+    }
+
+    @Test
+    public void testQueriesAreAdmittedByTheirRouteLimit() throws InterruptedException {
+        NamedHandler a = new NamedHandler("a");
+        AdmissionControl admission = new AdmissionControl(8, Duration.ZERO, 1);
+        AdmissionControl.Limiter limiter = admission.limiter("a", 1);
+        BatchHandler batch = new BatchHandler(Map.of("a", a), admission, 2);
+        String body = "[{\"type\":\"a\",\"words\":[\"x\"]}]";
+
+        // A request to the route itself holds its only permit.
+        assertThat(limiter.tryAcquire()).isEqualTo(0);
+        assertThat(run(batch, body)).isEqualTo("[{\"error\":\"Too many a requests, retry later\"}]");
+        assertThat(a.calls.get()).isEqualTo(0);
+        assertThat(limiter.rejected()).isEqualTo(1L);
+
+        limiter.release();
+        assertThat(run(batch, body)).isEqualTo("[\"a[x]0\"]");
+        assertThat(limiter.admitted()).isEqualTo(2L);
+        assertThat(limiter.active()).isEqualTo(0);
+        batch.shutdown();
+    }
+}
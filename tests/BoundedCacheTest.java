@@ -0,0 +1,63 @@
+import cache.BoundedCache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Unit Tests for the byte-bounded LRU cache. */
+public class BoundedCacheTest {
+
+    @Test
+    public void testEvictsLeastRecentlyUsedByWeight() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, (k, v) -> v.length());
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        assertThat(cache.get("a")).isEqualTo("aaaa");
+        cache.put("c", "cccc");
+
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("a")).isEqualTo("aaaa");
+        assertThat(cache.get("c")).isEqualTo("cccc");
+        BoundedCache.Stats stats = cache.stats();
+        assertThat(stats.evictions()).isEqualTo(1L);
+        assertThat(stats.bytes()).isEqualTo(8L);
+        assertThat(stats.hits()).isEqualTo(3L);
+        assertThat(stats.misses()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testComputeIfAbsentLoadsOnce() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(100, (k, v) -> 1);
+        int[] loads = new int[1];
+        for (int i = 0; i < 3; i += 1) {
+            assertThat(cache.computeIfAbsent(7, k -> {
+                loads[0] += 1;
+                return "seven";
+            })).isEqualTo("seven");
+        }
+        assertThat(loads[0]).isEqualTo(1);
+        assertThat(cache.stats().hits()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testOversizedValuesAreNotCached() {
+        BoundedCache<String, String> cache = new BoundedCache<>(3, (k, v) -> v.length());
+        assertThat(cache.computeIfAbsent("big", k -> "too big")).isEqualTo("too big");
+        assertThat(cache.stats().entries()).isEqualTo(0);
+        assertThat(cache.stats().bytes()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testExpiredEntriesAreMisses() throws InterruptedException {
+        BoundedCache<String, String> cache = new BoundedCache<>(100, Duration.ofMillis(1), (k, v) -> 1);
+        cache.put("a", "aaaa");
+        Thread.sleep(5);
+        assertThat(cache.get("a")).isNull();
+        BoundedCache.Stats stats = cache.stats();
+        assertThat(stats.expirations()).isEqualTo(1L);
+        assertThat(stats.entries()).isEqualTo(0);
+        assertThat(stats.bytes()).isEqualTo(0L);
+    }
+}
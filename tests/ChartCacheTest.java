@@ -0,0 +1,92 @@
+import org.junit.jupiter.api.Test;
+import plotting.ChartCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Unit Tests for the two-tier rendered chart cache. */
+public class ChartCacheTest {
+
+    /* Deletes DIRECTORY and every chart written into it. */
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void testRendersEachChartOnce() {
+        ChartCache cache = new ChartCache(ChartCache.DEFAULT_MEMORY_BYTES);
+        byte[] png = {1, 2, 3};
+        assertThat(cache.png(List.of("cat"), 1900, 2000, () -> png)).isEqualTo(png);
+        assertThat(cache.png(List.of("cat"), 1900, 2000, () -> new byte[] {9})).isEqualTo(png);
+        assertThat(cache.png(List.of("cat"), 1900, 2001, () -> new byte[] {9})).isEqualTo(new byte[] {9});
+        assertThat(cache.renders()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testDiskTierSurvivesRestart() throws IOException {
+        Path directory = Files.createTempDirectory("charts");
+        try {
+            byte[] png = {1, 2, 3, 4};
+            ChartCache first = new ChartCache(1 << 20, directory, 1 << 20, "data-v1");
+            first.png(List.of("cat", "dog"), 1900, 2000, () -> png);
+
+            ChartCache second = new ChartCache(1 << 20, directory, 1 << 20, "data-v1");
+            assertThat(second.png(List.of("cat", "dog"), 1900, 2000, () -> null)).isEqualTo(png);
+            assertThat(second.diskHits()).isEqualTo(1L);
+            assertThat(second.renders()).isEqualTo(0L);
+
+            // Charts of other data are never served.
+            ChartCache other = new ChartCache(1 << 20, directory, 1 << 20, "data-v2");
+            assertThat(other.png(List.of("cat", "dog"), 1900, 2000, () -> null)).isNull();
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    public void testDiskTierStaysWithinBudget() throws IOException {
+        Path directory = Files.createTempDirectory("charts");
+        try {
+            ChartCache cache = new ChartCache(0, directory, 1000, "");
+            for (int year = 1900; year < 1920; year += 1) {
+                cache.png(List.of("cat"), year, 2000, () -> new byte[100]);
+            }
+            long used = 0;
+            try (var files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    used += Files.size(file);
+                }
+            }
+            assertThat(used).isAtMost(1000L);
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    public void testReplacedChartIsCountedOnce() throws IOException {
+        Path directory = Files.createTempDirectory("charts");
+        try {
+            ChartCache cache = new ChartCache(0, directory, 1000, "");
+            // The render stores the same chart first, as a concurrent miss would.
+            cache.png(List.of("cat"), 1900, 2000, () -> {
+                cache.png(List.of("cat"), 1900, 2000, () -> new byte[300]);
+                return new byte[300];
+            });
+            assertThat(cache.renders()).isEqualTo(2L);
+            assertThat(cache.diskUsed()).isEqualTo(300L);
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import ngrams.ColumnarNGramStore;
+import ngrams.NGramMap;
+import ngrams.TimeSeries;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Unit Tests for the columnar NGramMap storage engine. */
+public class ColumnarNGramStoreTest {
+    public static final String VERY_SHORT_WORDS_FILE = "data/ngrams/very_short.csv";
+    public static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+    private static final String SMALL_WORDS_FILE = "data/ngrams/top_14377_words.csv";
+
+    @Test
+    public void testMatchesTreeMapEngine() {
+        NGramMap columnar = new NGramMap(SMALL_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Engine.COLUMNAR);
+        NGramMap treeMap = new NGramMap(SMALL_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Engine.TREE_MAP);
+
+        for (String word : List.of("fish", "dog", "economically", "academic", "nosuchword")) {
+            assertThat(columnar.countHistory(word)).isEqualTo(treeMap.countHistory(word));
+            assertThat(columnar.countHistory(word, 1850, 1933))
+                    .isEqualTo(treeMap.countHistory(word, 1850, 1933));
+            assertThat(columnar.weightHistory(word, 1999, 2010))
+                    .isEqualTo(treeMap.weightHistory(word, 1999, 2010));
+        }
+        assertThat(columnar.totalCountHistory()).isEqualTo(treeMap.totalCountHistory());
+    }
+
+    @Test
+    public void testRangeTotalMatchesSummedHistory() {
+        NGramMap columnar = new NGramMap(SMALL_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Engine.COLUMNAR);
+        NGramMap offHeap = new NGramMap(SMALL_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Engine.OFF_HEAP);
+        NGramMap treeMap = new NGramMap(SMALL_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Engine.TREE_MAP);
+
+        int[][] ranges = {{1850, 1933}, {1400, 2100}, {2005, 2005}, {1990, 1980}, {1000, 1500}};
+        for (String word : List.of("fish", "dog", "economically", "academic", "nosuchword")) {
+            for (int[] range : ranges) {
+                double expected = 0;
+                for (double count : columnar.countHistory(word, range[0], range[1]).data()) {
+                    expected += count;
+                }
+                assertThat(columnar.rangeTotal(word, range[0], range[1])).isEqualTo(expected);
+                assertThat(offHeap.rangeTotal(word, range[0], range[1])).isEqualTo(expected);
+                assertThat(treeMap.rangeTotal(word, range[0], range[1])).isEqualTo(expected);
+            }
+        }
+        double total = 0;
+        for (double count : columnar.totalCountHistory().data()) {
+            total += count;
+        }
+        assertThat(columnar.totalCountRange(1400, 2100)).isEqualTo(total);
+        assertThat(offHeap.totalCountRange(1400, 2100)).isEqualTo(total);
+    }
+
+    @Test
+    public void testBuilderKeepsMissingYearsMissing() {
+        ColumnarNGramStore store = new ColumnarNGramStore.Builder()
+                .addCount("cat", 1990, 5.0)
+                .addCount("cat", 1994, 7.0)
+                .addCount("cat", 1980, 1.0)
+                .addCount("cat", 1994, 3.0)
+                .addTotal(1990, 100.0)
+                .build();
+        NGramMap ngm = new NGramMap(store);
+
+        TimeSeries cat = ngm.countHistory("cat");
+        assertThat(cat.years()).isEqualTo(List.of(1980, 1990, 1994));
+        assertThat(cat.get(1994)).isWithin(1E-10).of(10.0);
+        assertThat(ngm.countHistory("cat", 1985, 1993).years()).isEqualTo(List.of(1990));
+        assertThat(store.firstYear(store.wordId("cat"))).isEqualTo(1980);
+        assertThat(store.lastYear(store.wordId("cat"))).isEqualTo(1994);
+        assertThat(store.wordId("dog")).isEqualTo(-1);
+    }
+
+    @Test
+    public void testVeryShortFile() {
+        NGramMap ngm = new NGramMap(VERY_SHORT_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Engine.COLUMNAR);
+        TimeSeries airport = ngm.countHistory("airport", 2005, 2008);
+        assertThat(airport.years()).isEqualTo(List.of(2007, 2008));
+        assertThat(airport.get(2008)).isWithin(1E-10).of(173294.0);
+    }
+}
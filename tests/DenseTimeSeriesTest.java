@@ -0,0 +1,96 @@
+import ngrams.DenseTimeSeries;
+import ngrams.NGramMap;
+import ngrams.TimeSeries;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Unit Tests for the DenseTimeSeries class. */
+public class DenseTimeSeriesTest {
+    public static final String SHORT_WORDS_FILE = "data/ngrams/top_14377_words.csv";
+    public static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+
+    private static TimeSeries series(int... yearsAndValues) {
+        TimeSeries ts = new TimeSeries();
+        for (int i = 0; i < yearsAndValues.length; i += 2) {
+            ts.put(yearsAndValues[i], (double) yearsAndValues[i + 1]);
+        }
+        return ts;
+    }
+
+    @Test
+    public void testConvertsToAndFromTimeSeries() {
+        TimeSeries cats = series(1991, 0, 1992, 100, 1994, 200);
+        DenseTimeSeries dense = DenseTimeSeries.of(cats);
+        assertThat(dense.startYear()).isEqualTo(1991);
+        assertThat(dense.endYear()).isEqualTo(1994);
+        assertThat(dense.size()).isEqualTo(3);
+        assertThat(dense.get(1993)).isNaN();
+        assertThat(dense.get(1800)).isNaN();
+        assertThat(dense.toTimeSeries()).isEqualTo(cats);
+        assertThat(DenseTimeSeries.of(new TimeSeries()).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testMatchesTimeSeriesArithmetic() {
+        TimeSeries cats = series(1991, 50, 1992, 100, 1994, 200);
+        TimeSeries dogs = series(1994, 400, 1995, 500, 1992, 300);
+        DenseTimeSeries denseCats = DenseTimeSeries.of(cats);
+        DenseTimeSeries denseDogs = DenseTimeSeries.of(dogs);
+
+        assertThat(denseCats.plus(denseDogs).toTimeSeries()).isEqualTo(cats.plus(dogs));
+        assertThat(denseDogs.plus(denseCats).toTimeSeries()).isEqualTo(dogs.plus(cats));
+        assertThat(denseCats.dividedBy(denseDogs.plus(denseCats)).toTimeSeries())
+                .isEqualTo(cats.dividedBy(dogs.plus(cats)));
+        assertThat(denseCats.plus(new DenseTimeSeries(0, -1)).toTimeSeries()).isEqualTo(cats);
+        assertThat(denseCats.sum()).isEqualTo(350.0);
+        // The operands are left alone.
+        assertThat(denseCats.toTimeSeries()).isEqualTo(cats);
+    }
+
+    @Test
+    public void testInPlaceArithmetic() {
+        DenseTimeSeries total = new DenseTimeSeries(1990, 1999);
+        total.addInPlace(DenseTimeSeries.of(series(1991, 1, 1992, 2)));
+        total.addInPlace(DenseTimeSeries.of(series(1992, 3, 1999, 4)));
+        total.add(1995, 5);
+        assertThat(total.toTimeSeries()).isEqualTo(series(1991, 1, 1992, 5, 1995, 5, 1999, 4));
+
+        total.divideInPlace(DenseTimeSeries.of(series(1991, 2, 1992, 5, 1995, 10, 1999, 8)));
+        assertThat(total.get(1992)).isEqualTo(1.0);
+        assertThat(total.get(1999)).isEqualTo(0.5);
+
+        total.clear();
+        assertThat(total.isEmpty()).isTrue();
+        assertThat(total.length()).isEqualTo(10);
+    }
+
+    @Test
+    public void testRejectsYearsOutsideTheRange() {
+        DenseTimeSeries decade = new DenseTimeSeries(1990, 1999);
+        assertThrows(IllegalArgumentException.class, () -> decade.set(2000, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> decade.addInPlace(DenseTimeSeries.of(series(1989, 1))));
+        assertThrows(IllegalArgumentException.class,
+                () -> DenseTimeSeries.of(series(1991, 1)).divideInPlace(decade));
+        assertThrows(IllegalArgumentException.class, () -> new DenseTimeSeries(1990, 1980));
+    }
+
+    @Test
+    public void testSummedWeightHistoryMatchesPlus() {
+        NGramMap ngm = new NGramMap(SHORT_WORDS_FILE, TOTAL_COUNTS_FILE);
+        List<String> words = List.of("cat", "dog", "fish", "not_a_word", "cat");
+        TimeSeries expected = new TimeSeries();
+        for (String word : words) {
+            expected = expected.plus(ngm.weightHistory(word, 1850, 1933));
+        }
+        assertThat(ngm.summedWeightHistory(words, 1850, 1933)).isEqualTo(expected);
+        assertThat(ngm.denseSummedWeightHistory(words, 1850, 1933).toTimeSeries()).isEqualTo(expected);
+        assertThat(ngm.denseWeightHistory("cat", 1850, 1933).toTimeSeries())
+                .isEqualTo(ngm.weightHistory("cat", 1850, 1933));
+    }
+}
@@ -0,0 +1,71 @@
+import main.DiGraph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Unit Tests for DiGraph traversal. */
+public class DiGraphTest {
+
+    @Test
+    public void testDeepChainDoesNotOverflow() {
+        int n = 500_000;
+        DiGraph.Builder builder = new DiGraph.Builder(n);
+        for (int v = 0; v + 1 < n; v += 1) {
+            builder.addEdge(v, v + 1);
+        }
+        DiGraph graph = builder.build();
+        BitSet reachable = new BitSet();
+        graph.addReachableVertices(10, reachable);
+        assertThat(reachable.cardinality()).isEqualTo(n - 10);
+        assertThat(reachable.nextSetBit(0)).isEqualTo(10);
+    }
+
+    @Test
+    public void testBuilderGroupsEdgesBySource() {
+        DiGraph graph = new DiGraph.Builder(3)
+                .addEdge(2, 0)
+                .addEdge(0, 1)
+                .addEdge(2, 1)
+                .addEdge(0, 2)
+                .build();
+        assertThat(graph.getEdgeCount()).isEqualTo(4);
+        assertThat(graph.getAdjacentVertices(0)).containsExactly(1, 2).inOrder();
+        assertThat(graph.getAdjacentVertices(1)).isEmpty();
+        assertThat(graph.getAdjacentVertices(2)).containsExactly(0, 1).inOrder();
+    }
+
+    @Test
+    public void testRepeatedTraversalsReuseBuffers() {
+        DiGraph.Builder builder = new DiGraph.Builder(4);
+        builder.addEdge(0, 1);
+        builder.addEdge(1, 2);
+        builder.addEdge(0, 2);
+        DiGraph graph = builder.build();
+        for (int i = 0; i < 3; i += 1) {
+            BitSet reachable = new BitSet();
+            graph.addReachableVertices(0, reachable);
+            assertThat(reachable.toString()).isEqualTo("{0, 1, 2}");
+            assertThat(graph.getReachableVertices(1)).containsExactly(1, 2);
+        }
+    }
+
+    @Test
+    public void testTraversalsReuseScratchAcrossThreads() throws Exception {
+        DiGraph graph = new DiGraph.Builder(3).addEdge(0, 1).addEdge(1, 2).build();
+        BitSet[] reachable = new BitSet[8];
+        int[] next = {0};
+        TestThreads.onNewThreads(8, () -> {
+            BitSet r = new BitSet();
+            graph.addReachableVertices(0, r);
+            reachable[next[0]++] = r;
+        });
+        for (BitSet r : reachable) {
+            assertThat(r.cardinality()).isEqualTo(3);
+        }
+        assertThat(graph.traversals().allocated()).isEqualTo(1L);
+        assertThat(graph.traversals().reused()).isEqualTo(7L);
+    }
+}
@@ -0,0 +1,39 @@
+import browser.NgordnetQuery;
+import main.HistoryDataHandler;
+import ngrams.NGramMap;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Unit Tests for the columnar history data endpoint. */
+public class HistoryDataHandlerTest {
+    public static final String VERY_SHORT_WORDS_FILE = "data/ngrams/very_short.csv";
+    public static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+
+    @Test
+    public void testHandle() {
+        NGramMap ngm = new NGramMap(VERY_SHORT_WORDS_FILE, TOTAL_COUNTS_FILE);
+        HistoryDataHandler handler = new HistoryDataHandler(ngm);
+        NgordnetQuery query = new NgordnetQuery(List.of("airport", "nonexistent", "request"), 2005, 2007, 0);
+        String expected = "{\"years\":[2005,2006,2007],\"words\":[\"airport\",\"request\"],"
+                + "\"weights\":[[null,null," + (float) 6.2068176510855946E-6 + "],"
+                + "[" + (float) (646179 / 205085572.0) + ","
+                + (float) 2.44740192927834E-5 + "," + (float) 2.464488338318067E-5 + "]]}";
+        assertThat(handler.handle(query)).isEqualTo(expected);
+
+        // The HTTP response carries the same document, not a JSON string wrapping it.
+        String body = new String(handler.respond(query).body(), StandardCharsets.UTF_8);
+        assertThat(body).isEqualTo(expected);
+    }
+
+    @Test
+    public void testNoData() {
+        NGramMap ngm = new NGramMap(VERY_SHORT_WORDS_FILE, TOTAL_COUNTS_FILE);
+        HistoryDataHandler handler = new HistoryDataHandler(ngm);
+        NgordnetQuery query = new NgordnetQuery(List.of("airport"), 1900, 1950, 0);
+        assertThat(handler.handle(query)).isEqualTo("{\"years\":[],\"words\":[],\"weights\":[]}");
+    }
+}
@@ -0,0 +1,55 @@
+import main.HistoryExportHandler;
+import main.HistoryExportHandler.Format;
+import ngrams.NGramMap;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Unit Tests for the streaming history export. */
+public class HistoryExportHandlerTest {
+    public static final String VERY_SHORT_WORDS_FILE = "data/ngrams/very_short.csv";
+    public static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+
+    @Test
+    public void testNdjson() throws IOException {
+        NGramMap ngm = new NGramMap(VERY_SHORT_WORDS_FILE, TOTAL_COUNTS_FILE);
+        HistoryExportHandler handler = new HistoryExportHandler(ngm);
+        StringWriter out = new StringWriter();
+        int exported = handler.export(new StringReader("airport\n nonexistent ,request"), 2006, 2007,
+                Format.NDJSON, out);
+        assertThat(exported).isEqualTo(3);
+        String expected = "{\"word\":\"airport\",\"years\":[2007],\"counts\":[175702],"
+                + "\"weights\":[6.2068176510855946E-6]}\n"
+                + "{\"word\":\"nonexistent\",\"years\":[],\"counts\":[],\"weights\":[]}\n"
+                + "{\"word\":\"request\",\"years\":[2006,2007],\"counts\":[677820,697645],"
+                + "\"weights\":[2.44740192927834E-5,2.464488338318067E-5]}\n";
+        assertThat(out.toString()).isEqualTo(expected);
+    }
+
+    @Test
+    public void testCsv() throws IOException {
+        NGramMap ngm = new NGramMap(VERY_SHORT_WORDS_FILE, TOTAL_COUNTS_FILE);
+        HistoryExportHandler handler = new HistoryExportHandler(ngm);
+        StringWriter out = new StringWriter();
+        handler.export(new StringReader("request,airport,nonexistent"), 2006, 2007, Format.of("CSV"), out);
+        String expected = """
+                word,year,count,weight
+                request,2006,677820,2.44740192927834E-5
+                request,2007,697645,2.464488338318067E-5
+                airport,2007,175702,6.2068176510855946E-6
+                """;
+        assertThat(out.toString()).isEqualTo(expected);
+    }
+
+    @Test
+    public void testFormats() {
+        assertThat(Format.of(null)).isEqualTo(Format.NDJSON);
+        assertThat(Format.of("ndjson")).isEqualTo(Format.NDJSON);
+        assertThrows(IllegalArgumentException.class, () -> Format.of("xml"));
+    }
+}
@@ -2,6 +2,7 @@
 import browser.NgordnetQuery;
 import main.HistoryTextHandler;
 import ngrams.NGramMap;
+import ngrams.TimeSeries;
 import org.junit.jupiter.api.Test;
 import java.util.List;
 import static com.google.common.truth.Truth.assertThat;
@@ -22,4 +23,15 @@ public class HistoryTextHandlerTest {
                 """;
         assertThat(actual).isEqualTo(expected);
     }
+
+    @Test
+    public void testHandleListsEveryYear() {
+        NGramMap ngm = new NGramMap(VERY_SHORT_WORDS_FILE, TOTAL_COUNTS_FILE);
+        HistoryTextHandler handler = new HistoryTextHandler(ngm);
+        NgordnetQuery query = new NgordnetQuery(List.of("wandered"), 2005, 2008, 0);
+        TimeSeries t = ngm.weightHistory("wandered", 2005, 2008);
+        String expected = "wandered: {2005=" + t.get(2005) + ", 2006=" + t.get(2006)
+                + ", 2007=" + t.get(2007) + ", 2008=" + t.get(2008) + "}\n";
+        assertThat(handler.handle(query)).isEqualTo(expected);
+    }
 }
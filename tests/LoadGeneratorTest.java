@@ -0,0 +1,100 @@
+import com.sun.net.httpserver.HttpServer;
+import loadgen.EndpointStats;
+import loadgen.LoadGenerator;
+import loadgen.ReplayWorkload;
+import loadgen.SyntheticWorkload;
+import loadgen.Workload;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Unit Tests for the load generator's workloads, statistics and open-loop driver. */
+public class LoadGeneratorTest {
+
+    @Test
+    public void testEndpointOf() {
+        assertThat(Workload.endpointOf("/hyponyms?words=dog")).isEqualTo("hyponyms");
+        assertThat(Workload.endpointOf("/historytext")).isEqualTo("historytext");
+        assertThat(Workload.endpointOf("history/x?y")).isEqualTo("history");
+    }
+
+    @Test
+    public void testReplayCyclesThroughLog() {
+        ReplayWorkload log = new ReplayWorkload(List.of("/a?x=1", "/b"));
+        Random random = new Random(1);
+        assertThat(log.nextPath(random)).isEqualTo("/a?x=1");
+        assertThat(log.nextPath(random)).isEqualTo("/b");
+        assertThat(log.nextPath(random)).isEqualTo("/a?x=1");
+        assertThrows(IllegalArgumentException.class, () -> new ReplayWorkload(List.of()));
+    }
+
+    @Test
+    public void testSyntheticMixFollowsWeights() {
+        SyntheticWorkload workload = new SyntheticWorkload(SyntheticWorkload.parseMix("history=1,hyponyms=3,none=0"),
+                List.of("cat", "dog", "fish"), 1, 2, new int[] {0, 5});
+        Random random = new Random(42);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 4000; i += 1) {
+            String path = workload.nextPath(random);
+            assertThat(path).containsMatch("words=[a-z]+(%2C[a-z]+)?&startYear=\\d{4}&endYear=\\d{4}&k=[05]$");
+            counts.merge(Workload.endpointOf(path), 1, Integer::sum);
+        }
+        assertThat(counts.get("none")).isNull();
+        assertThat(counts.get("hyponyms")).isGreaterThan(2 * counts.get("history"));
+    }
+
+    @Test
+    public void testPercentiles() {
+        EndpointStats stats = new EndpointStats("history");
+        for (int i = 1; i <= 1000; i += 1) {
+            stats.record(i * 1_000_000L, i <= 990 ? 200 : 503);
+        }
+        stats.drop();
+        EndpointStats.Summary summary = stats.summarize(10);
+        assertThat(summary.requests()).isEqualTo(1001L);
+        assertThat(summary.errors()).isEqualTo(11L);
+        assertThat(summary.p50()).isEqualTo(500.0);
+        assertThat(summary.p99()).isEqualTo(990.0);
+        assertThat(summary.p999()).isEqualTo(999.0);
+        assertThat(summary.max()).isEqualTo(1000.0);
+        assertThat(summary.throughput()).isEqualTo(100.0);
+        assertThat(summary.statuses().get(503)).isEqualTo(10L);
+    }
+
+    @Test
+    public void testRunAgainstServer() throws IOException, InterruptedException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            int status = exchange.getRequestURI().getPath().equals("/missing") ? 404 : 200;
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            URI url = URI.create("http://localhost:" + server.getAddress().getPort());
+            LoadGenerator.Options options = new LoadGenerator.Options(url, 200, Duration.ofMillis(500), true,
+                    100, Duration.ofSeconds(5), 7);
+            LoadGenerator.Report report = new LoadGenerator().run(
+                    new ReplayWorkload(List.of("/history?words=cat", "/missing")), options);
+
+            assertThat(report.requests()).isGreaterThan(20L);
+            assertThat(report.endpoints().keySet()).containsExactly("history", "missing");
+            assertThat(report.endpoints().get("history").errors()).isEqualTo(0L);
+            assertThat(report.endpoints().get("missing").errorRate()).isEqualTo(1.0);
+            assertThat(report.total().requests()).isEqualTo(report.requests());
+            assertThat(report.toJson()).contains("\"p999\"");
+        } finally {
+            server.stop(0);
+        }
+    }
+}
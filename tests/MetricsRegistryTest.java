@@ -0,0 +1,104 @@
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+import metrics.RequestMetrics;
+import org.junit.jupiter.api.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Unit Tests for the metrics registry and its Prometheus text output. */
+public class MetricsRegistryTest {
+
+    @Test
+    public void testCounterAndGauge() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter dogs = registry.counter("requests_total", "Requests.", "handler", "dog");
+        dogs.increment();
+        dogs.add(2);
+        assertThat(registry.counter("requests_total", "Requests.", "handler", "dog")).isSameInstanceAs(dogs);
+        registry.counter("requests_total", "Requests.", "handler", "cat");
+        registry.gauge("temperature", "How warm it is.", () -> 21.5);
+
+        assertThat(registry.scrape()).isEqualTo(
+                "# HELP requests_total Requests.\n"
+                + "# TYPE requests_total counter\n"
+                + "requests_total{handler=\"cat\"} 0\n"
+                + "requests_total{handler=\"dog\"} 3\n"
+                + "# HELP temperature How warm it is.\n"
+                + "# TYPE temperature gauge\n"
+                + "temperature 21.5\n");
+    }
+
+    @Test
+    public void testHistogram() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Histogram latency = registry.histogram("latency_seconds", "Latency.", new double[]{0.1, 1});
+        latency.observe(0.05);
+        latency.observe(0.5);
+        latency.observe(0.5);
+        latency.observe(3);
+
+        assertThat(latency.count()).isEqualTo(4L);
+        assertThat(latency.sum()).isWithin(1E-10).of(4.05);
+        assertThat(registry.scrape()).isEqualTo(
+                "# HELP latency_seconds Latency.\n"
+                + "# TYPE latency_seconds histogram\n"
+                + "latency_seconds_bucket{le=\"0.1\"} 1\n"
+                + "latency_seconds_bucket{le=\"1\"} 3\n"
+                + "latency_seconds_bucket{le=\"+Inf\"} 4\n"
+                + "latency_seconds_sum 4.05\n"
+                + "latency_seconds_count 4\n");
+    }
+
+    @Test
+    public void testQuantiles() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Histogram histogram = registry.histogram("h", "H.", new double[]{10, 20, 30, 40});
+        assertThat(histogram.quantile(0.5)).isNaN();
+        for (int i = 0; i < 100; i += 1) {
+            histogram.observe(i < 50 ? 5 : 25);
+        }
+        // Half of the observations fill the first bucket, the rest the third.
+        assertThat(histogram.quantile(0.5)).isWithin(1E-10).of(10.0);
+        assertThat(histogram.quantile(0.75)).isWithin(1E-10).of(25.0);
+        assertThat(histogram.quantile(1)).isWithin(1E-10).of(30.0);
+        histogram.observe(1000);
+        assertThat(histogram.quantile(1)).isWithin(1E-10).of(40.0);
+    }
+
+    @Test
+    public void testRequestMetrics() {
+        MetricsRegistry registry = new MetricsRegistry();
+        RequestMetrics metrics = RequestMetrics.of(registry, "hyponyms");
+        long start = metrics.start();
+        assertThat(metrics.inFlight()).isEqualTo(1);
+        metrics.stop(start, false);
+        metrics.stop(metrics.start(), true);
+
+        assertThat(metrics.inFlight()).isEqualTo(0);
+        assertThat(metrics.requests()).isEqualTo(2L);
+        assertThat(metrics.errors()).isEqualTo(1L);
+        assertThat(metrics.latency().count()).isEqualTo(2L);
+        String scrape = registry.scrape();
+        assertThat(scrape).contains("ngordnet_requests_total{handler=\"hyponyms\"} 2\n");
+        assertThat(scrape).contains("ngordnet_request_duration_quantile_seconds{handler=\"hyponyms\",quantile=\"0.99\"}");
+    }
+
+    @Test
+    public void testEscapesLabelValues() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("c", "C.", "word", "say \"hi\"\\\n").increment();
+        assertThat(registry.scrape()).contains("c{word=\"say \\\"hi\\\"\\\\\\n\"} 1\n");
+    }
+
+    @Test
+    public void testRejectsMismatches() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("c", "C.");
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("c", "C."));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("bad name", "C."));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("d", "D.", "handler"));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("d", "D.").add(-1));
+    }
+}
@@ -0,0 +1,81 @@
+import ngrams.ColumnarNGramStore;
+import ngrams.NGramLoader;
+import ngrams.NGramMap;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Unit Tests for the parallel memory-mapped NGramLoader. */
+public class NGramLoaderTest {
+    public static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+    private static final String SMALL_WORDS_FILE = "data/ngrams/top_14377_words.csv";
+
+    @Test
+    public void testMatchesTreeMapEngine() {
+        NGramMap parallel = new NGramMap(new NGramLoader(4, true).load(SMALL_WORDS_FILE, TOTAL_COUNTS_FILE));
+        NGramMap treeMap = new NGramMap(SMALL_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Engine.TREE_MAP);
+
+        for (String word : List.of("fish", "dog", "economically", "academic")) {
+            assertThat(parallel.countHistory(word)).isEqualTo(treeMap.countHistory(word));
+        }
+        assertThat(parallel.totalCountHistory()).isEqualTo(treeMap.totalCountHistory());
+        assertThat(parallel.store().wordCount()).isEqualTo(treeMap.store().wordCount());
+    }
+
+    @Test
+    public void testWordSplitAcrossChunks() throws IOException {
+        StringBuilder rows = new StringBuilder();
+        for (int year = 1900; year < 2000; year += 1) {
+            rows.append("cat\t").append(year).append('\t').append(year - 1000).append("\t1\r\n");
+        }
+        rows.append("dog\t1950\t2.5E3\t1");
+        Path words = Files.createTempFile("words", ".csv");
+        Files.writeString(words, rows);
+
+        NGramLoader loader = new NGramLoader(8, true);
+        ColumnarNGramStore store = loader.load(words.toString(), TOTAL_COUNTS_FILE);
+        int cat = store.wordId("cat");
+        assertThat(store.firstYear(cat)).isEqualTo(1900);
+        assertThat(store.lastYear(cat)).isEqualTo(1999);
+        assertThat(store.count(cat, 1950)).isWithin(1E-10).of(950.0);
+        assertThat(store.count(store.wordId("dog"), 1950)).isWithin(1E-10).of(2500.0);
+        assertThat(loader.lastReport().chunks()).isGreaterThan(1);
+        Files.delete(words);
+    }
+
+    @Test
+    public void testValidationRejectsMalformedRows() throws IOException {
+        Path words = Files.createTempFile("words", ".csv");
+        Files.writeString(words, "cat\t1990\t12\t1\ncat\t19x0\t12\t1\n");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new NGramLoader(1, true).load(words.toString(), TOTAL_COUNTS_FILE));
+
+        Files.writeString(words, "cat\t1990\t12\n");
+        assertThrows(IllegalArgumentException.class,
+                () -> new NGramLoader(1, true).load(words.toString(), TOTAL_COUNTS_FILE));
+        Files.delete(words);
+    }
+
+    @Test
+    public void testReportsProgress() {
+        List<Double> reports = Collections.synchronizedList(new ArrayList<>());
+        new NGramLoader(4, false).load(SMALL_WORDS_FILE, TOTAL_COUNTS_FILE, reports::add);
+
+        assertThat(reports.size()).isGreaterThan(1);
+        for (double fraction : reports) {
+            assertThat(fraction).isAtLeast(0.0);
+            assertThat(fraction).isAtMost(1.0);
+        }
+        assertThat(reports.get(reports.size() - 1)).isEqualTo(1.0);
+    }
+}
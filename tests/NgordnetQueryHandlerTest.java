@@ -0,0 +1,64 @@
+import browser.NgordnetQuery;
+import browser.NgordnetQueryHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Unit Tests for the response cache shared by all query handlers. */
+public class NgordnetQueryHandlerTest {
+
+    /* Echoes its query and counts how often it was actually called. */
+    private static class CountingHandler extends NgordnetQueryHandler {
+        int calls;
+
+        @Override
+        public String handle(NgordnetQuery q) {
+            calls += 1;
+            return q.toString();
+        }
+    }
+
+    @Test
+    public void testNormalize() {
+        NgordnetQuery q = new NgordnetQuery(List.of(" cat", "dog ", "", "cat"), 1000, 3000, 2);
+        NgordnetQuery expected = new NgordnetQuery(List.of("cat", "dog"), 1400, 2100, 2);
+        assertThat(NgordnetQueryHandler.normalize(q)).isEqualTo(expected);
+    }
+
+    @Test
+    public void testEquivalentQueriesShareOneResponse() {
+        CountingHandler handler = new CountingHandler();
+        NgordnetQueryHandler.CachedResponse first =
+                handler.respond(new NgordnetQuery(List.of("cat", "dog"), 1900, 2020, 0));
+        NgordnetQueryHandler.CachedResponse second =
+                handler.respond(new NgordnetQuery(List.of("cat ", "dog", "cat"), 1900, 2020, 0));
+        assertThat(handler.calls).isEqualTo(1);
+        assertThat(second.etag()).isEqualTo(first.etag());
+
+        handler.respond(new NgordnetQuery(List.of("cat", "dog"), 1900, 2020, 3));
+        assertThat(handler.calls).isEqualTo(2);
+        assertThat(handler.responseCacheStats().hits()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testDisabledCacheCallsHandlerEveryTime() {
+        CountingHandler handler = new CountingHandler();
+        handler.configureResponseCache(0, null);
+        NgordnetQuery q = new NgordnetQuery(List.of("cat"), 1900, 2020, 0);
+        handler.respond(q);
+        handler.respond(q);
+        assertThat(handler.calls).isEqualTo(2);
+    }
+
+    @Test
+    public void testEtagMatches() {
+        String etag = "\"0123abcd\"";
+        assertThat(NgordnetQueryHandler.etagMatches(etag, etag)).isTrue();
+        assertThat(NgordnetQueryHandler.etagMatches("\"ffff\", W/\"0123abcd\"", etag)).isTrue();
+        assertThat(NgordnetQueryHandler.etagMatches("*", etag)).isTrue();
+        assertThat(NgordnetQueryHandler.etagMatches("\"ffff\"", etag)).isFalse();
+        assertThat(NgordnetQueryHandler.etagMatches(null, etag)).isFalse();
+    }
+}
@@ -0,0 +1,99 @@
+import org.junit.jupiter.api.Test;
+import plotting.PngEncoder;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Unit Tests for PngEncoder, checked by decoding its output with ImageIO. */
+public class PngEncoderTest {
+
+    /* A white image with a few lines, like a chart rendered without antialiasing. */
+    private static BufferedImage lines(int type) {
+        BufferedImage image = new BufferedImage(120, 80, type);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 120, 80);
+        g.setStroke(new BasicStroke(2));
+        g.setColor(Color.BLUE);
+        g.drawLine(0, 70, 119, 5);
+        g.setColor(Color.RED);
+        g.drawLine(0, 10, 119, 60);
+        g.dispose();
+        return image;
+    }
+
+    private static void assertRoundTrips(BufferedImage image, int level) throws IOException {
+        byte[] png = new PngEncoder(level).encode(image);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png));
+        assertThat(decoded.getWidth()).isEqualTo(image.getWidth());
+        assertThat(decoded.getHeight()).isEqualTo(image.getHeight());
+        for (int y = 0; y < image.getHeight(); y += 1) {
+            for (int x = 0; x < image.getWidth(); x += 1) {
+                assertThat(decoded.getRGB(x, y)).isEqualTo(image.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testIndexedImage() throws IOException {
+        BufferedImage image = lines(BufferedImage.TYPE_INT_RGB);
+        assertRoundTrips(image, PngEncoder.DEFAULT_LEVEL);
+        // An 8-bit indexed image has colour type 3, the 26th byte of the file.
+        assertThat((int) new PngEncoder().encode(image)[25]).isEqualTo(3);
+    }
+
+    @Test
+    public void testTruecolorImage() throws IOException {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 64; y += 1) {
+            for (int x = 0; x < 64; x += 1) {
+                image.setRGB(x, y, (x * 4) << 16 | (y * 4) << 8 | (x + y));
+            }
+        }
+        assertRoundTrips(image, 9);
+        assertThat((int) new PngEncoder().encode(image)[25]).isEqualTo(2);
+    }
+
+    @Test
+    public void testTranslucentImages() throws IOException {
+        BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(3, 4, 0x80ff0000);
+        image.setRGB(5, 6, 0xff00ff00);
+        assertRoundTrips(image, 0);
+
+        for (int x = 0; x < 40; x += 1) {
+            for (int y = 0; y < 30; y += 1) {
+                image.setRGB(x, y, (x * 6) << 24 | (y * 8) << 8 | 0x40);
+            }
+        }
+        assertRoundTrips(image, PngEncoder.DEFAULT_LEVEL);
+    }
+
+    @Test
+    public void testBadLevel() {
+        assertThrows(IllegalArgumentException.class, () -> new PngEncoder(10));
+    }
+
+    @Test
+    public void testBuffersAreReusedAcrossThreads() throws Exception {
+        BufferedImage image = lines(BufferedImage.TYPE_INT_RGB);
+        PngEncoder encoder = new PngEncoder();
+        byte[] expected = encoder.encode(image);
+        byte[][] encoded = new byte[8][];
+        int[] next = {0};
+        TestThreads.onNewThreads(8, () -> encoded[next[0]++] = encoder.encode(image));
+        for (byte[] png : encoded) {
+            assertThat(png).isEqualTo(expected);
+        }
+        assertThat(encoder.scratches().allocated()).isEqualTo(1L);
+        assertThat(encoder.scratches().reused()).isEqualTo(8L);
+    }
+}
@@ -0,0 +1,75 @@
+import main.DiGraph;
+import main.ReachabilityIndex;
+import main.WordnetGraph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Unit Tests for the precomputed WordNet reachability index. */
+public class ReachabilityIndexTest {
+    public static final String LARGE_SYNSET_FILE = "data/wordnet/synsets.txt";
+    public static final String LARGE_HYPONYM_FILE = "data/wordnet/hyponyms.txt";
+    public static final String SMALL_SYNSET_FILE = "data/wordnet/synsets16.txt";
+    public static final String SMALL_HYPONYM_FILE = "data/wordnet/hyponyms16.txt";
+
+    @Test
+    public void testMatchesTraversal() {
+        WordnetGraph traversed = new WordnetGraph(LARGE_SYNSET_FILE, LARGE_HYPONYM_FILE);
+        WordnetGraph indexed = new WordnetGraph(LARGE_SYNSET_FILE, LARGE_HYPONYM_FILE);
+        assertThat(indexed.buildReachabilityIndex()).isNotNull();
+
+        for (String word : List.of("entity", "change", "act", "jump", "animal", "nosuchword")) {
+            assertThat(indexed.findHyponyms(word)).isEqualTo(traversed.findHyponyms(word));
+        }
+    }
+
+    @Test
+    public void testIsHyponym() {
+        WordnetGraph traversed = new WordnetGraph(SMALL_SYNSET_FILE, SMALL_HYPONYM_FILE);
+        WordnetGraph indexed = new WordnetGraph(SMALL_SYNSET_FILE, SMALL_HYPONYM_FILE);
+        indexed.buildReachabilityIndex();
+
+        for (WordnetGraph graph : List.of(traversed, indexed)) {
+            assertThat(graph.isHyponym("demotion", "act")).isTrue();
+            assertThat(graph.isHyponym("leap", "occurrence")).isTrue();
+            assertThat(graph.isHyponym("act", "demotion")).isFalse();
+            assertThat(graph.isHyponym("mutation", "mutation")).isTrue();
+            assertThat(graph.isHyponym("increase", "nosuchword")).isFalse();
+        }
+    }
+
+    @Test
+    public void testDiamondGraph() {
+        // 0 -> 1 -> 3, 0 -> 2 -> 3, 4 -> 2
+        DiGraph.Builder builder = new DiGraph.Builder(5);
+        builder.addEdge(0, 1);
+        builder.addEdge(0, 2);
+        builder.addEdge(1, 3);
+        builder.addEdge(2, 3);
+        builder.addEdge(4, 2);
+        DiGraph graph = builder.build();
+        ReachabilityIndex index = ReachabilityIndex.build(graph);
+
+        BitSet descendants = new BitSet();
+        index.addDescendants(4, descendants);
+        assertThat(descendants.toString()).isEqualTo("{2, 3, 4}");
+        assertThat(index.reaches(0, 3)).isTrue();
+        assertThat(index.reaches(4, 1)).isFalse();
+        assertThat(index.reaches(3, 0)).isFalse();
+    }
+
+    @Test
+    public void testCycleIsRejected() {
+        DiGraph.Builder builder = new DiGraph.Builder(3);
+        builder.addEdge(0, 1);
+        builder.addEdge(1, 2);
+        builder.addEdge(2, 0);
+        DiGraph graph = builder.build();
+        assertThrows(IllegalArgumentException.class, () -> ReachabilityIndex.build(graph));
+    }
+}
@@ -0,0 +1,77 @@
+import browser.Readiness;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Unit Tests for tracking the datasets loaded in the background. */
+public class ReadinessTest {
+
+    @Test
+    public void testLoadingThenReady() throws InterruptedException {
+        Readiness readiness = new Readiness();
+        CountDownLatch halfway = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<String> data = readiness.load("ngrams", progress -> {
+            progress.accept(0.5);
+            halfway.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return "loaded";
+        });
+
+        halfway.await();
+        Readiness.Dataset ngrams = readiness.datasets().get("ngrams");
+        assertThat(ngrams.state()).isEqualTo(Readiness.State.LOADING);
+        assertThat(ngrams.progress()).isEqualTo(0.5);
+        assertThat(readiness.isReady()).isFalse();
+        assertThat(readiness.isLive()).isTrue();
+
+        finish.countDown();
+        assertThat(data.join()).isEqualTo("loaded");
+        assertThat(ngrams.state()).isEqualTo(Readiness.State.READY);
+        assertThat(ngrams.progress()).isEqualTo(1.0);
+        assertThat(readiness.isReady()).isTrue();
+    }
+
+    @Test
+    public void testProgressNeverGoesBack() {
+        Readiness readiness = new Readiness();
+        readiness.load("wordnet", progress -> {
+            progress.accept(0.7);
+            progress.accept(0.2);
+            progress.accept(3);
+            return null;
+        }).join();
+        assertThat(readiness.datasets().get("wordnet").progress()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void testFailedLoad() {
+        Readiness readiness = new Readiness();
+        CompletableFuture<Object> data = readiness.load("wordnet", progress -> {
+            throw new IllegalArgumentException("Could not read synsets.txt");
+        });
+
+        assertThrows(CompletionException.class, data::join);
+        Readiness.Dataset wordnet = readiness.datasets().get("wordnet");
+        assertThat(wordnet.state()).isEqualTo(Readiness.State.FAILED);
+        assertThat(wordnet.error()).isEqualTo("Could not read synsets.txt");
+        assertThat(readiness.isReady()).isFalse();
+        assertThat(readiness.isLive()).isFalse();
+    }
+
+    @Test
+    public void testDuplicateName() {
+        Readiness readiness = new Readiness();
+        readiness.load("ngrams", progress -> 1).join();
+        assertThrows(IllegalArgumentException.class, () -> readiness.load("ngrams", progress -> 2));
+    }
+}
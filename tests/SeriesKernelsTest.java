@@ -0,0 +1,119 @@
+import ngrams.SeriesKernels;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit Tests checking the vector kernels against the scalar kernels. The vector kernels
+ * only load when src/ngrams/simd is compiled and the test JVM runs with
+ * --add-modules jdk.incubator.vector; without them these tests are skipped.
+ */
+public class SeriesKernelsTest {
+    private static final SeriesKernels SCALAR = SeriesKernels.scalar();
+    private static final SeriesKernels VECTOR = SeriesKernels.vector();
+
+    private static void assumeVector() {
+        assumeTrue(VECTOR != null, "Vector kernels need --add-modules jdk.incubator.vector");
+    }
+
+    /* Returns LENGTH random counts, about a quarter of them NaN. */
+    private static double[] series(Random random, int length) {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i += 1) {
+            values[i] = random.nextInt(4) == 0 ? Double.NaN : random.nextInt(1_000_000);
+        }
+        return values;
+    }
+
+    @Test
+    public void testAddMatchesScalar() {
+        assumeVector();
+        Random random = new Random(61);
+        for (int length = 0; length < 40; length += 1) {
+            double[] dst = series(random, length + 3);
+            double[] src = series(random, length + 5);
+            double[] expected = dst.clone();
+            SCALAR.add(expected, 3, src, 5, length);
+            VECTOR.add(dst, 3, src, 5, length);
+            assertThat(dst).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void testAddQuotientsMatchesScalar() {
+        assumeVector();
+        Random random = new Random(62);
+        for (int length = 0; length < 40; length += 1) {
+            double[] dst = series(random, length);
+            double[] counts = series(random, length + 1);
+            double[] totals = new double[length + 2];
+            Arrays.fill(totals, 1e9);
+            // Years without a total, where there is no count either
+            for (int i = 0; i < length; i += 1) {
+                if (Double.isNaN(counts[i + 1]) && random.nextBoolean()) {
+                    totals[i + 2] = Double.NaN;
+                }
+            }
+            double[] expected = dst.clone();
+            assertThat(SCALAR.addQuotients(expected, 0, counts, 1, totals, 2, length)).isEqualTo(-1);
+            assertThat(VECTOR.addQuotients(dst, 0, counts, 1, totals, 2, length)).isEqualTo(-1);
+            assertThat(dst).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void testMissingTotalsMatchScalar() {
+        assumeVector();
+        Random random = new Random(64);
+        for (int length = 0; length < 40; length += 1) {
+            double[] counts = series(random, length);
+            double[] totals = series(random, length);
+            int expected = SCALAR.addQuotients(new double[length], 0, counts, 0, totals, 0, length);
+            assertThat(VECTOR.addQuotients(new double[length], 0, counts, 0, totals, 0, length)).isEqualTo(expected);
+            assertThat(VECTOR.divide(counts.clone(), 0, totals, 0, length))
+                    .isEqualTo(SCALAR.divide(counts.clone(), 0, totals, 0, length));
+        }
+    }
+
+    @Test
+    public void testReportsFirstMissingDivisor() {
+        assumeVector();
+        double[] counts = new double[37];
+        Arrays.fill(counts, 5);
+        counts[20] = Double.NaN;
+        double[] totals = new double[37];
+        Arrays.fill(totals, 10);
+        totals[20] = Double.NaN;
+        totals[29] = Double.NaN;
+        totals[33] = Double.NaN;
+        assertThat(VECTOR.addQuotients(new double[37], 0, counts, 0, totals, 0, 37)).isEqualTo(29);
+        assertThat(VECTOR.divide(counts.clone(), 0, totals, 0, 37)).isEqualTo(29);
+        assertThat(VECTOR.divide(counts.clone(), 30, totals, 30, 7)).isEqualTo(3);
+    }
+
+    @Test
+    public void testDivideAndSumMatchScalar() {
+        assumeVector();
+        Random random = new Random(63);
+        for (int length = 0; length < 40; length += 1) {
+            double[] dst = series(random, length);
+            double[] divisors = new double[length];
+            Arrays.fill(divisors, 7);
+            for (int i = 0; i < length; i += 1) {
+                if (Double.isNaN(dst[i]) && random.nextBoolean()) {
+                    divisors[i] = Double.NaN;
+                }
+            }
+            double[] expected = dst.clone();
+            assertThat(SCALAR.divide(expected, 0, divisors, 0, length)).isEqualTo(-1);
+            assertThat(VECTOR.divide(dst, 0, divisors, 0, length)).isEqualTo(-1);
+            assertThat(dst).isEqualTo(expected);
+            assertThat(VECTOR.sum(dst, 0, length)).isWithin(1e-9).of(SCALAR.sum(dst, 0, length));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import main.WordnetGraph;
+import main.WordnetSnapshot;
+import ngrams.MappedNGramStore;
+import ngrams.NGramMap;
+import ngrams.OffHeapNGramWriter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Round-trip tests for the binary NGramMap and WordnetGraph snapshots. */
+public class SnapshotTest {
+    public static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+    private static final String SMALL_WORDS_FILE = "data/ngrams/top_14377_words.csv";
+    public static final String SMALL_SYNSET_FILE = "data/wordnet/synsets16.txt";
+    public static final String SMALL_HYPONYM_FILE = "data/wordnet/hyponyms16.txt";
+
+    @Test
+    public void testNGramSnapshotRoundTrip() throws IOException {
+        NGramMap text = new NGramMap(SMALL_WORDS_FILE, TOTAL_COUNTS_FILE);
+        Path path = Files.createTempFile("ngrams", ".snapshot");
+        MappedNGramStore.write(text.store(), path, List.of(Path.of(SMALL_WORDS_FILE), Path.of(TOTAL_COUNTS_FILE)));
+
+        MappedNGramStore store = MappedNGramStore.open(path);
+        store.file().verify();
+        assertThat(store.file().isFresh()).isTrue();
+        NGramMap mapped = new NGramMap(store);
+        for (String word : List.of("fish", "dog", "economically", "academic", "nosuchword")) {
+            assertThat(mapped.countHistory(word)).isEqualTo(text.countHistory(word));
+            assertThat(mapped.weightHistory(word, 1850, 1933)).isEqualTo(text.weightHistory(word, 1850, 1933));
+        }
+        assertThat(mapped.totalCountHistory()).isEqualTo(text.totalCountHistory());
+        assertThat(store.wordCount()).isEqualTo(text.store().wordCount());
+        Files.delete(path);
+    }
+
+    @Test
+    public void testOffHeapWriterMatchesColumnar() throws IOException {
+        NGramMap columnar = new NGramMap(SMALL_WORDS_FILE, TOTAL_COUNTS_FILE);
+        NGramMap offHeap = new NGramMap(SMALL_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Engine.OFF_HEAP);
+        assertThat(offHeap.store().wordCount()).isEqualTo(columnar.store().wordCount());
+        for (String word : List.of("fish", "dog", "economically", "academic", "nosuchword")) {
+            assertThat(offHeap.countHistory(word)).isEqualTo(columnar.countHistory(word));
+            assertThat(offHeap.weightHistory(word)).isEqualTo(columnar.weightHistory(word));
+        }
+        assertThat(offHeap.totalCountHistory()).isEqualTo(columnar.totalCountHistory());
+        ((MappedNGramStore) offHeap.store()).file().verify();
+    }
+
+    @Test
+    public void testOffHeapWriterRejectsUngroupedWords() throws IOException {
+        Path words = Files.createTempFile("words", ".csv");
+        Files.writeString(words, "dog\t2000\t5\t1\ncat\t2000\t3\t1\ndog\t2001\t4\t1\n");
+        Path path = Files.createTempFile("ngrams", ".snapshot");
+        assertThrows(IllegalArgumentException.class,
+                () -> OffHeapNGramWriter.write(words.toString(), TOTAL_COUNTS_FILE, path, false));
+        Files.delete(words);
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    public void testWordnetSnapshotRoundTrip() throws IOException {
+        WordnetGraph text = new WordnetGraph(SMALL_SYNSET_FILE, SMALL_HYPONYM_FILE);
+        Path path = Files.createTempFile("wordnet", ".snapshot");
+        WordnetSnapshot.write(text, path, List.of(Path.of(SMALL_SYNSET_FILE), Path.of(SMALL_HYPONYM_FILE)));
+
+        WordnetGraph mapped = WordnetSnapshot.open(path);
+        for (String word : List.of("change", "act", "jump", "mutation", "nosuchword")) {
+            assertThat(mapped.findHyponyms(word)).isEqualTo(text.findHyponyms(word));
+        }
+        Files.delete(path);
+    }
+
+    @Test
+    public void testCorruptSnapshotIsRejected() throws IOException {
+        WordnetGraph text = new WordnetGraph(SMALL_SYNSET_FILE, SMALL_HYPONYM_FILE);
+        Path path = Files.createTempFile("wordnet", ".snapshot");
+        WordnetSnapshot.write(text, path, List.of());
+
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(40);
+            file.write(file.read() ^ 0xFF);
+        }
+        assertThrows(IllegalStateException.class,
+                () -> snapshot.SnapshotFile.open(path, WordnetSnapshot.KIND).verify());
+        assertThrows(IllegalArgumentException.class,
+                () -> MappedNGramStore.open(path));
+        Files.delete(path);
+    }
+}
@@ -0,0 +1,25 @@
+/** Helpers for tests of code that runs on many threads. */
+final class TestThreads {
+    private TestThreads() {
+    }
+
+    /*
+     * Runs TASK on COUNT new threads, one after another, each a virtual thread if this
+     * runtime has them, as when every request gets its own virtual thread.
+     */
+    static void onNewThreads(int count, Runnable task) throws Exception {
+        Object virtual = null;
+        try {
+            virtual = Thread.class.getMethod("ofVirtual").invoke(null);
+        } catch (NoSuchMethodException e) {
+            // Java 17: fall back to new platform threads, which no ThreadLocal survives either
+        }
+        for (int i = 0; i < count; i += 1) {
+            Thread thread = virtual == null ? new Thread(task)
+                    : (Thread) Class.forName("java.lang.Thread$Builder")
+                            .getMethod("unstarted", Runnable.class).invoke(virtual, task);
+            thread.start();
+            thread.join();
+        }
+    }
+}
@@ -75,6 +75,20 @@ public class TimeSeriesTest {
     }
 
 
+    @Test
+    public void testCopyBetweenYears() {
+        TimeSeries catPopulation = new TimeSeries();
+        catPopulation.put(1991, 0.0);
+        catPopulation.put(1992, 100.0);
+        catPopulation.put(1994, 200.0);
+
+        TimeSeries copy = new TimeSeries(catPopulation, 1992, 1994);
+        assertThat(copy.years()).isEqualTo(List.of(1992, 1994));
+        assertThat(copy.data()).isEqualTo(List.of(100.0, 200.0));
+        assertThat(new TimeSeries(catPopulation, 1995, 1991)).isEmpty();
+    }
+
+
     @Test
     public void testEmptyBasic() {
         TimeSeries catPopulation = new TimeSeries();
@@ -0,0 +1,43 @@
+import main.TopKSelector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Unit Tests for the top-k selector behind k-hyponym queries. */
+public class TopKSelectorTest {
+
+    @Test
+    public void testKeepsMostFrequentWords() {
+        TopKSelector topK = new TopKSelector(3);
+        topK.offer("ant", 5);
+        topK.offer("bee", 50);
+        topK.offer("cat", 1);
+        topK.offer("dog", 20);
+        topK.offer("eel", 30);
+        assertThat(topK.alphabetical()).containsExactly("bee", "dog", "eel").inOrder();
+    }
+
+    @Test
+    public void testTiesGoToTheAlphabeticallySmallerWord() {
+        for (List<String> order : List.of(List.of("zebra", "yak", "xerus"), List.of("xerus", "zebra", "yak"))) {
+            TopKSelector topK = new TopKSelector(2);
+            for (String word : order) {
+                topK.offer(word, 7);
+            }
+            assertThat(topK.alphabetical()).containsExactly("xerus", "yak").inOrder();
+        }
+    }
+
+    @Test
+    public void testSkipsZeroCounts() {
+        TopKSelector topK = new TopKSelector(5);
+        topK.offer("ant", 0);
+        topK.offer("bee", 2);
+        topK.offer("cat", Double.NaN);
+        assertThat(topK.alphabetical()).containsExactly("bee");
+        assertThat(new TopKSelector(0).alphabetical()).isEmpty();
+    }
+}
@@ -0,0 +1,77 @@
+import main.WordDictionary;
+import main.WordnetGraph;
+import org.junit.jupiter.api.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Unit Tests for the dictionary of WordNet words and their synsets. */
+public class WordDictionaryTest {
+    public static final String SMALL_SYNSET_FILE = "data/wordnet/synsets16.txt";
+    public static final String SMALL_HYPONYM_FILE = "data/wordnet/hyponyms16.txt";
+
+    @Test
+    public void testIdsAreAlphabetical() {
+        WordDictionary dictionary = new WordDictionary.Builder()
+                .add("dog", 3).add("cat", 1).add("ant", 7).add("Zebra", 2).build();
+        assertThat(dictionary.size()).isEqualTo(4);
+        assertThat(dictionary.id("Zebra")).isEqualTo(0);
+        assertThat(dictionary.id("ant")).isEqualTo(1);
+        assertThat(dictionary.id("cat")).isEqualTo(2);
+        assertThat(dictionary.id("dog")).isEqualTo(3);
+        assertThat(dictionary.id("cow")).isEqualTo(-1);
+        assertThat(dictionary.word(2)).isEqualTo("cat");
+        assertThat(dictionary.word(2)).isSameInstanceAs(dictionary.word(2));
+    }
+
+    @Test
+    public void testPostingsAreSortedAndDistinct() {
+        WordDictionary dictionary = new WordDictionary.Builder()
+                .add("jump", 9).add("leap", 4).add("jump", 2).add("jump", 9).add("jump", 5).build();
+        int jump = dictionary.id("jump");
+        assertThat(dictionary.synsets(jump)).isEqualTo(new int[] {2, 5, 9});
+        assertThat(dictionary.postingEnd(jump) - dictionary.postingStart(jump)).isEqualTo(3);
+        assertThat(dictionary.posting(dictionary.postingStart(dictionary.id("leap")))).isEqualTo(4);
+    }
+
+    @Test
+    public void testMembersInvertPostings() {
+        WordDictionary dictionary = new WordDictionary.Builder()
+                .add("jump", 2).add("leap", 2).add("bound", 2).add("leap", 4).add("jump", 2).build();
+        assertThat(dictionary.synsetCount()).isEqualTo(5);
+        // Synset 2 lists its distinct words in id, so alphabetical, order.
+        assertThat(dictionary.memberEnd(2) - dictionary.memberStart(2)).isEqualTo(3);
+        assertThat(dictionary.word(dictionary.member(dictionary.memberStart(2)))).isEqualTo("bound");
+        assertThat(dictionary.word(dictionary.member(dictionary.memberStart(2) + 2))).isEqualTo("leap");
+        assertThat(dictionary.word(dictionary.member(dictionary.memberStart(4)))).isEqualTo("leap");
+        assertThat(dictionary.memberEnd(3)).isEqualTo(dictionary.memberStart(3));
+    }
+
+    @Test
+    public void testNonAsciiWords() {
+        WordDictionary dictionary = new WordDictionary.Builder()
+                .add("caf\u00e9", 0).add("cafe", 1).add("G\u00f6del", 2).add("na\u00efve_realism", 3).build();
+        assertThat(dictionary.synsets(dictionary.id("caf\u00e9"))).isEqualTo(new int[] {0});
+        assertThat(dictionary.synsets(dictionary.id("cafe"))).isEqualTo(new int[] {1});
+        assertThat(dictionary.word(dictionary.id("G\u00f6del"))).isEqualTo("G\u00f6del");
+        assertThat(dictionary.contains("na\u00efve_realism")).isTrue();
+        assertThat(dictionary.contains("caf\u00e8")).isFalse();
+    }
+
+    @Test
+    public void testMatchesSynsetsFile() {
+        WordnetGraph graph = new WordnetGraph(SMALL_SYNSET_FILE, SMALL_HYPONYM_FILE);
+        WordDictionary dictionary = graph.dictionary;
+        // "change" names synsets 1, 6 and 9 of synsets16.txt, "jump" 8, 13 and 15.
+        assertThat(dictionary.synsets(dictionary.id("change"))).isEqualTo(new int[] {1, 6, 9});
+        assertThat(dictionary.synsets(dictionary.id("jump"))).isEqualTo(new int[] {8, 13, 15});
+        for (int id = 0; id < dictionary.size(); id += 1) {
+            assertThat(dictionary.id(dictionary.word(id))).isEqualTo(id);
+        }
+    }
+
+    @Test
+    public void testRejectsNegativeSynset() {
+        assertThrows(IllegalArgumentException.class, () -> new WordDictionary.Builder().add("cat", -1));
+    }
+}
@@ -0,0 +1,68 @@
+import main.WordnetGraph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Unit Tests for multi-word hyponym queries on WordnetGraph. */
+public class WordnetGraphTest {
+    public static final String LARGE_SYNSET_FILE = "data/wordnet/synsets.txt";
+    public static final String LARGE_HYPONYM_FILE = "data/wordnet/hyponyms.txt";
+    public static final String SMALL_SYNSET_FILE = "data/wordnet/synsets16.txt";
+    public static final String SMALL_HYPONYM_FILE = "data/wordnet/hyponyms16.txt";
+
+    /* The original approach: intersect the full hyponym sets in query order. */
+    private static Set<String> retainAll(WordnetGraph graph, List<String> words) {
+        Set<String> common = new TreeSet<>(graph.findHyponyms(words.get(0)));
+        for (String word : words.subList(1, words.size())) {
+            common.retainAll(graph.findHyponyms(word));
+        }
+        return common;
+    }
+
+    @Test
+    public void testCommonHyponymsMatchRetainAll() {
+        WordnetGraph graph = new WordnetGraph(LARGE_SYNSET_FILE, LARGE_HYPONYM_FILE);
+        WordnetGraph indexed = new WordnetGraph(LARGE_SYNSET_FILE, LARGE_HYPONYM_FILE);
+        indexed.buildReachabilityIndex();
+
+        List<List<String>> queries = List.of(
+                List.of("entity", "change"),
+                List.of("change", "entity"),
+                List.of("act", "change", "entity"),
+                List.of("food", "cake"),
+                List.of("jump", "act"));
+        for (List<String> query : queries) {
+            Set<String> expected = retainAll(graph, query);
+            assertThat(graph.findCommonHyponyms(query)).isEqualTo(expected);
+            assertThat(indexed.findCommonHyponyms(query)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void testCommonHyponymsSmallGraph() {
+        WordnetGraph graph = new WordnetGraph(SMALL_SYNSET_FILE, SMALL_HYPONYM_FILE);
+        assertThat(graph.findCommonHyponyms(List.of("occurrence", "change")))
+                .containsExactly("alteration", "change", "increase", "jump", "leap", "modification",
+                        "saltation", "transition").inOrder();
+        assertThat(graph.findCommonHyponyms(List.of("change", "nosuchword"))).isEmpty();
+        assertThat(graph.findCommonHyponyms(List.of("demotion", "increase"))).isEmpty();
+    }
+
+    @Test
+    public void testCommonHyponymsReuseCachedClosures() {
+        WordnetGraph graph = new WordnetGraph(SMALL_SYNSET_FILE, SMALL_HYPONYM_FILE);
+        Set<String> first = graph.findCommonHyponyms(List.of("change", "occurrence"));
+        long misses = graph.closureCache().stats().misses();
+        assertThat(misses).isEqualTo(2L);
+
+        assertThat(graph.findCommonHyponyms(List.of("occurrence", "change"))).isEqualTo(first);
+        assertThat(graph.findCommonHyponyms(List.of("change"))).isEqualTo(graph.findHyponyms("change"));
+        assertThat(graph.closureCache().stats().misses()).isEqualTo(misses);
+        assertThat(graph.closureCache().stats().hits()).isEqualTo(4L);
+    }
+}